@@ -0,0 +1,43 @@
+package studi.doryanbessiere.jo2024.config;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BCrypt cost of a login ({@code matches}) and of a registration or password reset ({@code encode}). The application
+ * uses the default strength of 10; the other costs show what raising it would do to login latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class PasswordEncoderBenchmark {
+
+    private static final String PASSWORD = "Str0ng!Passw0rd";
+
+    @Param({"8", "10", "12"})
+    public int strength;
+
+    private BCryptPasswordEncoder encoder;
+    private String hash;
+
+    @Setup
+    public void setUp() {
+        encoder = new BCryptPasswordEncoder(strength);
+        hash = encoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public String encode() {
+        return encoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return encoder.matches(PASSWORD, hash);
+    }
+}
@@ -0,0 +1,33 @@
+package studi.doryanbessiere.jo2024.rendering;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering of the payment confirmation e-mail sent for every paid transaction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextTemplateEngineBenchmark {
+
+    private final TextTemplateEngine engine = new TextTemplateEngine();
+
+    private final Map<String, Object> variables = Map.of(
+            "name", "Jean",
+            "offerName", "Pack Famille",
+            "ticketCount", 4,
+            "accountUrl", "http://localhost:5173/account",
+            "appName", "Billetterie JO 2024"
+    );
+
+    @Benchmark
+    public String renderPaymentConfirmation() {
+        return engine.render("emails/payment-confirmation", variables);
+    }
+}
@@ -0,0 +1,62 @@
+package studi.doryanbessiere.jo2024.services.gates;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Occupancy bitmaps over 1 000 000 consecutive ticket ids, 70 % of them validated for the offer and a third of those
+ * through one gate: membership, then the offer ∩ gate count of the supervision snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TicketIdBitmapBenchmark {
+
+    private static final int TICKETS = 1_000_000;
+
+    private TicketIdBitmap offer;
+    private TicketIdBitmap gate;
+    private long present;
+    private long absent;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(2024);
+        offer = new TicketIdBitmap();
+        gate = new TicketIdBitmap();
+        for (long id = 1; id <= TICKETS; id++) {
+            if (random.nextInt(10) < 7) {
+                offer.add(id);
+                if (random.nextInt(3) == 0) {
+                    gate.add(id);
+                }
+            }
+        }
+        present = TICKETS / 2;
+        while (!offer.contains(present)) {
+            present++;
+        }
+        absent = TICKETS * 4L;
+    }
+
+    @Benchmark
+    public boolean containsValidated() {
+        return offer.contains(present);
+    }
+
+    @Benchmark
+    public boolean containsOutsideTheRange() {
+        return offer.contains(absent);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long offerGateIntersection() {
+        return offer.andCardinality(gate);
+    }
+}
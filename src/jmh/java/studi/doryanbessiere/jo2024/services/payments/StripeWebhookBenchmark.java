@@ -0,0 +1,65 @@
+package studi.doryanbessiere.jo2024.services.payments;
+
+import com.stripe.exception.SignatureVerificationException;
+import com.stripe.model.Event;
+import com.stripe.net.Webhook;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signature verification and parsing of a {@code checkout.session.completed} webhook, as done by
+ * {@link StripeWebhookController} before any database access.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StripeWebhookBenchmark {
+
+    private static final String SECRET = "whsec_benchmark";
+
+    private static final String PAYLOAD = """
+            {
+              "id": "evt_1PbenchmarkEvent",
+              "object": "event",
+              "api_version": "2024-06-20",
+              "created": 1722016800,
+              "type": "checkout.session.completed",
+              "livemode": false,
+              "pending_webhooks": 1,
+              "request": {"id": null, "idempotency_key": null},
+              "data": {
+                "object": {
+                  "id": "cs_test_benchmarkSession",
+                  "object": "checkout.session",
+                  "amount_total": 15000,
+                  "currency": "eur",
+                  "customer_email": "customer@jo2024.fr",
+                  "mode": "payment",
+                  "payment_status": "paid",
+                  "status": "complete",
+                  "metadata": {"transaction_id": "42"}
+                }
+              }
+            }
+            """;
+
+    private String signatureHeader;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        // Re-signed every iteration so the timestamp stays within Stripe's default tolerance.
+        long timestamp = Webhook.Util.getTimeNow();
+        String signature = Webhook.Util.computeHmacSha256(SECRET, timestamp + "." + PAYLOAD);
+        signatureHeader = "t=" + timestamp + ",v1=" + signature;
+    }
+
+    @Benchmark
+    public String constructEventAndExtractSessionId() throws SignatureVerificationException {
+        Event event = Webhook.constructEvent(PAYLOAD, signatureHeader, SECRET);
+        return StripeWebhookController.extractSessionIdSafely(event);
+    }
+}
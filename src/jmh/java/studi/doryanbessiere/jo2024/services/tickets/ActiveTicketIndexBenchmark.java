@@ -0,0 +1,62 @@
+package studi.doryanbessiere.jo2024.services.tickets;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gate lookups against an index of 1 000 000 tickets: an indexed secret, a garbage code and a well-formed forged
+ * secret (which pays the MAC check).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ActiveTicketIndexBenchmark {
+
+    private static final int TICKETS = 1_000_000;
+
+    private ActiveTicketIndex index;
+    private String indexed;
+    private String forged;
+
+    @Setup
+    public void setUp() {
+        TicketSecretAllocator allocator =
+                new TicketSecretAllocator(1, "benchmark-ticket-secret-hmac-key-0123456789", System::currentTimeMillis);
+        // Starts from an empty table, then receives the tickets as if this node had just issued them.
+        TicketRepository emptyDatabase = (TicketRepository) Proxy.newProxyInstance(TicketRepository.class.getClassLoader(),
+                new Class<?>[]{TicketRepository.class},
+                (proxy, method, args) -> method.getName().equals("countByStatus") ? 0L : List.of());
+        index = new ActiveTicketIndex(emptyDatabase, allocator, true, 1, true);
+        index.load();
+        TicketSecretAllocator.Block secrets = allocator.reserve(TICKETS);
+        List<ActiveTicketRow> rows = new ArrayList<>(TICKETS);
+        for (int i = 0; i < TICKETS; i++) {
+            rows.add(new ActiveTicketRow(secrets.secret(i), i + 1L, 1L, 1));
+        }
+        index.onTicketsIssued(new TicketsIssuedEvent(rows));
+        indexed = secrets.secret(TICKETS / 2);
+        forged = indexed.substring(0, indexed.length() - 1) + (indexed.endsWith("0") ? "1" : "0");
+    }
+
+    @Benchmark
+    public ActiveTicketIndex.Hit indexedSecret() {
+        return index.lookup(indexed);
+    }
+
+    @Benchmark
+    public ActiveTicketIndex.Hit garbageCode() {
+        return index.lookup("TCK-NOT-A-TICKET");
+    }
+
+    @Benchmark
+    public ActiveTicketIndex.Hit forgedSecret() {
+        return index.lookup(forged);
+    }
+}
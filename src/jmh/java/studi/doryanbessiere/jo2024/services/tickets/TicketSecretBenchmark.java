@@ -0,0 +1,41 @@
+package studi.doryanbessiere.jo2024.services.tickets;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ticket secret allocation: one secret at a time (checkout path) and a reserved block of 1 000 (bulk issuance).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TicketSecretBenchmark {
+
+    private static final int BLOCK = 1_000;
+
+    private TicketSecretAllocator allocator;
+
+    @Setup
+    public void setUp() {
+        allocator = new TicketSecretAllocator(1, "benchmark-ticket-secret-hmac-key-0123456789", System::currentTimeMillis);
+    }
+
+    @Benchmark
+    public String nextSecret() {
+        return allocator.next();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BLOCK)
+    public void reservedBlock(Blackhole blackhole) {
+        TicketSecretAllocator.Block block = allocator.reserve(BLOCK);
+        for (int i = 0; i < BLOCK; i++) {
+            blackhole.consume(block.secret(i));
+        }
+    }
+}
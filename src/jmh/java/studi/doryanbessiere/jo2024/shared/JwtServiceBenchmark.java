@@ -0,0 +1,41 @@
+package studi.doryanbessiere.jo2024.shared;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token issuance on every login and token parsing on every {@code @AdminOnly} / {@code @CustomerOnly} request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private JwtService jwtService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService("benchmark-secret-key-with-at-least-256-bits-of-entropy", 3_600_000L);
+        token = jwtService.generateToken("customer@jo2024.fr", "CUSTOMER");
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken("customer@jo2024.fr", "CUSTOMER");
+    }
+
+    @Benchmark
+    public String extractRole() {
+        return jwtService.extractRole(token);
+    }
+
+    @Benchmark
+    public boolean isValid() {
+        return jwtService.isValid(token);
+    }
+}
@@ -0,0 +1,31 @@
+package studi.doryanbessiere.jo2024.loadtest;
+
+import com.stripe.model.checkout.Session;
+import com.stripe.param.checkout.SessionCreateParams;
+import studi.doryanbessiere.jo2024.services.payments.PaymentGateway;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for Stripe Checkout: answers immediately with a unique session id, so the harness measures the
+ * application and not the network round trip to Stripe.
+ */
+public class FakePaymentGateway implements PaymentGateway {
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Override
+    public Session createCheckoutSession(SessionCreateParams params, String idempotencyKey) {
+        String id = "cs_load_" + sequence.incrementAndGet();
+        Session session = new Session();
+        session.setId(id);
+        session.setObject("checkout.session");
+        session.setUrl("http://localhost/fake-checkout/" + id);
+        session.setMetadata(params.getMetadata());
+        return session;
+    }
+
+    @Override
+    public void expireCheckoutSession(String sessionId) {
+    }
+}
@@ -0,0 +1,87 @@
+package studi.doryanbessiere.jo2024.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency samples per endpoint, kept in full (a scenario run is at most a few hundred thousand requests) so that
+ * percentiles are exact rather than estimated.
+ */
+public class LatencyRecorder {
+
+    public record Summary(long count, long errors, double meanMs, double p50Ms, double p90Ms, double p99Ms, double maxMs) {
+    }
+
+    private static final class Samples {
+        private long[] nanos = new long[1024];
+        private int size;
+        private final AtomicLong errors = new AtomicLong();
+
+        synchronized void add(long value) {
+            if (size == nanos.length) {
+                nanos = Arrays.copyOf(nanos, size * 2);
+            }
+            nanos[size++] = value;
+        }
+
+        synchronized long[] snapshot() {
+            return Arrays.copyOf(nanos, size);
+        }
+    }
+
+    private final Map<String, Samples> samples = new ConcurrentHashMap<>();
+
+    public void record(String endpoint, long nanos, boolean success) {
+        Samples endpointSamples = samples.computeIfAbsent(endpoint, key -> new Samples());
+        endpointSamples.add(nanos);
+        if (!success) {
+            endpointSamples.errors.incrementAndGet();
+        }
+    }
+
+    public long totalRequests() {
+        return samples.values().stream().mapToLong(s -> s.snapshot().length).sum();
+    }
+
+    /**
+     * @param order endpoints in scenario order; endpoints that were never called are omitted
+     */
+    public Map<String, Summary> summarize(Iterable<String> order) {
+        Map<String, Summary> summaries = new LinkedHashMap<>();
+        for (String endpoint : order) {
+            Samples endpointSamples = samples.get(endpoint);
+            if (endpointSamples == null) {
+                continue;
+            }
+            long[] sorted = endpointSamples.snapshot();
+            Arrays.sort(sorted);
+            summaries.put(endpoint, new Summary(
+                    sorted.length,
+                    endpointSamples.errors.get(),
+                    toMillis((long) Arrays.stream(sorted).average().orElse(0)),
+                    toMillis(percentile(sorted, 50)),
+                    toMillis(percentile(sorted, 90)),
+                    toMillis(percentile(sorted, 99)),
+                    toMillis(sorted.length == 0 ? 0 : sorted[sorted.length - 1])));
+        }
+        return summaries;
+    }
+
+    /**
+     * Nearest-rank percentile.
+     */
+    static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+}
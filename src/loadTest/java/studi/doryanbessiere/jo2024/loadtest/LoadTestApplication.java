@@ -0,0 +1,186 @@
+package studi.doryanbessiere.jo2024.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import studi.doryanbessiere.jo2024.Jo2024Application;
+import studi.doryanbessiere.jo2024.services.offers.Offer;
+import studi.doryanbessiere.jo2024.services.offers.OfferService;
+
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Boots the application on an in-memory H2 database with a fake payment gateway and an in-process SMTP server, then
+ * replays {@link ScenarioDriver}'s journey for {@code loadtest.users} customers with {@code loadtest.concurrency}
+ * concurrent clients. Prints latency percentiles per endpoint and throughput, and writes them as JSON.
+ *
+ * <p>Run with {@code gradle loadTest -PloadTestUsers=500 -PloadTestConcurrency=50 -PloadTestVirtualThreads=true}.
+ */
+public final class LoadTestApplication {
+
+    private static final String ADMIN_EMAIL = "admin@jo2024.fr";
+    private static final String ADMIN_PASSWORD = "LoadTestAdmin2024";
+    private static final String WEBHOOK_SECRET = "whsec_loadtest";
+
+    private LoadTestApplication() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int users = Integer.getInteger("loadtest.users", 200);
+        int warmupUsers = Integer.getInteger("loadtest.warmup-users", 20);
+        int concurrency = Integer.getInteger("loadtest.concurrency", 20);
+        boolean virtualThreads = Boolean.getBoolean("loadtest.virtual-threads");
+        int smtpPort = Integer.getInteger("loadtest.smtp-port", 0);
+        if (smtpPort == 0) {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                smtpPort = socket.getLocalPort();
+            }
+        }
+        Path output = Path.of(System.getProperty("loadtest.output", "build/reports/loadtest/results.json"));
+
+        GreenMail greenMail = new GreenMail(new ServerSetup(smtpPort, "127.0.0.1", ServerSetup.PROTOCOL_SMTP))
+                .withConfiguration(GreenMailConfiguration.aConfig().withDisabledAuthentication());
+        greenMail.start();
+
+        ConfigurableApplicationContext context = null;
+        int exitCode = 0;
+        try {
+            // Passed as command-line arguments so they take precedence over application.properties.
+            String[] applicationArgs = Stream.concat(
+                    applicationProperties(smtpPort, virtualThreads).entrySet().stream().map(e -> "--" + e.getKey() + "=" + e.getValue()),
+                    Arrays.stream(args)).toArray(String[]::new);
+            context = new SpringApplicationBuilder(Jo2024Application.class, LoadTestConfiguration.class).run(applicationArgs);
+
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            Offer offer = context.getBean(OfferService.class).createOffer(Offer.builder()
+                    .name("Pack Solo")
+                    .description("Offre de test de charge")
+                    .price(50)
+                    .persons(1)
+                    .quantity(Integer.MAX_VALUE)
+                    .active(true)
+                    .build());
+
+            ScenarioDriver driver = new ScenarioDriver("http://127.0.0.1:" + port, greenMail, WEBHOOK_SECRET, offer.getId());
+            driver.loginAdmin(ADMIN_EMAIL, ADMIN_PASSWORD, new LatencyRecorder());
+
+            run(driver, 0, warmupUsers, concurrency, new LatencyRecorder());
+
+            LatencyRecorder recorder = new LatencyRecorder();
+            long start = System.nanoTime();
+            int[] outcome = run(driver, warmupUsers, users, concurrency, recorder);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("users", users);
+            report.put("concurrency", concurrency);
+            report.put("virtual_threads", virtualThreads);
+            report.put("duration_seconds", seconds);
+            report.put("scenarios_completed", outcome[0]);
+            report.put("scenarios_failed", outcome[1]);
+            report.put("scenarios_per_second", outcome[0] / seconds);
+            report.put("requests_per_second", recorder.totalRequests() / seconds);
+            report.put("endpoints", recorder.summarize(ScenarioDriver.ENDPOINTS));
+
+            print(report, recorder);
+            Files.createDirectories(output.toAbsolutePath().getParent());
+            new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(output.toFile(), report);
+            System.out.println("Results written to " + output.toAbsolutePath());
+            exitCode = outcome[1] == 0 ? 0 : 1;
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+            greenMail.stop();
+        }
+        System.exit(exitCode);
+    }
+
+    /**
+     * @return completed and failed journey counts
+     */
+    private static int[] run(ScenarioDriver driver, int firstIndex, int count, int concurrency, LatencyRecorder recorder)
+            throws InterruptedException {
+        AtomicInteger next = new AtomicInteger(firstIndex);
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        int end = firstIndex + count;
+
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            clients.execute(() -> {
+                int index;
+                while ((index = next.getAndIncrement()) < end) {
+                    try {
+                        driver.runCustomer(index, recorder);
+                        completed.incrementAndGet();
+                    } catch (ScenarioDriver.ScenarioFailure e) {
+                        if (failed.incrementAndGet() <= 5) {
+                            System.err.println("Journey " + index + " failed: " + e.getMessage());
+                        }
+                    }
+                }
+            });
+        }
+        clients.shutdown();
+        clients.awaitTermination(1, TimeUnit.HOURS);
+        return new int[]{completed.get(), failed.get()};
+    }
+
+    private static Map<String, Object> applicationProperties(int smtpPort, boolean virtualThreads) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("server.port", 0);
+        properties.put("management.server.port", 0);
+        properties.put("spring.datasource.url", "jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1");
+        properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+        properties.put("spring.jpa.properties.hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        properties.put("spring.flyway.enabled", false);
+        properties.put("spring.mail.host", "127.0.0.1");
+        properties.put("spring.mail.port", smtpPort);
+        properties.put("spring.mail.username", "noreply@jo2024.test");
+        properties.put("spring.mail.properties.mail.smtp.auth", false);
+        properties.put("spring.mail.properties.mail.smtp.starttls.enable", false);
+        properties.put("spring.threads.virtual.enabled", virtualThreads);
+        properties.put("stripe.webhook.secret", WEBHOOK_SECRET);
+        properties.put("ADMIN_DEFAULT_EMAIL", ADMIN_EMAIL);
+        properties.put("ADMIN_DEFAULT_PASSWORD", ADMIN_PASSWORD);
+        // Every simulated customer comes from 127.0.0.1: per-IP throttling would reject the run after 30 logins.
+        properties.put("security.login-rate-limit.enabled", false);
+        properties.put("app.tickets.secret.node-id", 1);
+        properties.put("app.tickets.secret.hmac-key", "load-test-ticket-secret-hmac-key-0123456789");
+        properties.put("app.scans.journal.wal-path", "build/loadtest/scan-journal.wal");
+        properties.put("app.snapshot.path", "build/loadtest/cache-snapshot.bin");
+        properties.put("spring.jpa.show-sql", false);
+        properties.put("logging.level.root", "WARN");
+        return properties;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void print(Map<String, Object> report, LatencyRecorder recorder) {
+        System.out.printf("%n%d journeys in %.1f s (%d failed) with %d clients, virtual threads %s%n",
+                (int) report.get("scenarios_completed"), (double) report.get("duration_seconds"),
+                (int) report.get("scenarios_failed"), (int) report.get("concurrency"), report.get("virtual_threads"));
+        System.out.printf("Throughput: %.1f journeys/s, %.1f requests/s%n%n",
+                (double) report.get("scenarios_per_second"), (double) report.get("requests_per_second"));
+        System.out.printf("%-14s %8s %7s %9s %9s %9s %9s %9s%n", "endpoint", "count", "errors", "mean ms", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        ((Map<String, LatencyRecorder.Summary>) report.get("endpoints")).forEach((endpoint, s) ->
+                System.out.printf("%-14s %8d %7d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                        endpoint, s.count(), s.errors(), s.meanMs(), s.p50Ms(), s.p90Ms(), s.p99Ms(), s.maxMs()));
+    }
+}
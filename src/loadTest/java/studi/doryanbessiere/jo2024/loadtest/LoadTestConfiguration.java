@@ -0,0 +1,16 @@
+package studi.doryanbessiere.jo2024.loadtest;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import studi.doryanbessiere.jo2024.services.payments.PaymentGateway;
+
+@Configuration
+public class LoadTestConfiguration {
+
+    @Bean
+    @Primary
+    public PaymentGateway fakePaymentGateway() {
+        return new FakePaymentGateway();
+    }
+}
@@ -0,0 +1,196 @@
+package studi.doryanbessiere.jo2024.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.stripe.net.Webhook;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+
+/**
+ * Plays the sale-opening journey of one customer over HTTP: register, log in with the e-mailed 2FA code, check out,
+ * receive the Stripe webhook, list tickets, then have the admin scan and validate the ticket at a gate. Every call is
+ * timed under its endpoint name; the first failing call aborts the journey.
+ */
+public class ScenarioDriver {
+
+    public static final List<String> ENDPOINTS = List.of(
+            "register", "login", "login.verify", "checkout", "webhook", "tickets", "scan", "validate");
+
+    public static final String PASSWORD = "LoadTest2024";
+
+    private static final Pattern CODE_PATTERN = Pattern.compile("\\b(\\d{6})\\b");
+    private static final String TWO_FACTOR_SUBJECT = "Code de vérification";
+    private static final int GATES = 8;
+
+    public static class ScenarioFailure extends Exception {
+        public ScenarioFailure(String message) {
+            super(message);
+        }
+    }
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String baseUrl;
+    private final GreenMail greenMail;
+    private final String webhookSecret;
+    private final long offerId;
+    private String adminToken;
+
+    public ScenarioDriver(String baseUrl, GreenMail greenMail, String webhookSecret, long offerId) {
+        this.baseUrl = baseUrl;
+        this.greenMail = greenMail;
+        this.webhookSecret = webhookSecret;
+        this.offerId = offerId;
+    }
+
+    public void loginAdmin(String email, String password, LatencyRecorder recorder) throws ScenarioFailure {
+        JsonNode login = json(call(recorder, "admin.login", "POST", "/auth/admin/login",
+                Map.of("email", email, "password", password), null, Map.of()));
+        JsonNode verified = json(call(recorder, "admin.login.verify", "POST", "/auth/admin/login/verify",
+                Map.of("challenge_id", login.path("challenge_id").asText(), "code", awaitTwoFactorCode(email)), null, Map.of()));
+        adminToken = verified.path("token").asText();
+    }
+
+    public void runCustomer(int index, LatencyRecorder recorder) throws ScenarioFailure {
+        String email = String.format("load-%07d@jo2024.test", index);
+        String gateId = "gate-" + (index % GATES);
+
+        Map<String, Object> register = new LinkedHashMap<>();
+        register.put("firstname", "Load");
+        register.put("lastname", "User " + index);
+        register.put("email", email);
+        register.put("password", PASSWORD);
+        register.put("confirm_password", PASSWORD);
+        call(recorder, "register", "POST", "/auth/customer/register", register, null, Map.of());
+
+        JsonNode login = json(call(recorder, "login", "POST", "/auth/customer/login",
+                Map.of("email", email, "password", PASSWORD), null, Map.of()));
+        JsonNode verified = json(call(recorder, "login.verify", "POST", "/auth/customer/login/verify",
+                Map.of("challenge_id", login.path("challenge_id").asText(), "code", awaitTwoFactorCode(email)), null, Map.of()));
+        String token = verified.path("token").asText();
+
+        JsonNode checkout = json(call(recorder, "checkout", "POST", "/payments/checkout",
+                Map.of("offer_id", offerId), token, Map.of()));
+        String sessionId = checkout.path("session_id").asText();
+
+        String payload = checkoutCompletedEvent(sessionId, email);
+        call(recorder, "webhook", "POST", "/stripe/webhook", payload, null,
+                Map.of("Stripe-Signature", sign(payload)));
+
+        JsonNode tickets = json(call(recorder, "tickets", "GET", "/auth/customer/me/tickets", null, token, Map.of()));
+        if (tickets.isEmpty()) {
+            throw new ScenarioFailure("No ticket issued for " + email);
+        }
+        String ticketSecret = tickets.get(0).path("ticket_secret").asText();
+
+        call(recorder, "scan", "POST", "/tickets/scan",
+                Map.of("ticket_secret", ticketSecret, "gate_id", gateId), adminToken, Map.of());
+        call(recorder, "validate", "POST", "/tickets/validate",
+                Map.of("ticket_secret", ticketSecret, "gate_id", gateId), adminToken, Map.of());
+    }
+
+    private String call(LatencyRecorder recorder, String endpoint, String method, String path, Object body,
+                        String token, Map<String, String> headers) throws ScenarioFailure {
+        try {
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Content-Type", "application/json");
+            if (token != null) {
+                request.header("Authorization", "Bearer " + token);
+            }
+            headers.forEach(request::header);
+            if (body == null) {
+                request.method(method, HttpRequest.BodyPublishers.noBody());
+            } else {
+                String content = body instanceof String raw ? raw : objectMapper.writeValueAsString(body);
+                request.method(method, HttpRequest.BodyPublishers.ofString(content));
+            }
+
+            long start = System.nanoTime();
+            HttpResponse<String> response = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            boolean success = response.statusCode() / 100 == 2;
+            recorder.record(endpoint, System.nanoTime() - start, success);
+            if (!success) {
+                throw new ScenarioFailure(endpoint + " -> HTTP " + response.statusCode() + " " + response.body());
+            }
+            return response.body();
+        } catch (IOException e) {
+            recorder.record(endpoint, 0, false);
+            throw new ScenarioFailure(endpoint + " -> " + e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ScenarioFailure(endpoint + " interrupted");
+        }
+    }
+
+    private JsonNode json(String body) throws ScenarioFailure {
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            throw new ScenarioFailure("Unreadable response: " + body);
+        }
+    }
+
+    /**
+     * The code is read from the message delivered to the in-process SMTP server, as a user would.
+     */
+    private String awaitTwoFactorCode(String email) throws ScenarioFailure {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            MimeMessage[] messages = greenMail.getReceivedMessagesForDomain(email);
+            try {
+                for (int i = messages.length - 1; i >= 0; i--) {
+                    if (messages[i].getSubject() != null && messages[i].getSubject().startsWith(TWO_FACTOR_SUBJECT)) {
+                        Matcher matcher = CODE_PATTERN.matcher(GreenMailUtil.getBody(messages[i]));
+                        if (matcher.find()) {
+                            return matcher.group(1);
+                        }
+                    }
+                }
+                Thread.sleep(20);
+            } catch (MessagingException e) {
+                throw new ScenarioFailure("Unreadable 2FA e-mail for " + email + ": " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ScenarioFailure("Interrupted while waiting for the 2FA e-mail");
+            }
+        }
+        throw new ScenarioFailure("No 2FA e-mail received for " + email);
+    }
+
+    private String sign(String payload) throws ScenarioFailure {
+        try {
+            long timestamp = Webhook.Util.getTimeNow();
+            return "t=" + timestamp + ",v1=" + Webhook.Util.computeHmacSha256(webhookSecret, timestamp + "." + payload);
+        } catch (Exception e) {
+            throw new ScenarioFailure("Unable to sign webhook: " + e.getMessage());
+        }
+    }
+
+    private static String checkoutCompletedEvent(String sessionId, String email) {
+        return """
+                {"id":"evt_%s","object":"event","api_version":"2024-06-20","created":%d,
+                 "type":"checkout.session.completed","livemode":false,"pending_webhooks":1,
+                 "data":{"object":{"id":"%s","object":"checkout.session","customer_email":"%s",
+                 "mode":"payment","payment_status":"paid","status":"complete"}}}
+                """.formatted(sessionId, System.currentTimeMillis() / 1000, sessionId, email);
+    }
+}
@@ -15,6 +15,7 @@ public final class Routes {
             public static final String VERIFY_LOGIN = "/login/verify";
             public static final String ME = "/me";
             public static final String ME_TICKETS = "/me/tickets";
+            public static final String ME_TICKETS_PAGE = "/me/tickets/page";
 
 
             public static final String FORGOT_PASSWORD = "/forgot-password";
@@ -40,6 +41,7 @@ public final class Routes {
         public static final String BASE = "/payments";
         public static final String CHECKOUT = "/checkout";
         public static final String STATUS = "/status/{session_id}";
+        public static final String STATUS_STREAM = "/status/{session_id}/stream";
 
     }
 
@@ -51,4 +53,19 @@ public final class Routes {
     public static final class Offer {
         public static final String BASE = "/offers";
     }
+
+    public static final class Gates {
+        public static final String BASE = "/admin/gates";
+        public static final String STREAM = "/stream";
+        public static final String OCCUPANCY = "/occupancy";
+    }
+
+    public static final class Scans {
+        public static final String BASE = "/admin/scans";
+    }
+
+    public static final class Monitoring {
+        public static final String BASE = "/admin/monitoring";
+        public static final String CACHE = "/cache";
+    }
 }
@@ -1,5 +1,6 @@
 package studi.doryanbessiere.jo2024.common.exceptions;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -19,8 +20,11 @@ public class GlobalExceptionHandler {
 
         // Standard API Exception handling
         if (ex instanceof ApiException apiEx) {
-            return ResponseEntity
-                    .status(apiEx.getStatus())
+            ResponseEntity.BodyBuilder builder = ResponseEntity.status(apiEx.getStatus());
+            if (ex instanceof TooManyRequestsException tooManyEx) {
+                builder.header(HttpHeaders.RETRY_AFTER, String.valueOf(tooManyEx.getRetryAfterSeconds()));
+            }
+            return builder
                     .body(Map.of(
                             "status", "error",
                             "code", apiEx.getCode(),
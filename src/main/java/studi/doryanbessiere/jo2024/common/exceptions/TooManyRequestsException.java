@@ -0,0 +1,32 @@
+package studi.doryanbessiere.jo2024.common.exceptions;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class TooManyRequestsException extends RuntimeException implements ApiException {
+
+    public static final String DEFAULT_CODE = "too_many_requests";
+
+    /**
+     * Delay, in seconds, sent back to the client through the {@code Retry-After} header.
+     */
+    @Getter
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(long retryAfterSeconds) {
+        super(DEFAULT_CODE);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.TOO_MANY_REQUESTS;
+    }
+
+    @Override
+    public String getCode() {
+        return DEFAULT_CODE;
+    }
+}
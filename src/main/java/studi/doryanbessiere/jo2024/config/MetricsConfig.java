@@ -0,0 +1,19 @@
+package studi.doryanbessiere.jo2024.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Enables {@link io.micrometer.core.annotation.Timed} on Spring beans. Histogram buckets for the {@code jo2024.*}
+ * timers are switched on in application.properties ({@code management.metrics.distribution.*}).
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+}
@@ -0,0 +1,77 @@
+package studi.doryanbessiere.jo2024.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import studi.doryanbessiere.jo2024.shared.datasource.ReadWriteRoutingDataSource;
+import studi.doryanbessiere.jo2024.shared.datasource.ReplicaLagMonitor;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+
+/**
+ * Primary/replica split, enabled by setting {@code app.datasource.replica.url}. Without it the single
+ * auto-configured datasource is used unchanged.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource.replica", name = "url")
+public class ReadReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("app.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${app.datasource.replica.url}") String url,
+                                              @Value("${app.datasource.replica.username:${spring.datasource.username:}}") String username,
+                                              @Value("${app.datasource.replica.password:${spring.datasource.password:}}") String password) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("primaryDataSource") DataSource primary,
+                                               @Qualifier("replicaDataSource") DataSource replica,
+                                               @Value("${app.datasource.replica.max-lag-ms:5000}") long maxLagMillis) {
+        return new ReplicaLagMonitor(primary, replica, Clock.systemUTC(), maxLagMillis);
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource readWriteRoutingDataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                                                 @Qualifier("replicaDataSource") DataSource replica,
+                                                                 ReplicaLagMonitor lagMonitor) {
+        return new ReadWriteRoutingDataSource(primary, replica, lagMonitor);
+    }
+
+    /**
+     * Excluded from JDBC observation (application.properties): the tracing proxy would open the physical connection
+     * before the transaction marks it read-only, so it wraps the two pools instead.
+     */
+    @Bean
+    @Primary
+    public DataSource lazyRoutingDataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
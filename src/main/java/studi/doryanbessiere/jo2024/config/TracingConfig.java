@@ -0,0 +1,25 @@
+package studi.doryanbessiere.jo2024.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import studi.doryanbessiere.jo2024.shared.tracing.FileSpanExporter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Spans are produced by Micrometer Tracing over OpenTelemetry ({@code management.tracing.*}); Spring Boot hands every
+ * {@link io.opentelemetry.sdk.trace.export.SpanExporter} bean to its batch span processor. This adds a JSON-lines file
+ * exporter when {@code app.tracing.export-file} is set.
+ */
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    @ConditionalOnExpression("!'${app.tracing.export-file:}'.isBlank()")
+    public FileSpanExporter fileSpanExporter(@Value("${app.tracing.export-file}") String exportFile) throws IOException {
+        return new FileSpanExporter(Path.of(exportFile));
+    }
+}
@@ -0,0 +1,27 @@
+package studi.doryanbessiere.jo2024.config.migration;
+
+import java.util.List;
+
+/**
+ * Secondary indexes the repository lookups rely on. Created by {@code V3__Hot_path_indexes} and checked at startup
+ * by {@link SchemaIndexVerifier}; the entities declare the same indexes for schemas generated by Hibernate.
+ */
+public record HotPathIndex(String name, String table, List<String> columns) {
+
+    public static final List<HotPathIndex> REQUIRED = List.of(
+            // TransactionRepository.findByStripeSessionId (webhook, payment status)
+            new HotPathIndex("idx_transactions_stripe_session_id", "transactions", List.of("stripe_session_id")),
+            // TicketRepository customer listing and keyset pages
+            new HotPathIndex("idx_tickets_customer_secret_created_at", "tickets", List.of("customer_secret", "created_at")),
+            // TicketRepository.findAllByTransactionIdOrderByLineIndex (also backs the foreign key)
+            new HotPathIndex("idx_tickets_transaction_id", "tickets", List.of("transaction_id")),
+            // TwoFactorTokenRepository.deleteByEmailAndType
+            new HotPathIndex("idx_two_factor_tokens_email_type", "two_factor_tokens", List.of("email", "type")),
+            // TwoFactorTokenRepository.deleteExpiredBefore
+            new HotPathIndex("idx_two_factor_tokens_expires_at", "two_factor_tokens", List.of("expires_at"))
+    );
+
+    public String createStatement() {
+        return "create index " + name + " on " + table + " (" + String.join(", ", columns) + ")";
+    }
+}
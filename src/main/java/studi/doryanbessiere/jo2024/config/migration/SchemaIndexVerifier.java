@@ -0,0 +1,49 @@
+package studi.doryanbessiere.jo2024.config.migration;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Refuses to start when one of the {@link HotPathIndex#REQUIRED} indexes is missing, rather than silently serving
+ * the hot paths with full table scans.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.schema.verify-indexes", havingValue = "true", matchIfMissing = true)
+public class SchemaIndexVerifier implements ApplicationRunner {
+
+    private final DataSource dataSource;
+
+    @Override
+    public void run(ApplicationArguments args) throws SQLException {
+        List<String> missing = missingIndexes();
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Missing required database indexes: " + String.join(", ", missing)
+                    + ". Run the Flyway migrations before starting the application.");
+        }
+        log.info("Verified {} required database indexes", HotPathIndex.REQUIRED.size());
+    }
+
+    public List<String> missingIndexes() throws SQLException {
+        List<String> missing = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection()) {
+            for (HotPathIndex index : HotPathIndex.REQUIRED) {
+                if (!SchemaInspector.hasIndexStartingWith(connection, index.table(), index.columns())) {
+                    missing.add(index.table() + "(" + String.join(", ", index.columns()) + ")");
+                }
+            }
+        }
+        return missing;
+    }
+}
@@ -0,0 +1,77 @@
+package studi.doryanbessiere.jo2024.config.migration;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * JDBC metadata helpers shared by the Java migrations and {@link SchemaIndexVerifier}. Identifiers are matched
+ * case-insensitively so the same checks work on MySQL (lower case) and H2 (upper case).
+ */
+public final class SchemaInspector {
+
+    private SchemaInspector() {
+    }
+
+    public static boolean tableExists(Connection connection, String table) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet tables = metaData.getTables(connection.getCatalog(), connection.getSchema(),
+                identifier(metaData, table), new String[]{"TABLE"})) {
+            return tables.next();
+        }
+    }
+
+    /**
+     * Whether some index on {@code table} starts with exactly {@code columns}, in order, so that a lookup filtering
+     * on those columns is an index seek.
+     */
+    public static boolean hasIndexStartingWith(Connection connection, String table, List<String> columns) throws SQLException {
+        for (List<String> indexColumns : indexes(connection, table).values()) {
+            if (indexColumns.size() >= columns.size()
+                    && indexColumns.subList(0, columns.size()).equals(lowerCase(columns))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Map<String, List<String>> indexes(Connection connection, String table) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        Map<String, TreeMap<Short, String>> byName = new TreeMap<>();
+        try (ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), connection.getSchema(),
+                identifier(metaData, table), false, false)) {
+            while (rs.next()) {
+                String indexName = rs.getString("INDEX_NAME");
+                String column = rs.getString("COLUMN_NAME");
+                if (indexName == null || column == null) {
+                    continue;
+                }
+                byName.computeIfAbsent(indexName, key -> new TreeMap<>())
+                        .put(rs.getShort("ORDINAL_POSITION"), column.toLowerCase(Locale.ROOT));
+            }
+        }
+        Map<String, List<String>> result = new TreeMap<>();
+        byName.forEach((name, columns) -> result.put(name, new ArrayList<>(columns.values())));
+        return result;
+    }
+
+    private static String identifier(DatabaseMetaData metaData, String name) throws SQLException {
+        if (metaData.storesUpperCaseIdentifiers()) {
+            return name.toUpperCase(Locale.ROOT);
+        }
+        if (metaData.storesLowerCaseIdentifiers()) {
+            return name.toLowerCase(Locale.ROOT);
+        }
+        return name;
+    }
+
+    private static List<String> lowerCase(List<String> values) {
+        return values.stream().map(value -> value.toLowerCase(Locale.ROOT)).toList();
+    }
+}
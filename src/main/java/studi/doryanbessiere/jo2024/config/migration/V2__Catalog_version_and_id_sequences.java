@@ -0,0 +1,53 @@
+package studi.doryanbessiere.jo2024.config.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Support tables introduced after the baseline: the offer catalogue version row and the pooled id sequences of
+ * tickets and transactions (one-row tables, as Hibernate maps sequences on MySQL). Written in Java because
+ * databases previously managed by {@code ddl-auto=update} may already contain some of them, and because each
+ * sequence must start past the ids already handed out by the former AUTO_INCREMENT columns.
+ */
+public class V2__Catalog_version_and_id_sequences extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            if (!SchemaInspector.tableExists(connection, "offer_catalog_version")) {
+                statement.execute("create table offer_catalog_version (id bigint not null, version bigint not null, primary key (id)) engine=InnoDB");
+            }
+            alignSequence(connection, statement, "ticket_seq", "tickets");
+            alignSequence(connection, statement, "transaction_seq", "transactions");
+        }
+    }
+
+    private void alignSequence(Connection connection, Statement statement, String sequence, String table) throws SQLException {
+        if (!SchemaInspector.tableExists(connection, sequence)) {
+            statement.execute("create table " + sequence + " (next_val bigint) engine=InnoDB");
+        }
+
+        long nextId = 1;
+        try (ResultSet rs = statement.executeQuery("select coalesce(max(id), 0) + 1 from " + table)) {
+            if (rs.next()) {
+                nextId = rs.getLong(1);
+            }
+        }
+
+        boolean hasRow;
+        try (ResultSet rs = statement.executeQuery("select count(*) from " + sequence)) {
+            hasRow = rs.next() && rs.getLong(1) > 0;
+        }
+        if (hasRow) {
+            statement.executeUpdate("update " + sequence + " set next_val = " + nextId + " where next_val < " + nextId);
+        } else {
+            statement.executeUpdate("insert into " + sequence + " values (" + nextId + ")");
+        }
+    }
+}
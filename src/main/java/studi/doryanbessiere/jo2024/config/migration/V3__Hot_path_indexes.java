@@ -0,0 +1,26 @@
+package studi.doryanbessiere.jo2024.config.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+/**
+ * Creates the {@link HotPathIndex#REQUIRED} indexes. MySQL has no {@code create index if not exists}, and a
+ * schema maintained by {@code ddl-auto=update} may already hold some of them, so existing equivalents are skipped.
+ */
+public class V3__Hot_path_indexes extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            for (HotPathIndex index : HotPathIndex.REQUIRED) {
+                if (!SchemaInspector.hasIndexStartingWith(connection, index.table(), index.columns())) {
+                    statement.execute(index.createStatement());
+                }
+            }
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package studi.doryanbessiere.jo2024.notifications;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.annotation.NewSpan;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
@@ -8,14 +13,41 @@ import org.springframework.stereotype.Service;
 import studi.doryanbessiere.jo2024.notifications.dto.EmailRequest;
 import studi.doryanbessiere.jo2024.rendering.TemplateEngine;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 @Service
-@RequiredArgsConstructor
 public class EmailNotificationService implements NotificationService<EmailRequest> {
 
     private final JavaMailSenderImpl mailSender;
     private final TemplateEngine templateEngine;
 
+    /**
+     * Platform threads running the SMTP exchange when request handling runs on virtual threads.
+     * Jakarta Mail holds a monitor on the transport during connect/send/close, which would pin the
+     * carrier thread for the whole network round trip; the calling virtual thread parks on the
+     * future instead. {@code null} when requests already run on platform threads.
+     */
+    private final ExecutorService smtpExecutor;
+
+    private final MeterRegistry meterRegistry;
+
+    public EmailNotificationService(JavaMailSenderImpl mailSender,
+                                    TemplateEngine templateEngine,
+                                    @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                                    @Value("${app.mail.smtp-threads:4}") int smtpThreads,
+                                    MeterRegistry meterRegistry) {
+        this.mailSender = mailSender;
+        this.templateEngine = templateEngine;
+        this.meterRegistry = meterRegistry;
+        this.smtpExecutor = virtualThreads
+                ? Executors.newFixedThreadPool(smtpThreads, Thread.ofPlatform().name("smtp-", 0).daemon().factory())
+                : null;
+    }
+
     @Override
+    @NewSpan("email.send")
     public void sendNotification(EmailRequest request) {
         String body = request.getMessage();
 
@@ -29,6 +61,43 @@ public class EmailNotificationService implements NotificationService<EmailReques
         message.setSubject(request.getSubject());
         message.setText(body);
 
-        mailSender.send(message);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try {
+            send(mailSender, message);
+            outcome = "success";
+        } finally {
+            sample.stop(Timer.builder("jo2024.email.send")
+                    .description("SMTP delivery of one e-mail")
+                    .tag("template", request.getTemplateName() == null ? "none" : request.getTemplateName())
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    private void send(JavaMailSender sender, SimpleMailMessage message) {
+        if (smtpExecutor == null) {
+            sender.send(message);
+            return;
+        }
+
+        try {
+            smtpExecutor.submit(() -> sender.send(message)).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new MailSendException("Failed to send e-mail", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MailSendException("Interrupted while sending e-mail", e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (smtpExecutor != null) {
+            smtpExecutor.shutdown();
+        }
     }
-}
\ No newline at end of file
+}
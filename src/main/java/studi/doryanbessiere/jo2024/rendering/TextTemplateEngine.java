@@ -20,7 +20,7 @@ public class TextTemplateEngine implements TemplateEngine {
             String content = loadTemplate(templateName);
 
             Matcher matcher = VARIABLE_PATTERN.matcher(content);
-            StringBuffer buffer = new StringBuffer();
+            StringBuilder buffer = new StringBuilder();
 
             while (matcher.find()) {
                 String key = matcher.group(1).trim();
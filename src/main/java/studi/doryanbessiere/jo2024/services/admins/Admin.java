@@ -3,6 +3,8 @@ package studi.doryanbessiere.jo2024.services.admins;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Entité représentant un administrateur de la plateforme JO 2024.
@@ -14,6 +16,7 @@ import lombok.*;
 @AllArgsConstructor
 @Builder
 @Table(name = "admins")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "admins")
 @Schema(description = "Entité représentant un administrateur enregistré dans le système")
 public class Admin {
 
@@ -22,6 +22,7 @@ import studi.doryanbessiere.jo2024.services.admins.dto.AdminAuthResponse;
 import studi.doryanbessiere.jo2024.services.admins.dto.AdminLoginRequest;
 import studi.doryanbessiere.jo2024.services.admins.dto.AdminMeResponse;
 import studi.doryanbessiere.jo2024.shared.dto.TwoFactorVerificationRequest;
+import studi.doryanbessiere.jo2024.shared.security.LoginRateLimited;
 
 @RestController
 @RequestMapping(Routes.Auth.Admin.BASE)
@@ -34,6 +35,7 @@ public class AdminAuthController {
     private final AdminAuthService service;
 
     @PostMapping(Routes.Auth.Admin.LOGIN)
+    @LoginRateLimited("admin")
     @Operation(
             summary = "Connexion d'un administrateur",
             description = "Authentifie les identifiants d'un administrateur puis initie un challenge de double authentification par e-mail."
@@ -42,7 +44,8 @@ public class AdminAuthController {
             @ApiResponse(responseCode = "200", description = "Authentification réussie",
                     content = @Content(schema = @Schema(implementation = AdminAuthResponse.class))),
             @ApiResponse(responseCode = "400", description = "Requête invalide", content = @Content),
-            @ApiResponse(responseCode = "401", description = "Identifiants invalides", content = @Content)
+            @ApiResponse(responseCode = "401", description = "Identifiants invalides", content = @Content),
+            @ApiResponse(responseCode = "429", description = "Trop de tentatives de connexion", content = @Content)
     })
     public ResponseEntity<AdminAuthResponse> login(@Valid @RequestBody AdminLoginRequest request) {
         log.info("Admin login attempt for email: " + request.getEmail());
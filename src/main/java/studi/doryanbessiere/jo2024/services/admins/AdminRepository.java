@@ -1,9 +1,18 @@
 package studi.doryanbessiere.jo2024.services.admins;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import java.util.Optional;
 
 public interface AdminRepository extends JpaRepository<Admin, Long> {
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "query.admins-by-email")
+    })
     Optional<Admin> findByEmail(String email);
+
     boolean existsByEmail(String email);
 }
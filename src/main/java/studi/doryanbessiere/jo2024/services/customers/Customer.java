@@ -2,9 +2,12 @@ package studi.doryanbessiere.jo2024.services.customers;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name = "customers")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "customers")
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 public class Customer {
     @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -17,8 +17,10 @@ import studi.doryanbessiere.jo2024.services.customers.dto.AuthResponse;
 import studi.doryanbessiere.jo2024.services.customers.dto.LoginRequest;
 import studi.doryanbessiere.jo2024.services.customers.dto.RegisterRequest;
 import studi.doryanbessiere.jo2024.services.tickets.TicketService;
+import studi.doryanbessiere.jo2024.services.tickets.dto.TicketPageResponse;
 import studi.doryanbessiere.jo2024.services.tickets.dto.TicketResponse;
 import studi.doryanbessiere.jo2024.shared.security.CustomerOnly;
+import studi.doryanbessiere.jo2024.shared.security.LoginRateLimited;
 import studi.doryanbessiere.jo2024.shared.dto.TwoFactorVerificationRequest;
 
 import java.util.List;
@@ -69,10 +71,12 @@ public class CustomerAuthController {
             @ApiResponse(responseCode = "200", description = "Authentification réussie",
                     content = @Content(schema = @Schema(implementation = AuthResponse.class))),
             @ApiResponse(responseCode = "401", description = "Identifiants invalides", content = @Content),
+            @ApiResponse(responseCode = "429", description = "Trop de tentatives de connexion, réessayer après le délai indiqué par l'en-tête Retry-After", content = @Content),
             @ApiResponse(responseCode = "500", description = "Erreur interne du serveur", content = @Content)
     })
 
     @PostMapping(Routes.Auth.Customer.LOGIN)
+    @LoginRateLimited("customer")
     public ResponseEntity<AuthResponse> login(@Valid @RequestBody LoginRequest req) {
         return ResponseEntity.ok(authService.login(req));
     }
@@ -143,4 +147,32 @@ public class CustomerAuthController {
         Customer customer = authService.getAuthenticatedCustomer(token);
         return ResponseEntity.ok(ticketService.getTicketsForCustomer(customer));
     }
+
+    @GetMapping(Routes.Auth.Customer.ME_TICKETS_PAGE)
+    @CustomerOnly
+    @Operation(
+            summary = "Lister les billets d'un client par pages",
+            description = """
+                    Renvoie une page de billets du compte connecté, du plus récent au plus ancien.
+                    Passer la valeur `next_cursor` de la réponse dans le paramètre `cursor` pour obtenir la page suivante.
+                    """,
+            security = @SecurityRequirement(name = "bearerAuth"),
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Page de billets",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = TicketPageResponse.class))),
+                    @ApiResponse(responseCode = "400", description = "Curseur invalide"),
+                    @ApiResponse(responseCode = "401", description = "Utilisateur non authentifié"),
+                    @ApiResponse(responseCode = "500", description = "Erreur interne du serveur")
+            }
+    )
+    public ResponseEntity<TicketPageResponse> meTicketsPage(
+            @RequestHeader("Authorization") String authorizationHeader,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size
+    ) {
+        String token = authorizationHeader.substring(7);
+        Customer customer = authService.getAuthenticatedCustomer(token);
+        return ResponseEntity.ok(ticketService.getTicketPageForCustomer(customer, cursor, size));
+    }
 }
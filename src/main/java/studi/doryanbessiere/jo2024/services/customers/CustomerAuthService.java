@@ -1,5 +1,6 @@
 package studi.doryanbessiere.jo2024.services.customers;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.env.Environment;
@@ -17,6 +18,7 @@ import studi.doryanbessiere.jo2024.services.customers.dto.RegisterRequest;
 import studi.doryanbessiere.jo2024.services.customers.dto.ResetPasswordRequest;
 import studi.doryanbessiere.jo2024.services.customers.dto.AuthResponse;
 import studi.doryanbessiere.jo2024.shared.JwtService;
+import studi.doryanbessiere.jo2024.shared.datasource.ReadYourWritesTracker;
 import studi.doryanbessiere.jo2024.shared.twofactor.TwoFactorAuthService;
 import studi.doryanbessiere.jo2024.shared.twofactor.TwoFactorToken;
 import studi.doryanbessiere.jo2024.shared.twofactor.TwoFactorTokenType;
@@ -39,6 +41,7 @@ public class CustomerAuthService {
     private final JwtService jwtService;
     private final EmailNotificationService emailService;
     private final TwoFactorAuthService twoFactorAuthService;
+    private final ReadYourWritesTracker readYourWritesTracker;
 
     private final Environment env;
 
@@ -67,6 +70,7 @@ public class CustomerAuthService {
                 .build();
 
         customerRepository.save(user);
+        readYourWritesTracker.recordWrite(user.getEmail());
         log.info("Customer registered with email={}", user.getEmail());
     }
 
@@ -76,7 +80,10 @@ public class CustomerAuthService {
      * @param req la requête de connexion contenant les identifiants du client
      * @return une réponse mentionnant si le second facteur est requis et l'identifiant du challenge
      */
+    @Timed(value = "jo2024.auth.login", description = "Customer password check and 2FA challenge creation")
     public AuthResponse login(LoginRequest req) {
+        // A login right after registration must not miss the account on a lagging replica.
+        readYourWritesTracker.pinIfRecent(req.getEmail());
         var userOpt = customerRepository.findByEmail(req.getEmail());
         if (userOpt.isEmpty()) {
             log.warn("Login attempt with unknown email={}", req.getEmail());
@@ -163,6 +170,7 @@ public class CustomerAuthService {
         log.info("Password successfully reset for email={}", user.getEmail());
     }
 
+    @Timed(value = "jo2024.auth.two_factor.verify", description = "Customer 2FA code check and JWT issuance")
     public AuthResponse verifyTwoFactor(TwoFactorVerificationRequest request) {
         TwoFactorToken token = twoFactorAuthService.verifyChallenge(
                 request.getChallengeId(),
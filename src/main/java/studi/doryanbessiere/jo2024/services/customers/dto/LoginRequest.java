@@ -3,9 +3,10 @@ package studi.doryanbessiere.jo2024.services.customers.dto;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
+import studi.doryanbessiere.jo2024.shared.security.LoginCredentials;
 
 @Data
-public class LoginRequest {
+public class LoginRequest implements LoginCredentials {
 
     @Email(message = "email_invalid")
     @NotBlank(message = "is_required")
@@ -0,0 +1,91 @@
+package studi.doryanbessiere.jo2024.services.gates;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import studi.doryanbessiere.jo2024.services.gates.dto.GateDashboardSnapshot;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Aggregates gate activity in memory so that supervision dashboards never query MySQL. Recording an event is a
+ * ring write plus a few counter increments and never blocks the agent's request.
+ */
+@Service
+public class GateActivityService {
+
+    public static final String UNKNOWN_GATE = "unknown";
+
+    /**
+     * Gate ids become a metrics tag, a dashboard key and the {@code varchar(64)} {@code gate_id} journal column: the
+     * request DTOs hold them to this length and alphabet.
+     */
+    public static final int GATE_ID_MAX_LENGTH = 64;
+    public static final String GATE_ID_PATTERN = "[A-Za-z0-9._:-]*";
+
+    private final GateEventRing ring;
+    private final Map<String, GateCounters> gates = new ConcurrentHashMap<>();
+    private final Map<String, GateCounters> offers = new ConcurrentHashMap<>();
+    private final Clock clock;
+
+    @Autowired
+    public GateActivityService(@Value("${app.gates.event-buffer-size:8192}") int bufferSize) {
+        this(Clock.systemUTC(), bufferSize);
+    }
+
+    GateActivityService(Clock clock, int bufferSize) {
+        this.clock = clock;
+        this.ring = new GateEventRing(bufferSize);
+    }
+
+    public void record(GateEvent.Type type, String gateId, Long offerId, String offerName, Long ticketId, String reason) {
+        Instant now = clock.instant();
+        String gate = normalizeGateId(gateId);
+        GateEvent event = new GateEvent(type, gate, offerId, offerName, ticketId, reason, now);
+
+        ring.publish(event);
+        long second = now.getEpochSecond();
+        gates.computeIfAbsent(gate, GateCounters::new).record(event, second);
+        if (offerId != null) {
+            offers.computeIfAbsent(String.valueOf(offerId), key -> new GateCounters(offerName)).record(event, second);
+        }
+    }
+
+    public static String normalizeGateId(String gateId) {
+        return gateId == null || gateId.isBlank() ? UNKNOWN_GATE : gateId.trim();
+    }
+
+    public GateEventRing ring() {
+        return ring;
+    }
+
+    public GateDashboardSnapshot snapshot(List<GateEvent> recentEvents, long droppedEvents) {
+        long now = clock.instant().getEpochSecond();
+        return GateDashboardSnapshot.builder()
+                .generatedAt(clock.instant())
+                .gates(toCounters(gates, now))
+                .offers(toCounters(offers, now))
+                .recentEvents(recentEvents)
+                .droppedEvents(droppedEvents)
+                .build();
+    }
+
+    private List<GateDashboardSnapshot.Counter> toCounters(Map<String, GateCounters> source, long now) {
+        return source.entrySet().stream()
+                .map(entry -> GateDashboardSnapshot.Counter.builder()
+                        .key(entry.getKey())
+                        .label(entry.getValue().label)
+                        .scans(entry.getValue().scans.sum())
+                        .validations(entry.getValue().validations.sum())
+                        .rejections(entry.getValue().rejections.sum())
+                        .entriesLastMinute(entry.getValue().entries.sum(now))
+                        .build())
+                .sorted(Comparator.comparing(GateDashboardSnapshot.Counter::getKey))
+                .toList();
+    }
+}
@@ -0,0 +1,30 @@
+package studi.doryanbessiere.jo2024.services.gates;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cumulative and rolling counters for one gate or one offer.
+ */
+class GateCounters {
+
+    final String label;
+    final LongAdder scans = new LongAdder();
+    final LongAdder validations = new LongAdder();
+    final LongAdder rejections = new LongAdder();
+    final RollingCounter entries = new RollingCounter();
+
+    GateCounters(String label) {
+        this.label = label;
+    }
+
+    void record(GateEvent event, long epochSecond) {
+        switch (event.type()) {
+            case SCANNED -> scans.increment();
+            case VALIDATED -> {
+                validations.increment();
+                entries.increment(epochSecond);
+            }
+            case REJECTED -> rejections.increment();
+        }
+    }
+}
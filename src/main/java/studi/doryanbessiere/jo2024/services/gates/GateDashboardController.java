@@ -0,0 +1,87 @@
+package studi.doryanbessiere.jo2024.services.gates;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import studi.doryanbessiere.jo2024.common.Routes;
+import studi.doryanbessiere.jo2024.services.gates.dto.GateDashboardSnapshot;
+import studi.doryanbessiere.jo2024.services.gates.dto.GateOccupancySnapshot;
+import studi.doryanbessiere.jo2024.shared.security.AdminOnly;
+
+import java.util.List;
+
+@RestController
+@RequestMapping(Routes.Gates.BASE)
+@RequiredArgsConstructor
+@Tag(name = "Supervision des entrées", description = "Activité des portes de contrôle en temps réel")
+public class GateDashboardController {
+
+    private final GateActivityService gateActivityService;
+    private final GateDashboardStream gateDashboardStream;
+    private final GateOccupancy gateOccupancy;
+
+    @GetMapping
+    @AdminOnly
+    @Operation(
+            summary = "Instantané de l'activité des portes",
+            description = "Compteurs de scans, validations et rejets par porte et par offre, avec les entrées de la dernière minute.",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Instantané courant",
+                    content = @Content(schema = @Schema(implementation = GateDashboardSnapshot.class))),
+            @ApiResponse(responseCode = "401", description = "Utilisateur non authentifié", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Accès refusé", content = @Content)
+    })
+    public ResponseEntity<GateDashboardSnapshot> getSnapshot() {
+        return ResponseEntity.ok(gateActivityService.snapshot(List.of(), 0));
+    }
+
+    @GetMapping(value = Routes.Gates.STREAM, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @AdminOnly
+    @Operation(
+            summary = "Flux temps réel de l'activité des portes (SSE)",
+            description = "Envoie un événement `gates` chaque seconde avec les compteurs et les derniers passages. "
+                    + "Un client trop lent saute des envois au lieu de ralentir les contrôles.",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Flux ouvert",
+                    content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE)),
+            @ApiResponse(responseCode = "401", description = "Utilisateur non authentifié", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Accès refusé", content = @Content)
+    })
+    public SseEmitter stream() {
+        return gateDashboardStream.subscribe();
+    }
+
+    @GetMapping(Routes.Gates.OCCUPANCY)
+    @AdminOnly
+    @Operation(
+            summary = "Occupation en direct par offre",
+            description = "Billets validés et personnes entrées par offre, avec la répartition par porte. Calculé en mémoire "
+                    + "à partir de bitmaps compressés, sans comptage sur la table des billets ; les validations des autres "
+                    + "instances apparaissent après leur écriture dans le journal des scans.",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Occupation courante",
+                    content = @Content(schema = @Schema(implementation = GateOccupancySnapshot.class))),
+            @ApiResponse(responseCode = "401", description = "Utilisateur non authentifié", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Accès refusé", content = @Content)
+    })
+    public ResponseEntity<GateOccupancySnapshot> getOccupancy() {
+        return ResponseEntity.ok(gateOccupancy.snapshot());
+    }
+}
@@ -0,0 +1,109 @@
+package studi.doryanbessiere.jo2024.services.gates;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes a {@link studi.doryanbessiere.jo2024.services.gates.dto.GateDashboardSnapshot} to every connected
+ * supervisor at a fixed rate. Each consumer has at most one send in flight: a slow one simply skips ticks (the next
+ * snapshot supersedes the missed one) and its ring cursor falls behind until it is told how many events it lost.
+ */
+@Slf4j
+@Component
+public class GateDashboardStream {
+
+    public static final String SNAPSHOT_EVENT = "gates";
+
+    private static final class Consumer {
+        private final SseEmitter emitter;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile long cursor;
+
+        private Consumer(SseEmitter emitter, long cursor) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+        }
+    }
+
+    private final GateActivityService activityService;
+    private final Map<SseEmitter, Consumer> consumers = new ConcurrentHashMap<>();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final long timeoutMillis;
+    private final int maxEventsPerTick;
+
+    public GateDashboardStream(GateActivityService activityService,
+                               @Value("${app.gates.dashboard.timeout-ms:1800000}") long timeoutMillis,
+                               @Value("${app.gates.dashboard.max-events-per-tick:100}") int maxEventsPerTick) {
+        this.activityService = activityService;
+        this.timeoutMillis = timeoutMillis;
+        this.maxEventsPerTick = maxEventsPerTick;
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Consumer consumer = new Consumer(emitter, activityService.ring().head());
+        consumers.put(emitter, consumer);
+        emitter.onCompletion(() -> consumers.remove(emitter));
+        emitter.onTimeout(() -> consumers.remove(emitter));
+        emitter.onError(error -> consumers.remove(emitter));
+        sendTo(consumer);
+        return emitter;
+    }
+
+    public int consumerCount() {
+        return consumers.size();
+    }
+
+    @Scheduled(fixedRateString = "${app.gates.dashboard.interval-ms:1000}")
+    public void broadcast() {
+        for (Consumer consumer : consumers.values()) {
+            if (!consumer.sending.compareAndSet(false, true)) {
+                continue;
+            }
+            try {
+                senders.execute(() -> {
+                    try {
+                        sendTo(consumer);
+                    } finally {
+                        consumer.sending.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                consumer.sending.set(false);
+            }
+        }
+    }
+
+    void sendTo(Consumer consumer) {
+        GateEventRing.Batch batch = activityService.ring().readFrom(consumer.cursor, maxEventsPerTick);
+        try {
+            consumer.emitter.send(SseEmitter.event()
+                    .name(SNAPSHOT_EVENT)
+                    .data(activityService.snapshot(batch.events(), batch.dropped()), MediaType.APPLICATION_JSON));
+            consumer.cursor = batch.nextCursor();
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Gate dashboard consumer disconnected: {}", e.getMessage());
+            consumers.remove(consumer.emitter);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+        consumers.keySet().forEach(SseEmitter::complete);
+        consumers.clear();
+    }
+}
@@ -0,0 +1,18 @@
+package studi.doryanbessiere.jo2024.services.gates;
+
+import java.time.Instant;
+
+/**
+ * One scan or validation attempt at a gate, as published by the ticket controller.
+ *
+ * @param offerId   offer of the ticket, {@code null} when the ticket was not found
+ * @param reason    error code for {@link Type#REJECTED} events, {@code null} otherwise
+ */
+public record GateEvent(Type type, String gateId, Long offerId, String offerName, Long ticketId, String reason, Instant at) {
+
+    public enum Type {
+        SCANNED,
+        VALIDATED,
+        REJECTED
+    }
+}
@@ -0,0 +1,78 @@
+package studi.doryanbessiere.jo2024.services.gates;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-size multi-producer ring of {@link GateEvent}s. Producers (gate agents) never wait: they claim a sequence
+ * number and overwrite the oldest slot. Each consumer keeps its own cursor; one that falls more than a full ring
+ * behind is moved forward and told how many events it missed instead of holding producers back.
+ */
+public class GateEventRing {
+
+    private record Slot(long sequence, GateEvent event) {
+    }
+
+    public record Batch(List<GateEvent> events, long nextCursor, long dropped) {
+    }
+
+    private final AtomicReferenceArray<Slot> slots;
+    private final int mask;
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    /**
+     * @param capacity rounded up to the next power of two
+     */
+    public GateEventRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    public long publish(GateEvent event) {
+        long sequence = nextSequence.getAndIncrement();
+        slots.set((int) (sequence & mask), new Slot(sequence, event));
+        return sequence;
+    }
+
+    /**
+     * Cursor a new consumer should start from to only see events published from now on.
+     */
+    public long head() {
+        return nextSequence.get();
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Reads up to {@code max} events starting at {@code cursor}.
+     */
+    public Batch readFrom(long cursor, int max) {
+        long head = nextSequence.get();
+        long dropped = 0;
+        if (head - cursor > capacity()) {
+            dropped = head - capacity() - cursor;
+            cursor = head - capacity();
+        }
+
+        List<GateEvent> events = new ArrayList<>(Math.min(max, (int) Math.max(0, head - cursor)));
+        while (cursor < head && events.size() < max) {
+            Slot slot = slots.get((int) (cursor & mask));
+            if (slot == null || slot.sequence() < cursor) {
+                // Claimed by a producer that has not stored its event yet: resume there on the next read.
+                break;
+            }
+            if (slot.sequence() > cursor) {
+                dropped++;
+            } else {
+                events.add(slot.event());
+            }
+            cursor++;
+        }
+        return new Batch(events, cursor, dropped);
+    }
+}
@@ -0,0 +1,211 @@
+package studi.doryanbessiere.jo2024.services.gates;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import studi.doryanbessiere.jo2024.services.gates.dto.GateOccupancySnapshot;
+import studi.doryanbessiere.jo2024.services.scans.TicketScanEventRepository;
+import studi.doryanbessiere.jo2024.services.tickets.TicketRepository;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongFunction;
+
+/**
+ * Validated tickets per offer and per gate, as {@link TicketIdBitmap}s, so that occupancy is read from memory rather
+ * than counted over {@code tickets}. The entries of a ticket count once, however many times it is recorded.
+ * <p>
+ * Loaded at startup from the {@code USED} tickets, then from the scan journal for the gates, fed by the validations
+ * of this node, and every {@code sync-interval-ms} by the journal rows of the last {@code sync-margin-seconds}, which
+ * brings in the other nodes' validations once their journal is flushed. All access is under this object's monitor: a
+ * write is a few hundred nanoseconds, and a snapshot intersects each offer with each gate.
+ */
+@Slf4j
+@Component
+public class GateOccupancy {
+
+    public static final String MEMORY_GAUGE = "jo2024.gates.occupancy.bytes";
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Paris");
+
+    private final TicketRepository ticketRepository;
+    private final TicketScanEventRepository scanEventRepository;
+    private final boolean enabled;
+    private final int loadBatchSize;
+    private final long syncMarginSeconds;
+    private final Clock clock;
+
+    private final Map<Long, OfferOccupancy> offers = new HashMap<>();
+    private final Map<String, TicketIdBitmap> gates = new HashMap<>();
+    private volatile boolean loaded;
+    private Instant lastSync;
+
+    @Autowired
+    public GateOccupancy(TicketRepository ticketRepository,
+                         TicketScanEventRepository scanEventRepository,
+                         MeterRegistry meterRegistry,
+                         @Value("${app.gates.occupancy.enabled:true}") boolean enabled,
+                         @Value("${app.gates.occupancy.load-batch-size:10000}") int loadBatchSize,
+                         @Value("${app.gates.occupancy.sync-margin-seconds:60}") long syncMarginSeconds) {
+        this(ticketRepository, scanEventRepository, enabled, loadBatchSize, syncMarginSeconds, Clock.systemUTC());
+        Gauge.builder(MEMORY_GAUGE, this, GateOccupancy::sizeInBytes)
+                .description("Heap held by the per-offer and per-gate validated ticket bitmaps")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    GateOccupancy(TicketRepository ticketRepository, TicketScanEventRepository scanEventRepository, boolean enabled,
+                  int loadBatchSize, long syncMarginSeconds, Clock clock) {
+        this.ticketRepository = ticketRepository;
+        this.scanEventRepository = scanEventRepository;
+        this.enabled = enabled;
+        this.loadBatchSize = Math.max(1, loadBatchSize);
+        this.syncMarginSeconds = syncMarginSeconds;
+        this.clock = clock;
+    }
+
+    /**
+     * Walks the {@code USED} tickets, then the journal's validations, {@code load-batch-size} rows per keyset query.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.nanoTime();
+        // Taken before the walk: validations journaled during it are read again by the first sync.
+        Instant loadedAt = clock.instant();
+        int tickets = loadBatches(afterId -> ticketRepository.findUsedAfter(afterId, Limit.of(loadBatchSize)));
+        int events = loadBatches(afterId -> scanEventRepository.findValidatedAfter(afterId, Limit.of(loadBatchSize)));
+        synchronized (this) {
+            lastSync = loadedAt;
+        }
+        loaded = true;
+        log.info("Gate occupancy loaded {} validated tickets and {} journal validations in {} ms", tickets, events,
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Reads back the journal from the previous sync, less the margin for journal flushes and clock drift between nodes.
+     */
+    @Scheduled(fixedDelayString = "${app.gates.occupancy.sync-interval-ms:5000}",
+            initialDelayString = "${app.gates.occupancy.sync-interval-ms:5000}")
+    public void sync() {
+        if (!loaded) {
+            return;
+        }
+        Instant syncedAt = clock.instant();
+        OffsetDateTime since;
+        synchronized (this) {
+            since = OffsetDateTime.ofInstant(lastSync.minusSeconds(syncMarginSeconds), ZONE);
+        }
+        loadBatches(afterId -> scanEventRepository.findValidatedSince(since, afterId, Limit.of(loadBatchSize)));
+        synchronized (this) {
+            lastSync = syncedAt;
+        }
+    }
+
+    private int loadBatches(LongFunction<List<OccupancyRow>> batchAfter) {
+        long afterId = 0;
+        int count = 0;
+        List<OccupancyRow> rows;
+        do {
+            rows = batchAfter.apply(afterId);
+            synchronized (this) {
+                rows.forEach(row -> add(row.ticketId(), row.offerId(), row.entriesAllowed(), row.gateId()));
+            }
+            count += rows.size();
+            if (!rows.isEmpty()) {
+                afterId = rows.get(rows.size() - 1).cursor();
+            }
+        } while (rows.size() == loadBatchSize);
+        return count;
+    }
+
+    /**
+     * Records a ticket this node has just validated.
+     *
+     * @param gateId normalized gate id
+     */
+    public void recordValidation(Long ticketId, Long offerId, int entriesAllowed, String gateId) {
+        if (!enabled || ticketId == null || offerId == null) {
+            return;
+        }
+        synchronized (this) {
+            add(ticketId, offerId, entriesAllowed, gateId);
+        }
+    }
+
+    private void add(Long ticketId, Long offerId, int entriesAllowed, String gateId) {
+        OfferOccupancy offer = offers.computeIfAbsent(offerId, id -> new OfferOccupancy());
+        if (offer.tickets.add(ticketId)) {
+            offer.entries += entriesAllowed;
+        }
+        if (gateId != null) {
+            gates.computeIfAbsent(gateId, id -> new TicketIdBitmap()).add(ticketId);
+        }
+    }
+
+    public synchronized GateOccupancySnapshot snapshot() {
+        List<GateOccupancySnapshot.Offer> counters = new ArrayList<>(offers.size());
+        offers.forEach((offerId, offer) -> {
+            List<GateOccupancySnapshot.Gate> byGate = new ArrayList<>();
+            gates.forEach((gateId, gate) -> {
+                long tickets = offer.tickets.andCardinality(gate);
+                if (tickets > 0) {
+                    byGate.add(new GateOccupancySnapshot.Gate(gateId, tickets));
+                }
+            });
+            byGate.sort(Comparator.comparing(GateOccupancySnapshot.Gate::getGateId));
+            counters.add(GateOccupancySnapshot.Offer.builder()
+                    .offerId(offerId)
+                    .ticketsValidated(offer.tickets.cardinality())
+                    .entries(offer.entries)
+                    .gates(byGate)
+                    .build());
+        });
+        counters.sort(Comparator.comparing(GateOccupancySnapshot.Offer::getOfferId));
+        return GateOccupancySnapshot.builder()
+                .generatedAt(clock.instant())
+                .loaded(loaded)
+                .ticketsValidated(counters.stream().mapToLong(GateOccupancySnapshot.Offer::getTicketsValidated).sum())
+                .entries(counters.stream().mapToLong(GateOccupancySnapshot.Offer::getEntries).sum())
+                .offers(counters)
+                .memoryBytes(sizeInBytes())
+                .build();
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public synchronized long sizeInBytes() {
+        long bytes = 0;
+        for (OfferOccupancy offer : offers.values()) {
+            bytes += offer.tickets.sizeInBytes();
+        }
+        for (TicketIdBitmap gate : gates.values()) {
+            bytes += gate.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    private static final class OfferOccupancy {
+        private final TicketIdBitmap tickets = new TicketIdBitmap();
+        private long entries;
+    }
+}
@@ -0,0 +1,14 @@
+package studi.doryanbessiere.jo2024.services.gates;
+
+/**
+ * A validated ticket, as {@link GateOccupancy} reads it from the tickets or from the scan journal.
+ *
+ * @param cursor keyset position in the source walked: ticket id, or scan event id
+ * @param gateId gate it went through, {@code null} when read from the tickets
+ */
+public record OccupancyRow(Long cursor, Long ticketId, Long offerId, int entriesAllowed, String gateId) {
+
+    public OccupancyRow(Long cursor, Long ticketId, Long offerId, int entriesAllowed) {
+        this(cursor, ticketId, offerId, entriesAllowed, null);
+    }
+}
@@ -0,0 +1,34 @@
+package studi.doryanbessiere.jo2024.services.gates;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count of events over the last {@link #WINDOW_SECONDS} seconds, kept in one bucket per second. Lock-free and
+ * approximate: an increment racing with the reset of a recycled bucket can be lost, which is fine for a dashboard.
+ */
+class RollingCounter {
+
+    static final int WINDOW_SECONDS = 60;
+
+    private final AtomicLongArray counts = new AtomicLongArray(WINDOW_SECONDS);
+    private final AtomicLongArray bucketSeconds = new AtomicLongArray(WINDOW_SECONDS);
+
+    void increment(long epochSecond) {
+        int index = (int) (epochSecond % WINDOW_SECONDS);
+        long stamp = bucketSeconds.get(index);
+        if (stamp != epochSecond && bucketSeconds.compareAndSet(index, stamp, epochSecond)) {
+            counts.set(index, 0);
+        }
+        counts.incrementAndGet(index);
+    }
+
+    long sum(long nowEpochSecond) {
+        long total = 0;
+        for (int i = 0; i < WINDOW_SECONDS; i++) {
+            if (nowEpochSecond - bucketSeconds.get(i) < WINDOW_SECONDS) {
+                total += counts.get(i);
+            }
+        }
+        return total;
+    }
+}
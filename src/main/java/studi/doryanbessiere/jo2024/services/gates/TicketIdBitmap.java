@@ -0,0 +1,228 @@
+package studi.doryanbessiere.jo2024.services.gates;
+
+import java.util.Arrays;
+
+/**
+ * Compressed set of ticket ids in the manner of Roaring bitmaps. Ids are split into chunks of 65 536 by their high
+ * bits; a chunk holds its low 16 bits either as a sorted {@code char} array, 2 bytes per id, or once it passes
+ * {@value #ARRAY_MAX} ids as a 8 KiB bitmap: 80 000 consecutive validated tickets fit in two or three bitmaps, where
+ * a {@code Set<Long>} would take several MiB.
+ * <p>
+ * Membership is a binary search over the chunk keys, a few per million ids, then a bit test or a search in at most
+ * {@value #ARRAY_MAX} values. The cardinality is kept up to date, and intersections walk matching chunks only,
+ * a word at a time between bitmaps. Not thread-safe: {@link GateOccupancy} guards its instances.
+ */
+public final class TicketIdBitmap {
+
+    static final int ARRAY_MAX = 4096;
+
+    private static final int BITMAP_WORDS = (1 << 16) / Long.SIZE;
+
+    private long[] keys = new long[4];
+    private Chunk[] chunks = new Chunk[4];
+    private int size;
+    private long cardinality;
+
+    /**
+     * @return whether the id was not in the set yet
+     */
+    public boolean add(long id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Ticket ids cannot be negative: " + id);
+        }
+        long key = id >>> 16;
+        char low = (char) id;
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index < 0) {
+            index = -index - 1;
+            insertChunk(index, key);
+        }
+        Chunk chunk = chunks[index];
+        int before = chunk.cardinality;
+        chunks[index] = chunk.add(low);
+        if (chunks[index].cardinality == before) {
+            return false;
+        }
+        cardinality++;
+        return true;
+    }
+
+    public boolean contains(long id) {
+        if (id < 0) {
+            return false;
+        }
+        int index = Arrays.binarySearch(keys, 0, size, id >>> 16);
+        return index >= 0 && chunks[index].contains((char) id);
+    }
+
+    public long cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * @return number of ids in both this set and {@code other}, without building the intersection
+     */
+    public long andCardinality(TicketIdBitmap other) {
+        long count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                count += chunks[i++].andCardinality(other.chunks[j++]);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return approximate heap footprint of the chunks, for the supervision gauge
+     */
+    public long sizeInBytes() {
+        long bytes = (long) keys.length * Long.BYTES + (long) chunks.length * Integer.BYTES;
+        for (int i = 0; i < size; i++) {
+            bytes += chunks[i].sizeInBytes();
+        }
+        return bytes;
+    }
+
+    private void insertChunk(int index, long key) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            chunks = Arrays.copyOf(chunks, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(chunks, index, chunks, index + 1, size - index);
+        keys[index] = key;
+        chunks[index] = new ArrayChunk();
+        size++;
+    }
+
+    private abstract static sealed class Chunk permits ArrayChunk, BitmapChunk {
+
+        int cardinality;
+
+        /**
+         * @return this chunk, or the bitmap replacing it once the array is full
+         */
+        abstract Chunk add(char value);
+
+        abstract boolean contains(char value);
+
+        abstract int andCardinality(Chunk other);
+
+        abstract long sizeInBytes();
+    }
+
+    private static final class ArrayChunk extends Chunk {
+
+        private char[] values = new char[4];
+
+        @Override
+        Chunk add(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_MAX) {
+                return toBitmap().add(value);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(cardinality * 2, ARRAY_MAX));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        int andCardinality(Chunk other) {
+            if (other instanceof BitmapChunk bitmap) {
+                return bitmap.andCardinality(this);
+            }
+            ArrayChunk array = (ArrayChunk) other;
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality && j < array.cardinality) {
+                if (values[i] < array.values[j]) {
+                    i++;
+                } else if (values[i] > array.values[j]) {
+                    j++;
+                } else {
+                    count++;
+                    i++;
+                    j++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return (long) values.length * Character.BYTES;
+        }
+
+        private BitmapChunk toBitmap() {
+            BitmapChunk bitmap = new BitmapChunk();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapChunk extends Chunk {
+
+        private final long[] words = new long[BITMAP_WORDS];
+
+        @Override
+        Chunk add(char value) {
+            long word = words[value >>> 6];
+            long bit = 1L << value;
+            if ((word & bit) == 0) {
+                words[value >>> 6] = word | bit;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        int andCardinality(Chunk other) {
+            int count = 0;
+            if (other instanceof BitmapChunk bitmap) {
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    count += Long.bitCount(words[i] & bitmap.words[i]);
+                }
+                return count;
+            }
+            ArrayChunk array = (ArrayChunk) other;
+            for (int i = 0; i < array.cardinality; i++) {
+                if (contains(array.values[i])) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return (long) BITMAP_WORDS * Long.BYTES;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package studi.doryanbessiere.jo2024.services.gates.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Value;
+import studi.doryanbessiere.jo2024.services.gates.GateEvent;
+
+import java.time.Instant;
+import java.util.List;
+
+@Value
+@Builder
+@Schema(description = "Vue temps réel des entrées, calculée en mémoire sans requête en base")
+public class GateDashboardSnapshot {
+
+    Instant generatedAt;
+
+    @Schema(description = "Compteurs par porte")
+    List<Counter> gates;
+
+    @Schema(description = "Compteurs par offre")
+    List<Counter> offers;
+
+    @Schema(description = "Derniers événements depuis l'envoi précédent (bornés)")
+    List<GateEvent> recentEvents;
+
+    @Schema(description = "Événements non transmis à ce client car il a pris trop de retard")
+    long droppedEvents;
+
+    @Value
+    @Builder
+    public static class Counter {
+        String key;
+        String label;
+        long scans;
+        long validations;
+        long rejections;
+        @Schema(description = "Entrées validées sur les 60 dernières secondes", example = "42")
+        long entriesLastMinute;
+    }
+}
@@ -0,0 +1,48 @@
+package studi.doryanbessiere.jo2024.services.gates.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.List;
+
+@Value
+@Builder
+@Schema(description = "Billets validés et entrées par offre et par porte, lus en mémoire sans agrégat en base")
+public class GateOccupancySnapshot {
+
+    Instant generatedAt;
+
+    @Schema(description = "Faux tant que le chargement initial n'est pas terminé : les compteurs sont alors partiels")
+    boolean loaded;
+
+    @Schema(description = "Billets validés, toutes offres confondues", example = "51234")
+    long ticketsValidated;
+
+    @Schema(description = "Personnes entrées, toutes offres confondues (un billet familial compte pour quatre)", example = "98760")
+    long entries;
+
+    @Schema(description = "Compteurs par offre")
+    List<Offer> offers;
+
+    @Schema(description = "Mémoire occupée par les bitmaps, en octets", example = "262144")
+    long memoryBytes;
+
+    @Value
+    @Builder
+    public static class Offer {
+        Long offerId;
+        long ticketsValidated;
+        @Schema(description = "Personnes entrées avec les billets de cette offre", example = "1250")
+        long entries;
+        @Schema(description = "Billets de cette offre validés à chaque porte")
+        List<Gate> gates;
+    }
+
+    @Value
+    public static class Gate {
+        String gateId;
+        long ticketsValidated;
+    }
+}
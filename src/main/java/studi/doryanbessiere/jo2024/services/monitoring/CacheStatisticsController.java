@@ -0,0 +1,43 @@
+package studi.doryanbessiere.jo2024.services.monitoring;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import studi.doryanbessiere.jo2024.common.Routes;
+import studi.doryanbessiere.jo2024.services.monitoring.dto.CacheStatisticsResponse;
+import studi.doryanbessiere.jo2024.shared.security.AdminOnly;
+
+@RestController
+@RequestMapping(Routes.Monitoring.BASE)
+@RequiredArgsConstructor
+@Tag(name = "Supervision", description = "Indicateurs techniques réservés aux administrateurs")
+public class CacheStatisticsController {
+
+    private final CacheStatisticsService cacheStatisticsService;
+
+    @GetMapping(Routes.Monitoring.CACHE)
+    @AdminOnly
+    @Operation(
+            summary = "Statistiques du cache de second niveau",
+            description = "Renvoie les compteurs hit/miss/put globaux et par région du cache Hibernate ainsi que le nombre de requêtes SQL préparées.",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Statistiques courantes",
+                    content = @Content(schema = @Schema(implementation = CacheStatisticsResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Utilisateur non authentifié", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Accès refusé", content = @Content)
+    })
+    public ResponseEntity<CacheStatisticsResponse> getCacheStatistics() {
+        return ResponseEntity.ok(cacheStatisticsService.getStatistics());
+    }
+}
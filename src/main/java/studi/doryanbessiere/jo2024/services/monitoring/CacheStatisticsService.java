@@ -0,0 +1,58 @@
+package studi.doryanbessiere.jo2024.services.monitoring;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+import studi.doryanbessiere.jo2024.services.monitoring.dto.CacheStatisticsResponse;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+@Service
+@RequiredArgsConstructor
+public class CacheStatisticsService {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public CacheStatisticsResponse getStatistics() {
+        Statistics statistics = statistics();
+
+        List<CacheStatisticsResponse.Region> regions = Arrays.stream(statistics.getSecondLevelCacheRegionNames())
+                .sorted()
+                .map(name -> toRegion(name, statistics.getCacheRegionStatistics(name)))
+                .filter(Objects::nonNull)
+                .toList();
+
+        return CacheStatisticsResponse.builder()
+                .prepareStatementCount(statistics.getPrepareStatementCount())
+                .secondLevelCacheHitCount(statistics.getSecondLevelCacheHitCount())
+                .secondLevelCacheMissCount(statistics.getSecondLevelCacheMissCount())
+                .secondLevelCachePutCount(statistics.getSecondLevelCachePutCount())
+                .queryCacheHitCount(statistics.getQueryCacheHitCount())
+                .queryCacheMissCount(statistics.getQueryCacheMissCount())
+                .queryCachePutCount(statistics.getQueryCachePutCount())
+                .regions(regions)
+                .build();
+    }
+
+    public Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private CacheStatisticsResponse.Region toRegion(String name, CacheRegionStatistics region) {
+        if (region == null) {
+            return null;
+        }
+        return CacheStatisticsResponse.Region.builder()
+                .name(name)
+                .hitCount(region.getHitCount())
+                .missCount(region.getMissCount())
+                .putCount(region.getPutCount())
+                .elementCountInMemory(region.getElementCountInMemory())
+                .build();
+    }
+}
@@ -0,0 +1,38 @@
+package studi.doryanbessiere.jo2024.services.monitoring.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+@Builder
+@Schema(description = "Statistiques du cache de second niveau Hibernate depuis le démarrage")
+public class CacheStatisticsResponse {
+
+    @Schema(description = "Requêtes SQL préparées par Hibernate", example = "1520")
+    long prepareStatementCount;
+
+    long secondLevelCacheHitCount;
+    long secondLevelCacheMissCount;
+    long secondLevelCachePutCount;
+
+    long queryCacheHitCount;
+    long queryCacheMissCount;
+    long queryCachePutCount;
+
+    @Schema(description = "Détail par région (entités et requêtes)")
+    List<Region> regions;
+
+    @Value
+    @Builder
+    public static class Region {
+        String name;
+        long hitCount;
+        long missCount;
+        long putCount;
+        @Schema(description = "Entrées présentes en mémoire, -1 si inconnu", example = "42")
+        long elementCountInMemory;
+    }
+}
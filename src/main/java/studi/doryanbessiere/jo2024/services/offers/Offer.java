@@ -1,8 +1,11 @@
 
 package studi.doryanbessiere.jo2024.services.offers;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Getter
@@ -11,6 +14,7 @@ import lombok.*;
 @AllArgsConstructor
 @Builder
 @Table(name = "offers")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "offers")
 public class Offer {
 
     @Id
@@ -35,4 +39,11 @@ public class Offer {
     @Column(nullable = false, columnDefinition = "BOOLEAN DEFAULT TRUE")
     private boolean active;
 
+    /**
+     * Bumped by every write, stock reservations included, so an admin edit never overwrites a concurrent change.
+     */
+    @Version
+    @JsonIgnore
+    private long version;
+
 }
@@ -0,0 +1,100 @@
+package studi.doryanbessiere.jo2024.services.offers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+
+/**
+ * Holds the current {@link OfferCatalogSnapshot}. Local writes rebuild it right after commit; writes made by other
+ * nodes are picked up by polling {@link OfferCatalogVersion}.
+ */
+@Slf4j
+@Component
+public class OfferCatalog {
+
+    private final OfferRepository offerRepository;
+    private final OfferCatalogVersionRepository versionRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private volatile OfferCatalogSnapshot snapshot;
+
+    public OfferCatalog(OfferRepository offerRepository,
+                        OfferCatalogVersionRepository versionRepository,
+                        ObjectMapper objectMapper,
+                        PlatformTransactionManager transactionManager) {
+        this.offerRepository = offerRepository;
+        this.versionRepository = versionRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public OfferCatalogSnapshot current() {
+        OfferCatalogSnapshot current = snapshot;
+        return current != null ? current : refresh();
+    }
+
+    /**
+     * Rebuilds the snapshot from the database. Version and offers are read in the same transaction so the
+     * snapshot never pairs a version with offers from a different commit.
+     */
+    public synchronized OfferCatalogSnapshot refresh() {
+        OfferCatalogSnapshot rebuilt = readOnlyTransaction.execute(status -> OfferCatalogSnapshot.of(
+                versionRepository.findCurrentVersion().orElse(0L),
+                offerRepository.findAll(Sort.by("id")),
+                objectMapper));
+        snapshot = rebuilt;
+        return rebuilt;
+    }
+
+    /**
+     * Adopts a catalogue read back from a warm-restart snapshot, unless the database has moved past its version.
+     *
+     * @return whether the snapshot was adopted; otherwise the next {@link #current()} rebuilds from the database
+     */
+    public synchronized boolean restore(long version, byte[] json) {
+        Long current = readOnlyTransaction.execute(status -> versionRepository.findCurrentVersion().orElse(0L));
+        if (current == null || current != version) {
+            return false;
+        }
+        try {
+            snapshot = OfferCatalogSnapshot.fromJson(version, json, objectMapper);
+            return true;
+        } catch (IOException e) {
+            log.warn("Offer catalogue snapshot unreadable, rebuilding from the database: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onCatalogChanged(OfferCatalogChangedEvent event) {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${app.offers.catalog.poll-interval-ms:5000}",
+            initialDelayString = "${app.offers.catalog.poll-interval-ms:5000}")
+    public void pollVersion() {
+        OfferCatalogSnapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        try {
+            long version = versionRepository.findCurrentVersion().orElse(0L);
+            if (version != current.version()) {
+                log.debug("Offer catalogue version moved from {} to {}, rebuilding snapshot", current.version(), version);
+                refresh();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Offer catalogue version poll failed: {}", e.getMessage());
+        }
+    }
+}
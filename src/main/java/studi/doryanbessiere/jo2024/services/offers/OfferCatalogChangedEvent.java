@@ -0,0 +1,7 @@
+package studi.doryanbessiere.jo2024.services.offers;
+
+/**
+ * Published inside the transaction of every offer write; consumed after commit to rebuild the catalogue snapshot.
+ */
+public record OfferCatalogChangedEvent(Long offerId) {
+}
@@ -0,0 +1,72 @@
+package studi.doryanbessiere.jo2024.services.offers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Immutable view of the offer catalogue: the serialized JSON body and its strong ETag are computed once per
+ * rebuild, so serving {@code GET /offers} never touches the database nor Jackson.
+ *
+ * @param version value of {@link OfferCatalogVersion} the snapshot was built from
+ * @param offers  offers ordered by id
+ * @param json    response body, already serialized with the application's {@link ObjectMapper}
+ * @param etag    quoted strong validator derived from the body bytes, identical on every node
+ */
+public record OfferCatalogSnapshot(long version, List<Offer> offers, byte[] json, String etag) {
+
+    public static OfferCatalogSnapshot of(long version, List<Offer> offers, ObjectMapper objectMapper) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(offers);
+            return new OfferCatalogSnapshot(version, List.copyOf(offers), json, etagOf(json));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize offer catalogue", e);
+        }
+    }
+
+    /**
+     * Rebuilds a snapshot from the body it served, e.g. read back from a warm-restart file.
+     */
+    public static OfferCatalogSnapshot fromJson(long version, byte[] json, ObjectMapper objectMapper) throws IOException {
+        List<Offer> offers = objectMapper.readValue(json, new TypeReference<List<Offer>>() {
+        });
+        return new OfferCatalogSnapshot(version, List.copyOf(offers), json.clone(), etagOf(json));
+    }
+
+    /**
+     * Evaluates an {@code If-None-Match} header (RFC 9110 §13.1.2, weak comparison).
+     */
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String etagOf(byte[] json) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
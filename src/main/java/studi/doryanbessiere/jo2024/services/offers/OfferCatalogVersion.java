@@ -0,0 +1,31 @@
+package studi.doryanbessiere.jo2024.services.offers;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Single-row counter bumped by every catalogue write so that other nodes can detect
+ * a stale in-memory snapshot with one cheap primary-key read.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "offer_catalog_version")
+public class OfferCatalogVersion {
+
+    public static final long SINGLETON_ID = 1L;
+
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private long version;
+}
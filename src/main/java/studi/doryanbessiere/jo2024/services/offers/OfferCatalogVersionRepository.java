@@ -0,0 +1,17 @@
+package studi.doryanbessiere.jo2024.services.offers;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Optional;
+
+public interface OfferCatalogVersionRepository extends JpaRepository<OfferCatalogVersion, Long> {
+
+    @Modifying
+    @Query("update OfferCatalogVersion v set v.version = v.version + 1 where v.id = " + OfferCatalogVersion.SINGLETON_ID)
+    int increment();
+
+    @Query("select v.version from OfferCatalogVersion v where v.id = " + OfferCatalogVersion.SINGLETON_ID)
+    Optional<Long> findCurrentVersion();
+}
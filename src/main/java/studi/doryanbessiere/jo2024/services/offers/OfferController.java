@@ -1,6 +1,7 @@
 package studi.doryanbessiere.jo2024.services.offers;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -8,6 +9,11 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -15,12 +21,13 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import studi.doryanbessiere.jo2024.common.Routes;
 import studi.doryanbessiere.jo2024.shared.security.AdminOnly;
 
-import java.util.List;
+import java.time.Duration;
 
 @RestController
 @RequestMapping(Routes.Offer.BASE)
@@ -29,18 +36,38 @@ import java.util.List;
 public class OfferController {
 
     private final OfferService offerService;
+    private final OfferCatalog offerCatalog;
+
+    @Value("${app.offers.catalog.max-age-seconds:10}")
+    private long catalogMaxAgeSeconds;
 
     @GetMapping
     @Operation(
             summary = "Lister les offres disponibles",
-            description = "Renvoie l'ensemble des offres actives ou inactives pour l'affichage public."
+            description = "Renvoie l'ensemble des offres actives ou inactives pour l'affichage public. "
+                    + "La réponse porte un ETag fort : un GET conditionnel (If-None-Match) renvoie 304 si le catalogue n'a pas changé."
     )
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Liste des offres",
-                    content = @Content(schema = @Schema(implementation = Offer.class)))
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = Offer.class)))),
+            @ApiResponse(responseCode = "304", description = "Catalogue inchangé depuis l'ETag fourni", content = @Content)
     })
-    public ResponseEntity<List<Offer>> getAllOffers() {
-        return ResponseEntity.ok(offerService.getAllOffers());
+    public ResponseEntity<byte[]> getAllOffers(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        OfferCatalogSnapshot snapshot = offerCatalog.current();
+        CacheControl cacheControl = CacheControl.maxAge(Duration.ofSeconds(catalogMaxAgeSeconds)).cachePublic();
+
+        if (snapshot.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(snapshot.etag())
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(snapshot.etag())
+                .cacheControl(cacheControl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(snapshot.json());
     }
 
     @GetMapping("/{id}")
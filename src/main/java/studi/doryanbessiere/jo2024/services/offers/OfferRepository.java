@@ -1,8 +1,7 @@
-
 package studi.doryanbessiere.jo2024.services.offers;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 
-public interface OfferRepository extends JpaRepository<Offer, Long> {
+public interface OfferRepository extends JpaRepository<Offer, Long>, OfferStockUpdates {
     boolean existsByName(String name);
 }
@@ -1,46 +1,72 @@
 package studi.doryanbessiere.jo2024.services.offers;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import studi.doryanbessiere.jo2024.shared.persistence.RetryOnOptimisticLock;
 import java.util.List;
 
 @Service
 @RequiredArgsConstructor
-@Transactional
 public class OfferService {
 
     private final OfferRepository offerRepository;
+    private final OfferCatalogVersionRepository catalogVersionRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
+    @Transactional(readOnly = true)
     public List<Offer> getAllOffers() {
         return offerRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     public Offer getOfferById(Long id) {
         return offerRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Offre non trouvée"));
     }
 
+    @Transactional
     public Offer createOffer(Offer offer) {
         if (offerRepository.existsByName(offer.getName())) {
             throw new RuntimeException("Une offre avec ce nom existe déjà");
         }
-        return offerRepository.save(offer);
+        Offer saved = offerRepository.save(offer);
+        catalogChanged(saved.getId());
+        return saved;
     }
 
+    @Transactional
+    @RetryOnOptimisticLock
     public Offer updateOffer(Long id, Offer updatedOffer) {
         Offer offer = getOfferById(id);
         offer.setName(updatedOffer.getName());
         offer.setDescription(updatedOffer.getDescription());
         offer.setPrice(updatedOffer.getPrice());
         offer.setPersons(updatedOffer.getPersons());
-        return offerRepository.save(offer);
+        Offer saved = offerRepository.save(offer);
+        catalogChanged(saved.getId());
+        return saved;
     }
 
+    @Transactional
+    @RetryOnOptimisticLock
     public void deleteOffer(Long id) {
         if (!offerRepository.existsById(id)) {
             throw new RuntimeException("Offre inexistante");
         }
         offerRepository.deleteById(id);
+        catalogChanged(id);
+    }
+
+    /**
+     * Bumps the shared catalogue version in the same transaction as the write, then lets {@link OfferCatalog}
+     * rebuild its snapshot once the transaction has committed.
+     */
+    private void catalogChanged(Long offerId) {
+        if (catalogVersionRepository.increment() == 0) {
+            catalogVersionRepository.save(new OfferCatalogVersion(OfferCatalogVersion.SINGLETON_ID, 1L));
+        }
+        eventPublisher.publishEvent(new OfferCatalogChangedEvent(offerId));
     }
 }
@@ -0,0 +1,46 @@
+package studi.doryanbessiere.jo2024.services.offers;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reserves and releases offer stock ({@link Offer#getQuantity()}) for a whole cart at once. Offers are updated in id
+ * order, so two carts sharing offers lock their rows in the same order and cannot deadlock.
+ * <p>
+ * Stock changes do not bump the catalogue version: {@link OfferCatalog} may show a stale quantity, the reservation
+ * is what decides.
+ */
+@Service
+@RequiredArgsConstructor
+public class OfferStockService {
+
+    private final OfferRepository offerRepository;
+
+    /**
+     * Takes the stock of every offer of the cart, or none of it: the first offer short of stock rolls the whole
+     * reservation back.
+     *
+     * @param quantitiesByOffer number of units per offer id
+     * @throws IllegalArgumentException when an offer is inactive, unknown or short of stock
+     */
+    @Transactional
+    public void reserve(Map<Long, Integer> quantitiesByOffer) {
+        new TreeMap<>(quantitiesByOffer).forEach((offerId, quantity) -> {
+            if (offerRepository.takeStock(offerId, quantity) == 0) {
+                throw new IllegalArgumentException("Stock insuffisant ou offre indisponible : " + offerId);
+            }
+        });
+    }
+
+    /**
+     * Gives back stock taken by {@link #reserve} for a checkout that will never be paid.
+     */
+    @Transactional
+    public void release(Map<Long, Integer> quantitiesByOffer) {
+        new TreeMap<>(quantitiesByOffer).forEach(offerRepository::returnStock);
+    }
+}
@@ -0,0 +1,19 @@
+package studi.doryanbessiere.jo2024.services.offers;
+
+/**
+ * Stock changes of {@link OfferRepository}, written in plain JDBC: a JPQL bulk update would make Hibernate drop the
+ * whole {@code offers} second-level cache region on every checkout. Only the changed offer is evicted instead.
+ */
+public interface OfferStockUpdates {
+
+    /**
+     * Takes {@code quantity} units of stock in one conditional UPDATE, so two concurrent checkouts can never both
+     * take the last units. The offer's version is bumped, so an admin edit loaded before the reservation cannot write
+     * the old quantity back.
+     *
+     * @return 1 when the stock was taken, 0 when the offer is inactive, unknown or short of stock
+     */
+    int takeStock(Long id, int quantity);
+
+    int returnStock(Long id, int quantity);
+}
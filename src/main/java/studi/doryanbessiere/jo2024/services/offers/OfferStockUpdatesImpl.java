@@ -0,0 +1,56 @@
+package studi.doryanbessiere.jo2024.services.offers;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Runs on the JPA transaction's connection. The entry is evicted at once, then again once the transaction completes,
+ * in case a concurrent reader cached the row as it was before the commit.
+ */
+class OfferStockUpdatesImpl implements OfferStockUpdates {
+
+    private static final String TAKE_SQL = """
+            update offers set quantity = quantity - ?, version = version + 1
+            where id = ? and active = true and quantity >= ?
+            """;
+    private static final String RETURN_SQL = """
+            update offers set quantity = quantity + ?, version = version + 1
+            where id = ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    OfferStockUpdatesImpl(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public int takeStock(Long id, int quantity) {
+        return evicting(id, jdbcTemplate.update(TAKE_SQL, quantity, id, quantity));
+    }
+
+    @Override
+    public int returnStock(Long id, int quantity) {
+        return evicting(id, jdbcTemplate.update(RETURN_SQL, quantity, id));
+    }
+
+    private int evicting(Long id, int updated) {
+        if (updated == 0) {
+            return 0;
+        }
+        entityManagerFactory.getCache().evict(Offer.class, id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    entityManagerFactory.getCache().evict(Offer.class, id);
+                }
+            });
+        }
+        return updated;
+    }
+}
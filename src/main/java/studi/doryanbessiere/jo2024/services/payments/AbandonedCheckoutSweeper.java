@@ -0,0 +1,72 @@
+package studi.doryanbessiere.jo2024.services.payments;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Cancels the {@code PENDING} transactions whose checkout session has expired at Stripe without a webhook settling
+ * them, typically because the node stopped between the gateway call and the save of the session id: nothing else
+ * would give their stock back. The margin leaves Stripe time to deliver a late {@code checkout.session.completed}.
+ */
+@Slf4j
+@Component
+public class AbandonedCheckoutSweeper {
+
+    private final TransactionRepository transactionRepository;
+    private final PaymentService paymentService;
+    private final Duration margin;
+    private final int batchSize;
+    private final Clock clock;
+
+    @Autowired
+    public AbandonedCheckoutSweeper(TransactionRepository transactionRepository, PaymentService paymentService,
+                                    @Value("${app.payments.checkout.abandoned-margin-minutes:15}") long marginMinutes,
+                                    @Value("${app.payments.checkout.sweep-batch-size:100}") int batchSize) {
+        this(transactionRepository, paymentService, marginMinutes, batchSize, Clock.systemDefaultZone());
+    }
+
+    AbandonedCheckoutSweeper(TransactionRepository transactionRepository, PaymentService paymentService,
+                             long marginMinutes, int batchSize, Clock clock) {
+        if (marginMinutes < 0 || batchSize < 1) {
+            throw new IllegalArgumentException(
+                    "app.payments.checkout.abandoned-margin-minutes doit être positive et sweep-batch-size au moins 1");
+        }
+        this.transactionRepository = transactionRepository;
+        this.paymentService = paymentService;
+        this.margin = Duration.ofMinutes(marginMinutes);
+        this.batchSize = batchSize;
+        this.clock = clock;
+    }
+
+    /**
+     * Walks the abandoned transactions by id, one short database transaction per cancellation; a transaction settled
+     * by a webhook in the meantime is left as it is.
+     */
+    @Scheduled(fixedDelayString = "${app.payments.checkout.sweep-interval-ms:60000}")
+    public void sweep() {
+        OffsetDateTime createdBefore = OffsetDateTime.now(clock).minus(paymentService.sessionTtl()).minus(margin);
+        long afterId = 0;
+        int cancelled = 0;
+        List<Long> ids;
+        do {
+            ids = transactionRepository.findPendingIdsCreatedBefore(createdBefore, afterId, Limit.of(batchSize));
+            for (Long id : ids) {
+                paymentService.cancelCheckout(id);
+                afterId = id;
+                cancelled++;
+            }
+        } while (ids.size() == batchSize);
+        if (cancelled > 0) {
+            log.info("Cancelled {} abandoned checkouts created before {}", cancelled, createdBefore);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package studi.doryanbessiere.jo2024.services.payments;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Open checkout sessions of this node, by customer and cart, so a customer clicking "Pay" again or coming back from
+ * the cancel page is sent to the session already open instead of a new one. A session is only handed out while more
+ * than {@code app.payments.checkout.reuse-margin-seconds} remain before it expires; the webhook drops it as soon as
+ * it settles or expires. Callers still check the transaction is {@code PENDING}, since the webhook may have reached
+ * another node.
+ */
+@Component
+public class OpenCheckoutSessions {
+
+    private static final int EVICTION_PERIOD_MASK = 0x3FF;
+
+    private final Map<String, OpenSession> byCart = new ConcurrentHashMap<>();
+    private final Map<String, String> cartBySession = new ConcurrentHashMap<>();
+    private final AtomicLong registrations = new AtomicLong();
+    private final long reuseMarginSeconds;
+    private final Clock clock;
+
+    @Autowired
+    public OpenCheckoutSessions(@Value("${app.payments.checkout.reuse-margin-seconds:300}") long reuseMarginSeconds) {
+        this(reuseMarginSeconds, Clock.systemUTC());
+    }
+
+    OpenCheckoutSessions(long reuseMarginSeconds, Clock clock) {
+        this.reuseMarginSeconds = reuseMarginSeconds;
+        this.clock = clock;
+    }
+
+    /**
+     * @param cartKey customer and cart, as built by {@link #cartKey}
+     * @return the open session for this cart, if it still has time left to be paid
+     */
+    public Optional<OpenSession> find(String cartKey) {
+        OpenSession session = byCart.get(cartKey);
+        if (session == null) {
+            return Optional.empty();
+        }
+        if (!clock.instant().plusSeconds(reuseMarginSeconds).isBefore(session.expiresAt())) {
+            invalidate(session.sessionId());
+            return Optional.empty();
+        }
+        return Optional.of(session);
+    }
+
+    public void register(String cartKey, OpenSession session) {
+        if ((registrations.incrementAndGet() & EVICTION_PERIOD_MASK) == 0) {
+            Instant now = clock.instant();
+            byCart.values().stream()
+                    .filter(open -> !now.isBefore(open.expiresAt()))
+                    .map(OpenSession::sessionId)
+                    .toList()
+                    .forEach(this::invalidate);
+        }
+        OpenSession previous = byCart.put(cartKey, session);
+        if (previous != null) {
+            cartBySession.remove(previous.sessionId());
+        }
+        cartBySession.put(session.sessionId(), cartKey);
+    }
+
+    /**
+     * Forgets {@code sessionId}, once paid, failed or expired.
+     */
+    public void invalidate(String sessionId) {
+        String cartKey = cartBySession.remove(sessionId);
+        if (cartKey != null) {
+            byCart.computeIfPresent(cartKey, (key, open) -> open.sessionId().equals(sessionId) ? null : open);
+        }
+    }
+
+    int size() {
+        return byCart.size();
+    }
+
+    /**
+     * @param cart number of tickets per offer id; two carts with the same lines in the same order share a key
+     */
+    public static String cartKey(Long customerId, Map<Long, Integer> cart) {
+        return customerId + ":" + cart;
+    }
+
+    public record OpenSession(String sessionId, String url, Long transactionId, Instant expiresAt) {
+    }
+}
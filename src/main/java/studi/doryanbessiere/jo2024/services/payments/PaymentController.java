@@ -2,6 +2,7 @@ package studi.doryanbessiere.jo2024.services.payments;
 
 import com.stripe.model.checkout.Session;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -10,10 +11,16 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import studi.doryanbessiere.jo2024.common.Routes;
+import studi.doryanbessiere.jo2024.common.exceptions.ConflictException;
 import studi.doryanbessiere.jo2024.services.payments.dto.CreateCheckoutRequest;
+import studi.doryanbessiere.jo2024.shared.JwtService;
+import studi.doryanbessiere.jo2024.shared.idempotency.IdempotencyService;
 import studi.doryanbessiere.jo2024.shared.security.CustomerOnly;
 
 import java.util.Map;
@@ -26,11 +33,17 @@ public class PaymentController {
 
     private final PaymentService paymentService;
     private final TransactionRepository transactionRepository;
+    private final PaymentStatusRegistry paymentStatusRegistry;
+    private final IdempotencyService idempotencyService;
+    private final JwtService jwtService;
 
     @Operation(
             summary = "Créer une session de paiement Stripe",
             description = """
-                    Ce point d'entrée permet à un client authentifié de créer une session de paiement Stripe pour une offre donnée.
+                    Ce point d'entrée permet à un client authentifié de créer une session de paiement Stripe pour une offre donnée,
+                    en une ou plusieurs places (`quantity`, 1 à 10), ou pour un panier de plusieurs offres (`items`, 10 lignes
+                    au maximum) réglé en une seule session : un billet est émis par place une fois le paiement confirmé.
+                    Le stock de toutes les offres du panier est réservé en une fois ; si une offre manque de stock, rien n'est réservé.
                     Une URL de redirection est renvoyée afin que le client puisse procéder au paiement sur la page Stripe sécurisée.
                     """,
             security = @SecurityRequirement(name = "bearerAuth"),
@@ -43,23 +56,36 @@ public class PaymentController {
                                               "session_id": "cs_test_abc123..."
                                             }
                                             """))),
-                    @ApiResponse(responseCode = "400", description = "Requête invalide (offre inexistante ou paramètre manquant)"),
+                    @ApiResponse(responseCode = "400", description = "Requête invalide (offre inexistante, stock insuffisant ou paramètre manquant)"),
                     @ApiResponse(responseCode = "401", description = "Utilisateur non authentifié"),
+                    @ApiResponse(responseCode = "409", description = "Une requête avec la même clé d'idempotence est encore en cours"),
                     @ApiResponse(responseCode = "500", description = "Erreur interne du serveur Stripe ou application")
             }
     )
     @PostMapping(Routes.Payment.CHECKOUT)
     @CustomerOnly
     public ResponseEntity<?> createCheckout(@Valid @RequestBody CreateCheckoutRequest request,
-                                            @RequestHeader("Authorization") String authorizationHeader) {
+                                            @RequestHeader("Authorization") String authorizationHeader,
+                                            @Parameter(description = "Clé choisie par le client pour rejouer une tentative sans double paiement")
+                                            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
         try {
-            Session session = paymentService.createCheckoutSession(request.getOfferId(), authorizationHeader);
-            return ResponseEntity.ok(Map.of(
-                    "checkout_url", session.getUrl(),
-                    "session_id", session.getId()
-            ));
+            Map<Long, Integer> cart = request.toCart();
+            String customerEmail = jwtService.extractSubject(authorizationHeader.substring(7));
+            IdempotencyService.Result result = idempotencyService.execute("checkout:" + customerEmail, idempotencyKey,
+                    cart.toString(), () -> {
+                        Session session = paymentService.createCheckoutSession(cart, authorizationHeader, idempotencyKey);
+                        return Map.of(
+                                "checkout_url", session.getUrl(),
+                                "session_id", session.getId()
+                        );
+                    });
+            return ResponseEntity.ok()
+                    .header(IdempotencyService.REPLAYED_HEADER, String.valueOf(result.replayed()))
+                    .body(result.response());
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (ConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
         }
@@ -95,4 +121,30 @@ public class PaymentController {
                         "error", "Aucune transaction trouvée pour cet identifiant."
                 )));
     }
+
+    @Operation(
+            summary = "Suivre le statut d'une transaction en temps réel (SSE)",
+            description = """
+                    Flux `text/event-stream` remplaçant le polling de `/payments/status/{session_id}`.
+                    Un événement `status` est envoyé immédiatement puis à chaque changement ; le flux se termine dès que
+                    le paiement est `PAID` ou `FAILED`. Pendant l'attente, le nœud ne fait qu'une requête groupée par
+                    intervalle de réconciliation (5 s par défaut) pour toutes les sessions qu'il suit, quel que soit le
+                    nombre de clients connectés.
+                    """,
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Flux d'événements ouvert",
+                            content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE,
+                                    schema = @Schema(example = """
+                                            event:status
+                                            data:{"session_id":"cs_test_abc123...","status":"PAID"}
+                                            """))),
+                    @ApiResponse(responseCode = "404", description = "Aucune transaction trouvée pour cet identifiant")
+            }
+    )
+    @GetMapping(value = Routes.Payment.STATUS_STREAM, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamTransactionStatus(@PathVariable("session_id") String session_id) {
+        return transactionRepository.findByStripeSessionId(session_id)
+                .map(transaction -> ResponseEntity.ok(paymentStatusRegistry.subscribe(session_id, transaction.getStatus())))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
 }
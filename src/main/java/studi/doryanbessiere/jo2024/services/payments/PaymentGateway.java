@@ -0,0 +1,24 @@
+package studi.doryanbessiere.jo2024.services.payments;
+
+import com.stripe.exception.StripeException;
+import com.stripe.model.checkout.Session;
+import com.stripe.param.checkout.SessionCreateParams;
+
+/**
+ * Creates the hosted checkout session for a pending transaction, and expires it when the transaction could not record
+ * it. The Stripe implementation is the only one shipped; the seam lets the load-test harness replace the remote call
+ * with an in-process fake.
+ */
+public interface PaymentGateway {
+
+    /**
+     * @param idempotencyKey sent with the request so the gateway creates one session per key whatever the number of
+     *                       network retries; {@code null} when the client sent none
+     */
+    Session createCheckoutSession(SessionCreateParams params, String idempotencyKey) throws StripeException;
+
+    /**
+     * Closes an open session so it can no longer be paid.
+     */
+    void expireCheckoutSession(String sessionId) throws StripeException;
+}
@@ -2,81 +2,330 @@ package studi.doryanbessiere.jo2024.services.payments;
 
 import com.stripe.model.checkout.Session;
 import com.stripe.param.checkout.SessionCreateParams;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.annotation.NewSpan;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import studi.doryanbessiere.jo2024.services.customers.Customer;
 import studi.doryanbessiere.jo2024.services.customers.CustomerAuthService;
 import studi.doryanbessiere.jo2024.services.offers.Offer;
 import studi.doryanbessiere.jo2024.services.offers.OfferRepository;
+import studi.doryanbessiere.jo2024.services.offers.OfferStockService;
+import studi.doryanbessiere.jo2024.services.payments.dto.CreateCheckoutRequest;
+import studi.doryanbessiere.jo2024.shared.datasource.ReadYourWritesTracker;
+import studi.doryanbessiere.jo2024.shared.persistence.RetryOnOptimisticLock;
+import studi.doryanbessiere.jo2024.shared.tracing.TracePropagation;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class PaymentService {
 
+    static final String STAGE_TIMER = "jo2024.payment.checkout.stage";
+    static final String REUSED_COUNTER = "jo2024.payment.checkout.reused";
+    private static final String SESSION_TTL_PROPERTY = "app.payments.checkout.session-ttl-minutes";
+    static final long MIN_SESSION_TTL_MINUTES = 30;
+    static final long MAX_SESSION_TTL_MINUTES = 1440;
+    /**
+     * Kept away from Stripe's bounds, which it checks against its own clock once the request arrives: a session asked
+     * for exactly 30 minutes ahead would be refused after a slow call or a small clock drift.
+     */
+    static final Duration SESSION_TTL_MARGIN = Duration.ofSeconds(60);
+    private static final int OFFER_NAME_LENGTH = 255;
+
     private final OfferRepository offerRepository;
+    private final OfferStockService offerStockService;
     private final TransactionRepository transactionRepository;
     private final CustomerAuthService customerAuthService;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final PaymentGateway paymentGateway;
+    private final MeterRegistry meterRegistry;
+    private final TracePropagation tracePropagation;
+    private final TransactionTemplate transactionTemplate;
+    private final OpenCheckoutSessions openCheckoutSessions;
 
     private final Environment env;
 
-    public Session createCheckoutSession(Long offerId, String authorizationHeader) throws Exception {
-        Optional<Offer> offerOpt = offerRepository.findById(offerId);
-        if (offerOpt.isEmpty()) {
-            throw new IllegalArgumentException("Offre non trouvée.");
+    private Duration sessionTtl;
+
+    /**
+     * Refuses to start with a TTL Stripe would reject on every checkout, then moves it inside the margin.
+     */
+    @PostConstruct
+    void initSessionTtl() {
+        long minutes = env.getProperty(SESSION_TTL_PROPERTY, Long.class, MIN_SESSION_TTL_MINUTES);
+        if (minutes < MIN_SESSION_TTL_MINUTES || minutes > MAX_SESSION_TTL_MINUTES) {
+            throw new IllegalArgumentException(SESSION_TTL_PROPERTY + " doit être compris entre "
+                    + MIN_SESSION_TTL_MINUTES + " et " + MAX_SESSION_TTL_MINUTES + " minutes");
         }
+        Duration lowest = Duration.ofMinutes(MIN_SESSION_TTL_MINUTES).plus(SESSION_TTL_MARGIN);
+        Duration highest = Duration.ofMinutes(MAX_SESSION_TTL_MINUTES).minus(SESSION_TTL_MARGIN);
+        Duration ttl = Duration.ofMinutes(minutes);
+        sessionTtl = ttl.compareTo(lowest) < 0 ? lowest : ttl.compareTo(highest) > 0 ? highest : ttl;
+    }
+
+    /**
+     * Opens one gateway session for a whole cart, or returns the one still open for the same customer and cart
+     * ({@link OpenCheckoutSessions}). Stock for every line is taken and the {@code PENDING} transaction
+     * with its lines is written in the same database transaction, before the gateway is called; if the gateway fails,
+     * or the session id cannot be recorded afterwards, the stock is given back and the transaction marked
+     * {@code FAILED}. A crash in between is left to {@link AbandonedCheckoutSweeper}.
+     *
+     * @param cart           number of tickets per offer id, in the order the lines should be shown and issued
+     * @param idempotencyKey client {@code Idempotency-Key}, {@code null} if none; forwarded to the gateway together
+     *                       with the transaction id, so a retry after a failed attempt never reuses a gateway key
+     *                       with different parameters
+     */
+    @Timed(value = "jo2024.payment.checkout", description = "Checkout session creation, end to end")
+    @NewSpan("checkout.create")
+    public Session createCheckoutSession(Map<Long, Integer> cart, String authorizationHeader,
+                                         String idempotencyKey) throws Exception {
+        if (cart.isEmpty() || cart.size() > CreateCheckoutRequest.MAX_ITEMS) {
+            throw new IllegalArgumentException("Le panier doit contenir entre 1 et " + CreateCheckoutRequest.MAX_ITEMS + " offres.");
+        }
+        cart.forEach((offerId, quantity) -> {
+            if (offerId == null || quantity < 1 || quantity > CreateCheckoutRequest.MAX_QUANTITY) {
+                throw new IllegalArgumentException("Quantité invalide pour l'offre " + offerId
+                        + " (1 à " + CreateCheckoutRequest.MAX_QUANTITY + " billets).");
+            }
+        });
 
         String token = authorizationHeader.substring(7);
         Customer customer = customerAuthService.getAuthenticatedCustomer(token);
 
-        Offer offer = offerOpt.get();
+        String cartKey = OpenCheckoutSessions.cartKey(customer.getId(), cart);
+        Optional<Session> open = reuseOpenSession(cartKey);
+        if (open.isPresent()) {
+            meterRegistry.counter(REUSED_COUNTER).increment();
+            return open.get();
+        }
 
-        // Create transaction with PENDING status
-        Transaction transaction = transactionRepository.save(
-                Transaction.builder()
-                        .offerName(offer.getName())
-                        .offerId(offer.getId())
-                        .amount(offer.getPrice())
-                        .customer(customer)
-                        .status(Transaction.TransactionStatus.PENDING)
-                        .build()
-        );
+        long databaseStart = System.nanoTime();
+        Map<Long, Offer> offers = offerRepository.findAllById(cart.keySet()).stream()
+                .collect(Collectors.toMap(Offer::getId, Function.identity()));
+        if (offers.size() != cart.size()) {
+            throw new IllegalArgumentException("Offre non trouvée.");
+        }
+        // Stock and the PENDING transaction commit together: a checkout never holds stock it did not record.
+        Transaction transaction = transactionTemplate.execute(status -> {
+            offerStockService.reserve(cart);
+            return transactionRepository.save(newTransaction(customer, cart, offers));
+        });
+        long databaseNanos = System.nanoTime() - databaseStart;
 
         String frontendUrl = env.getProperty("APP_FRONTEND_URL", "http://localhost:5173");
         String host = frontendUrl.endsWith("/") ? frontendUrl.substring(0, frontendUrl.length() - 1) : frontendUrl;
 
-        SessionCreateParams params = SessionCreateParams.builder()
+        // Short-lived sessions: an abandoned cart expires, and its stock is released, within the TTL.
+        Instant expiresAt = Instant.now().plus(sessionTtl);
+        SessionCreateParams.Builder params = SessionCreateParams.builder()
                 .setMode(SessionCreateParams.Mode.PAYMENT)
+                .setExpiresAt(expiresAt.getEpochSecond())
                 .setSuccessUrl(host+"/account/success?session_id={CHECKOUT_SESSION_ID}")
                 .setCancelUrl(host+"/account/cancel")
                 .setCustomerEmail(customer.getEmail())
-                .addLineItem(
-                        SessionCreateParams.LineItem.builder()
-                                .setQuantity(1L)
-                                .setPriceData(
-                                        SessionCreateParams.LineItem.PriceData.builder()
-                                                .setCurrency("eur")
-                                                .setUnitAmount((long) (offer.getPrice() * 100))
-                                                .setProductData(
-                                                        SessionCreateParams.LineItem.PriceData.ProductData.builder()
-                                                                .setName(offer.getName())
-                                                                .setDescription(offer.getDescription())
-                                                                .build()
-                                                )
-                                                .build()
-                                )
-                                .build()
-                )
                 .putMetadata("transaction_id", String.valueOf(transaction.getId()))
-                .build();
+                // Lets the webhook span continue this trace once Stripe calls back.
+                .putAllMetadata(tracePropagation.currentContext());
+        for (TransactionItem item : transaction.getItems()) {
+            Offer offer = offers.get(item.getOfferId());
+            params.addLineItem(
+                    SessionCreateParams.LineItem.builder()
+                            .setQuantity((long) item.getQuantity())
+                            .setPriceData(
+                                    SessionCreateParams.LineItem.PriceData.builder()
+                                            .setCurrency("eur")
+                                            .setUnitAmount(Math.round(item.getUnitPrice() * 100))
+                                            .setProductData(
+                                                    SessionCreateParams.LineItem.PriceData.ProductData.builder()
+                                                            .setName(item.getOfferName())
+                                                            .setDescription(offer.getDescription())
+                                                            .build()
+                                            )
+                                            .build()
+                            )
+                            .build()
+            );
+        }
 
-        Session session = Session.create(params);
+        Timer.Sample gatewaySample = Timer.start(meterRegistry);
+        Session session;
+        try {
+            String gatewayKey = idempotencyKey == null ? null : idempotencyKey + "-" + transaction.getId();
+            session = paymentGateway.createCheckoutSession(params.build(), gatewayKey);
+        } catch (Exception e) {
+            transactionTemplate.executeWithoutResult(status -> cancelCheckout(transaction.getId()));
+            throw e;
+        } finally {
+            gatewaySample.stop(stageTimer("gateway"));
+        }
 
+        databaseStart = System.nanoTime();
         transaction.setStripeSessionId(session.getId());
-        transactionRepository.save(transaction);
+        try {
+            transactionRepository.save(transaction);
+        } catch (RuntimeException e) {
+            abandonSession(transaction.getId(), session.getId());
+            throw e;
+        }
+        databaseNanos += System.nanoTime() - databaseStart;
+        stageTimer("database").record(databaseNanos, TimeUnit.NANOSECONDS);
+        readYourWritesTracker.recordWrite(customer.getEmail());
+        openCheckoutSessions.register(cartKey, new OpenCheckoutSessions.OpenSession(session.getId(), session.getUrl(),
+                transaction.getId(), session.getExpiresAt() != null ? Instant.ofEpochSecond(session.getExpiresAt()) : expiresAt));
 
         return session;
     }
+
+    /**
+     * Undoes a checkout whose session id could not be saved: the session is expired so it can no longer be paid, and
+     * the transaction gives its stock back. Either step may fail as well when the database is down; the sweeper then
+     * cancels the transaction once the session has expired on its own.
+     */
+    private void abandonSession(Long transactionId, String sessionId) {
+        try {
+            paymentGateway.expireCheckoutSession(sessionId);
+        } catch (Exception e) {
+            log.warn("Could not expire checkout session {}: {}", sessionId, e.getMessage());
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> cancelCheckout(transactionId));
+        } catch (RuntimeException e) {
+            log.warn("Could not cancel transaction {}: {}", transactionId, e.getMessage());
+        }
+    }
+
+    /**
+     * @return the session already open for this customer and cart, as long as its transaction is still
+     * {@code PENDING}: one primary-key read instead of a gateway call and a new transaction
+     */
+    private Optional<Session> reuseOpenSession(String cartKey) {
+        return openCheckoutSessions.find(cartKey).flatMap(open -> {
+            boolean pending = transactionRepository.findById(open.transactionId())
+                    .filter(transaction -> transaction.getStatus() == Transaction.TransactionStatus.PENDING)
+                    .filter(transaction -> open.sessionId().equals(transaction.getStripeSessionId()))
+                    .isPresent();
+            if (!pending) {
+                openCheckoutSessions.invalidate(open.sessionId());
+                return Optional.empty();
+            }
+            Session session = new Session();
+            session.setId(open.sessionId());
+            session.setUrl(open.url());
+            session.setExpiresAt(open.expiresAt().getEpochSecond());
+            session.setMetadata(Map.of("transaction_id", String.valueOf(open.transactionId())));
+            return Optional.of(session);
+        });
+    }
+
+    /**
+     * Marks a checkout that will never be paid {@code FAILED} and puts the stock of its lines back on sale. Does
+     * nothing once the transaction has left {@code PENDING}, so the stock is released once.
+     */
+    @Transactional
+    @RetryOnOptimisticLock
+    public void cancelCheckout(Long transactionId) {
+        transactionRepository.findById(transactionId)
+                .filter(transaction -> transaction.getStatus() == Transaction.TransactionStatus.PENDING)
+                .ifPresent(this::failAndReleaseStock);
+    }
+
+    /**
+     * Moves the transaction of {@code sessionId} to the status reported by a Stripe webhook, giving its stock back
+     * when a pending checkout fails. Stripe may deliver two events of the same session at once: the second commit
+     * then fails on the transaction's version and is re-run against the status the first one wrote.
+     *
+     * @param transactionId {@code transaction_id} of the session metadata, {@code null} when absent: finds the
+     *                      transaction when the checkout never recorded its session id, which is then recorded
+     * @return the id of the transaction, empty when no transaction has this session id
+     */
+    @Transactional
+    @RetryOnOptimisticLock
+    public Optional<Long> applyWebhookStatus(String sessionId, Long transactionId,
+                                                     Transaction.TransactionStatus status) {
+        return transactionRepository.findByStripeSessionId(sessionId)
+                .or(() -> Optional.ofNullable(transactionId)
+                        .flatMap(transactionRepository::findById)
+                        .filter(transaction -> transaction.getStripeSessionId() == null))
+                .map(transaction -> {
+                    transaction.setStripeSessionId(sessionId);
+                    if (status == Transaction.TransactionStatus.FAILED
+                            && transaction.getStatus() == Transaction.TransactionStatus.PENDING) {
+                        // The cart will never be paid: its stock goes back on sale.
+                        failAndReleaseStock(transaction);
+                    } else {
+                        transaction.setStatus(status);
+                    }
+                    return transaction.getId();
+                });
+    }
+
+    /**
+     * How long a checkout session stays open at Stripe, once moved inside its bounds.
+     */
+    public Duration sessionTtl() {
+        return sessionTtl;
+    }
+
+    private void failAndReleaseStock(Transaction transaction) {
+        transaction.setStatus(Transaction.TransactionStatus.FAILED);
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (TransactionItem item : transaction.getItems()) {
+            quantities.merge(item.getOfferId(), item.getQuantity(), Integer::sum);
+        }
+        offerStockService.release(quantities);
+    }
+
+    private static Transaction newTransaction(Customer customer, Map<Long, Integer> cart, Map<Long, Offer> offers) {
+        Transaction transaction = Transaction.builder()
+                .customer(customer)
+                .status(Transaction.TransactionStatus.PENDING)
+                .build();
+        double amount = 0;
+        int quantity = 0;
+        StringJoiner names = new StringJoiner(" + ");
+        for (Map.Entry<Long, Integer> line : cart.entrySet()) {
+            Offer offer = offers.get(line.getKey());
+            transaction.addItem(TransactionItem.builder()
+                    .offerId(offer.getId())
+                    .offerName(offer.getName())
+                    .unitPrice(offer.getPrice())
+                    .quantity(line.getValue())
+                    .entriesAllowed(Math.max(1, offer.getPersons()))
+                    .build());
+            amount += offer.getPrice() * line.getValue();
+            quantity += line.getValue();
+            names.add(offer.getName());
+        }
+        String offerName = names.toString();
+        transaction.setOfferId(cart.keySet().iterator().next());
+        transaction.setOfferName(offerName.length() > OFFER_NAME_LENGTH ? offerName.substring(0, OFFER_NAME_LENGTH) : offerName);
+        transaction.setAmount(amount);
+        transaction.setQuantity(quantity);
+        return transaction;
+    }
+
+    private Timer stageTimer(String stage) {
+        return Timer.builder(STAGE_TIMER)
+                .description("Checkout time spent in the database or waiting for the payment gateway")
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
 }
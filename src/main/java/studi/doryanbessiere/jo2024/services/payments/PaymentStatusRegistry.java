@@ -0,0 +1,123 @@
+package studi.doryanbessiere.jo2024.services.payments;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-memory subscriptions of clients waiting for a checkout session to settle. The webhook notifies local
+ * subscribers directly; subscribers connected to another node are caught by {@link #reconcile()}, one batched
+ * query per interval for all sessions waiting on this node, instead of one query per client poll.
+ */
+@Slf4j
+@Component
+public class PaymentStatusRegistry {
+
+    public static final String STATUS_EVENT = "status";
+
+    private static final int RECONCILE_BATCH_SIZE = 500;
+
+    private final Map<String, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    private final TransactionRepository transactionRepository;
+    private final long timeoutMillis;
+
+    public PaymentStatusRegistry(TransactionRepository transactionRepository,
+                                 @Value("${app.payments.status-stream.timeout-ms:120000}") long timeoutMillis) {
+        this.transactionRepository = transactionRepository;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Opens a stream for {@code sessionId}. The current status is sent immediately; the stream completes as soon as
+     * the status is final, or after the timeout (the browser's EventSource then reconnects).
+     */
+    public SseEmitter subscribe(String sessionId, Transaction.TransactionStatus currentStatus) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        if (isFinal(currentStatus)) {
+            send(sessionId, emitter, currentStatus);
+            emitter.complete();
+            return emitter;
+        }
+
+        List<SseEmitter> emitters = subscribers.computeIfAbsent(sessionId, key -> new CopyOnWriteArrayList<>());
+        emitters.add(emitter);
+        Runnable unsubscribe = () -> unsubscribe(sessionId, emitter);
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+
+        send(sessionId, emitter, currentStatus);
+        return emitter;
+    }
+
+    /**
+     * Pushes {@code status} to every local subscriber of {@code sessionId}, closing their streams when it is final.
+     */
+    public void publish(String sessionId, Transaction.TransactionStatus status) {
+        List<SseEmitter> emitters = isFinal(status) ? subscribers.remove(sessionId) : subscribers.get(sessionId);
+        if (emitters == null) {
+            return;
+        }
+        for (SseEmitter emitter : emitters) {
+            if (send(sessionId, emitter, status) && isFinal(status)) {
+                emitter.complete();
+            }
+        }
+    }
+
+    public int subscriberCount() {
+        return subscribers.values().stream().mapToInt(List::size).sum();
+    }
+
+    @Scheduled(fixedDelayString = "${app.payments.status-stream.reconcile-interval-ms:5000}")
+    public void reconcile() {
+        Set<String> waiting = subscribers.keySet();
+        if (waiting.isEmpty()) {
+            return;
+        }
+        List<String> sessionIds = new ArrayList<>(waiting);
+        for (int from = 0; from < sessionIds.size(); from += RECONCILE_BATCH_SIZE) {
+            List<String> batch = sessionIds.subList(from, Math.min(from + RECONCILE_BATCH_SIZE, sessionIds.size()));
+            for (Transaction transaction : transactionRepository.findAllByStripeSessionIdIn(batch)) {
+                if (isFinal(transaction.getStatus())) {
+                    publish(transaction.getStripeSessionId(), transaction.getStatus());
+                }
+            }
+        }
+    }
+
+    private boolean send(String sessionId, SseEmitter emitter, Transaction.TransactionStatus status) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .name(STATUS_EVENT)
+                    .data(Map.of("session_id", sessionId, "status", status.name()), MediaType.APPLICATION_JSON));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Payment status stream for session {} closed: {}", sessionId, e.getMessage());
+            unsubscribe(sessionId, emitter);
+            return false;
+        }
+    }
+
+    private void unsubscribe(String sessionId, SseEmitter emitter) {
+        subscribers.computeIfPresent(sessionId, (key, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+
+    private static boolean isFinal(Transaction.TransactionStatus status) {
+        return status != null && status != Transaction.TransactionStatus.PENDING;
+    }
+}
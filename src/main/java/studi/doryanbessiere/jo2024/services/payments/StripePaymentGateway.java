@@ -0,0 +1,27 @@
+package studi.doryanbessiere.jo2024.services.payments;
+
+import com.stripe.exception.StripeException;
+import com.stripe.model.checkout.Session;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.checkout.SessionCreateParams;
+import io.micrometer.tracing.annotation.NewSpan;
+import org.springframework.stereotype.Component;
+
+@Component
+public class StripePaymentGateway implements PaymentGateway {
+
+    @Override
+    @NewSpan("stripe.checkout.session.create")
+    public Session createCheckoutSession(SessionCreateParams params, String idempotencyKey) throws StripeException {
+        if (idempotencyKey == null) {
+            return Session.create(params);
+        }
+        return Session.create(params, RequestOptions.builder().setIdempotencyKey(idempotencyKey).build());
+    }
+
+    @Override
+    @NewSpan("stripe.checkout.session.expire")
+    public void expireCheckoutSession(String sessionId) throws StripeException {
+        Session.retrieve(sessionId).expire();
+    }
+}
@@ -1,8 +1,14 @@
 package studi.doryanbessiere.jo2024.services.payments;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stripe.model.Event;
 import com.stripe.model.EventDataObjectDeserializer;
 import com.stripe.net.Webhook;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -17,6 +23,12 @@ import org.springframework.web.bind.annotation.*;
 import studi.doryanbessiere.jo2024.common.Routes;
 import studi.doryanbessiere.jo2024.services.tickets.Ticket;
 import studi.doryanbessiere.jo2024.services.tickets.TicketService;
+import studi.doryanbessiere.jo2024.shared.datasource.ReadRouting;
+import studi.doryanbessiere.jo2024.shared.tracing.TracePropagation;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @RestController
@@ -25,8 +37,15 @@ import studi.doryanbessiere.jo2024.services.tickets.TicketService;
 @Tag(name = "Paiements Stripe", description = "Gestion des notifications automatiques Stripe (webhooks)")
 public class StripeWebhookController {
 
-    private final TransactionRepository transactionRepository;
+    private static final ObjectMapper METADATA_READER = new ObjectMapper();
+
     private final TicketService ticketService;
+    private final PaymentService paymentService;
+    private final PaymentStatusRegistry paymentStatusRegistry;
+    private final OpenCheckoutSessions openCheckoutSessions;
+    private final MeterRegistry meterRegistry;
+    private final Tracer tracer;
+    private final TracePropagation tracePropagation;
 
     @Value("${stripe.webhook.secret}")
     private String webhookSecret;
@@ -45,67 +64,136 @@ public class StripeWebhookController {
     @PostMapping(Routes.Stripe.WEBHOOK)
     public ResponseEntity<String> handleWebhook(@RequestBody String payload,
                                                 @RequestHeader("Stripe-Signature") String sigHeader) {
+        // The webhook updates the transaction it reads: never look it up on a lagging replica.
+        ReadRouting.pinCurrentRequestToPrimary();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String metricType = "unknown";
+        String outcome = "error";
         try {
             Event event = Webhook.constructEvent(payload, sigHeader, webhookSecret);
             String type = event.getType();
+            metricType = type;
             log.info("Received Stripe event: {}", type);
 
-            String sessionId = extractSessionIdSafely(event);
-            if (sessionId == null) {
-                log.warn("No session ID found in event payload.");
-                return ResponseEntity.ok("No session id found");
-            }
-
-            switch (type) {
-                case "checkout.session.completed" -> handlePaymentSuccess(sessionId);
-                case "checkout.session.async_payment_failed", "payment_intent.payment_failed" -> handlePaymentFailed(sessionId);
-                case "checkout.session.expired" -> handlePaymentExpired(sessionId);
-                case "checkout.session.async_payment_succeeded" -> handleAsyncPaymentSucceeded(sessionId);
-                default -> log.info("Unhandled event type: {}", type);
+            // The checkout stored its trace context in the session metadata: the purchase reads as one trace.
+            Span span = tracePropagation.continueFrom(extractTraceContextSafely(event), "stripe.webhook")
+                    .tag("stripe.event.type", type);
+            try (Tracer.SpanInScope ignored = tracer.withSpan(span)) {
+                String sessionId = extractSessionIdSafely(event);
+                if (sessionId == null) {
+                    log.warn("No session ID found in event payload.");
+                    outcome = "no_session";
+                    return ResponseEntity.ok("No session id found");
+                }
+
+                // Finds the transaction even when the checkout could not record its session id.
+                Long transactionId = extractTransactionIdSafely(event);
+                switch (type) {
+                    case "checkout.session.completed" -> handlePaymentSuccess(sessionId, transactionId);
+                    case "checkout.session.async_payment_failed", "payment_intent.payment_failed" -> handlePaymentFailed(sessionId, transactionId);
+                    case "checkout.session.expired" -> handlePaymentExpired(sessionId, transactionId);
+                    case "checkout.session.async_payment_succeeded" -> handleAsyncPaymentSucceeded(sessionId, transactionId);
+                    default -> {
+                        log.info("Unhandled event type: {}", type);
+                        // Keeps the tag bounded to the event types this endpoint subscribes to.
+                        metricType = "other";
+                    }
+                }
+            } catch (RuntimeException e) {
+                span.error(e);
+                throw e;
+            } finally {
+                span.end();
             }
 
+            outcome = "processed";
             return ResponseEntity.ok("Received");
         } catch (Exception e) {
             log.error("Stripe webhook error: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body("Webhook error: " + e.getMessage());
+        } finally {
+            sample.stop(Timer.builder("jo2024.stripe.webhook")
+                    .description("Stripe webhook handling, including ticket issuance on payment")
+                    .tag("type", metricType)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
         }
     }
 
-    private void handlePaymentSuccess(String sessionId) {
-        updateTransactionStatus(sessionId, Transaction.TransactionStatus.PAID,
+    private void handlePaymentSuccess(String sessionId, Long transactionId) {
+        updateTransactionStatus(sessionId, transactionId, Transaction.TransactionStatus.PAID,
                 "Payment succeeded for session: {}");
     }
 
-    private void handlePaymentFailed(String sessionId) {
-        updateTransactionStatus(sessionId, Transaction.TransactionStatus.FAILED,
+    private void handlePaymentFailed(String sessionId, Long transactionId) {
+        updateTransactionStatus(sessionId, transactionId, Transaction.TransactionStatus.FAILED,
                 "Payment failed for session: {}");
     }
 
-    private void handlePaymentExpired(String sessionId) {
-        updateTransactionStatus(sessionId, Transaction.TransactionStatus.FAILED,
+    private void handlePaymentExpired(String sessionId, Long transactionId) {
+        updateTransactionStatus(sessionId, transactionId, Transaction.TransactionStatus.FAILED,
                 "Payment expired for session: {}");
     }
 
-    private void handleAsyncPaymentSucceeded(String sessionId) {
-        updateTransactionStatus(sessionId, Transaction.TransactionStatus.PAID,
+    private void handleAsyncPaymentSucceeded(String sessionId, Long transactionId) {
+        updateTransactionStatus(sessionId, transactionId, Transaction.TransactionStatus.PAID,
                 "Async payment succeeded for session: {}");
     }
 
-    private void updateTransactionStatus(String sessionId, Transaction.TransactionStatus status, String message) {
-        transactionRepository.findByStripeSessionId(sessionId).ifPresentOrElse(transaction -> {
-            Transaction.TransactionStatus previousStatus = transaction.getStatus();
-            transaction.setStatus(status);
-            transactionRepository.save(transaction);
-            if (status == Transaction.TransactionStatus.PAID && previousStatus != Transaction.TransactionStatus.PAID) {
-                Ticket ticket = ticketService.generateTicketForTransaction(transaction.getId());
-                log.info("Generated ticket {} for transaction {}", ticket.getId(), transaction.getId());
+    private void updateTransactionStatus(String sessionId, Long transactionId, Transaction.TransactionStatus status,
+                                         String message) {
+        paymentService.applyWebhookStatus(sessionId, transactionId, status).ifPresentOrElse(id -> {
+            // Every PAID delivery tops the tickets up: a retry after a failed issuance finds the transaction PAID.
+            if (status == Transaction.TransactionStatus.PAID) {
+                List<Ticket> tickets = ticketService.generateTicketsForTransaction(id);
+                log.info("Transaction {} holds {} tickets", id, tickets.size());
             }
             log.info(message, sessionId);
+            // Settled or expired: the next checkout for this cart must open a new session.
+            openCheckoutSessions.invalidate(sessionId);
+            paymentStatusRegistry.publish(sessionId, status);
         }, () -> log.warn("No transaction found for session ID: {}", sessionId));
     }
 
-    private String extractSessionIdSafely(Event event) {
+    /**
+     * @return the {@link TracePropagation} fields found in the metadata of the event's object, empty when absent
+     */
+    static Map<String, String> extractTraceContextSafely(Event event) {
+        Map<String, String> context = new LinkedHashMap<>();
+        try {
+            EventDataObjectDeserializer deserializer = event.getDataObjectDeserializer();
+            if (deserializer == null || deserializer.getRawJson() == null) {
+                return context;
+            }
+            JsonNode metadata = METADATA_READER.readTree(deserializer.getRawJson()).path("metadata");
+            if (metadata.hasNonNull(TracePropagation.TRACEPARENT)) {
+                context.put(TracePropagation.TRACEPARENT, metadata.get(TracePropagation.TRACEPARENT).asText());
+            }
+        } catch (Exception e) {
+            log.debug("No trace context in event payload: {}", e.getMessage());
+        }
+        return context;
+    }
+
+    /**
+     * @return the {@code transaction_id} the checkout put in the session metadata, {@code null} when absent
+     */
+    static Long extractTransactionIdSafely(Event event) {
+        try {
+            EventDataObjectDeserializer deserializer = event.getDataObjectDeserializer();
+            if (deserializer == null || deserializer.getRawJson() == null) {
+                return null;
+            }
+            JsonNode transactionId = METADATA_READER.readTree(deserializer.getRawJson()).path("metadata").path("transaction_id");
+            return transactionId.isTextual() ? Long.valueOf(transactionId.asText()) : null;
+        } catch (Exception e) {
+            log.debug("No transaction id in event payload: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    static String extractSessionIdSafely(Event event) {
         try {
             EventDataObjectDeserializer deserializer = event.getDataObjectDeserializer();
             if (deserializer == null || deserializer.getRawJson() == null) {
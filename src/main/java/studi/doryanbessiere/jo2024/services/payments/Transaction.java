@@ -5,6 +5,8 @@ import lombok.*;
 import studi.doryanbessiere.jo2024.services.customers.Customer;
 
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Entity
 @Getter
@@ -12,23 +14,52 @@ import java.time.OffsetDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-@Table(name = "transactions")
+@Table(
+        name = "transactions",
+        indexes = {
+                @Index(name = "idx_transactions_stripe_session_id", columnList = "stripe_session_id"),
+                @Index(name = "idx_transactions_status_created_at", columnList = "status, created_at")
+        }
+)
 public class Transaction {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_seq")
+    @SequenceGenerator(name = "transaction_seq", sequenceName = "transaction_seq", allocationSize = 50)
     private Long id;
 
     private String stripeSessionId;
 
+    /**
+     * Name of the offer bought, or of every offer of the cart joined with {@code " + "}.
+     */
     @Column(nullable = false)
     private String offerName;
 
+    /**
+     * Offer bought; for a cart, the offer of its first line.
+     */
     @Column(nullable = false)
     private Long offerId;
 
     private double amount;
 
+    /**
+     * Number of tickets bought, over every line; {@link #amount} is the total for all of them.
+     */
+    @Builder.Default
+    @Column(nullable = false)
+    private int quantity = 1;
+
+    /**
+     * Cart lines, in the order tickets are issued. Empty only for transactions created before carts existed.
+     */
+    @Builder.Default
+    @OneToMany(mappedBy = "transaction", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("id")
+    @ToString.Exclude
+    private List<TransactionItem> items = new ArrayList<>();
+
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "customer_id", nullable = false)
     @ToString.Exclude
@@ -39,12 +70,20 @@ public class Transaction {
 
     private OffsetDateTime createdAt;
 
+    @Version
+    private long version;
+
     public static enum TransactionStatus {
         PENDING,
         PAID,
         FAILED
     }
 
+    public void addItem(TransactionItem item) {
+        item.setTransaction(this);
+        items.add(item);
+    }
+
     @PrePersist
     public void onCreate() {
         if (this.createdAt == null) {
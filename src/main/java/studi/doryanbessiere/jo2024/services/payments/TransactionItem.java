@@ -0,0 +1,50 @@
+package studi.doryanbessiere.jo2024.services.payments;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * One line of a cart: an offer, its price and the number of tickets bought. Offer name, price and capacity are
+ * snapshots taken at checkout, so tickets are issued from the line without reading the offer again.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(
+        name = "transaction_items",
+        indexes = @Index(name = "idx_transaction_items_transaction_id", columnList = "transaction_id")
+)
+public class TransactionItem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_item_seq")
+    @SequenceGenerator(name = "transaction_item_seq", sequenceName = "transaction_item_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "transaction_id", nullable = false)
+    @ToString.Exclude
+    private Transaction transaction;
+
+    @Column(name = "offer_id", nullable = false)
+    private Long offerId;
+
+    @Column(name = "offer_name", nullable = false)
+    private String offerName;
+
+    @Column(name = "unit_price", nullable = false)
+    private double unitPrice;
+
+    @Column(nullable = false)
+    private int quantity;
+
+    @Column(name = "entries_allowed", nullable = false)
+    private int entriesAllowed;
+
+    public double getSubtotal() {
+        return unitPrice * quantity;
+    }
+}
@@ -1,8 +1,30 @@
 package studi.doryanbessiere.jo2024.services.payments;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
     Optional<Transaction> findByStripeSessionId(String stripeSessionId);
+
+    List<Transaction> findAllByStripeSessionIdIn(Collection<String> stripeSessionIds);
+
+    /**
+     * Next batch by id of the {@code PENDING} transactions created before {@code createdBefore}, for
+     * {@link AbandonedCheckoutSweeper}. Served by {@code idx_transactions_status_created_at}.
+     */
+    @Query("""
+            select t.id from Transaction t
+            where t.status = studi.doryanbessiere.jo2024.services.payments.Transaction.TransactionStatus.PENDING
+              and t.createdAt < :createdBefore and t.id > :afterId
+            order by t.id
+            """)
+    List<Long> findPendingIdsCreatedBefore(@Param("createdBefore") OffsetDateTime createdBefore,
+                                           @Param("afterId") long afterId, Limit limit);
 }
@@ -1,16 +1,73 @@
 package studi.doryanbessiere.jo2024.services.payments.dto;
 
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Getter
 @Setter
-@Schema(description = "Requête pour créer une session de paiement Stripe Checkout")
+@Schema(description = "Requête pour créer une session de paiement Stripe Checkout, pour une offre ou un panier")
 public class CreateCheckoutRequest {
 
-    @NotNull
-    @Schema(description = "Identifiant de l'offre à acheter", example = "1")
+    public static final int MAX_QUANTITY = 10;
+    public static final int MAX_ITEMS = 10;
+
+    @Schema(description = "Identifiant de l'offre à acheter, lorsque le panier ne contient qu'une offre", example = "1")
     private Long offerId;
+
+    @Min(1)
+    @Max(MAX_QUANTITY)
+    @Schema(description = "Nombre de billets achetés pour cette offre (1 par défaut)", example = "4")
+    private int quantity = 1;
+
+    @Valid
+    @Size(max = MAX_ITEMS)
+    @Schema(description = "Lignes du panier, une par offre ; remplace `offer_id` et `quantity` lorsqu'il est renseigné")
+    private List<CartItem> items;
+
+    @Schema(hidden = true)
+    @AssertTrue(message = "Renseignez offer_id ou au moins une ligne dans items")
+    public boolean isCartPresent() {
+        return offerId != null || (items != null && !items.isEmpty());
+    }
+
+    /**
+     * @return number of tickets per offer id, in cart order; lines for the same offer are merged
+     */
+    public Map<Long, Integer> toCart() {
+        Map<Long, Integer> cart = new LinkedHashMap<>();
+        if (items == null || items.isEmpty()) {
+            cart.put(offerId, quantity);
+            return cart;
+        }
+        for (CartItem item : items) {
+            cart.merge(item.getOfferId(), item.getQuantity(), Integer::sum);
+        }
+        return cart;
+    }
+
+    @Getter
+    @Setter
+    @Schema(description = "Ligne de panier : une offre et son nombre de billets")
+    public static class CartItem {
+
+        @NotNull
+        @Schema(description = "Identifiant de l'offre", example = "1")
+        private Long offerId;
+
+        @Min(1)
+        @Max(MAX_QUANTITY)
+        @Schema(description = "Nombre de billets pour cette offre (1 par défaut)", example = "2")
+        private int quantity = 1;
+    }
 }
@@ -0,0 +1,262 @@
+package studi.doryanbessiere.jo2024.services.scans;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import studi.doryanbessiere.jo2024.services.gates.GateEvent;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Append-only journal of ticket scans. Gate requests only enqueue an entry on a lock-free queue; a scheduled writer
+ * drains it into {@code ticket_scan_events} with JDBC batch inserts. When the database is unavailable the drained
+ * entries are appended to a local write-ahead file, replayed before any newer entry once the database is back. Rows the
+ * database refuses for a constraint are set aside in a {@code .rejected} file rather than retried forever.
+ */
+@Slf4j
+@Component
+public class ScanJournal {
+
+    static final String INSERT_SQL = """
+            insert into ticket_scan_events (event_id, ticket_id, admin_email, gate_id, event_type, reason, occurred_at)
+            values (?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Paris");
+
+    private final ConcurrentLinkedQueue<ScanJournalEntry> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Path writeAheadLog;
+    private final Path quarantine;
+    private final int batchSize;
+
+    @Autowired
+    public ScanJournal(JdbcTemplate jdbcTemplate,
+                       PlatformTransactionManager transactionManager,
+                       ObjectMapper objectMapper,
+                       @Value("${app.scans.journal.wal-path:data/scan-journal.wal}") String writeAheadLog,
+                       @Value("${app.scans.journal.batch-size:500}") int batchSize) {
+        this(jdbcTemplate, transactionManager, objectMapper, Path.of(writeAheadLog), batchSize);
+    }
+
+    ScanJournal(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                Path writeAheadLog, int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.writeAheadLog = writeAheadLog;
+        this.quarantine = writeAheadLog.resolveSibling(writeAheadLog.getFileName() + ".rejected");
+        this.batchSize = batchSize;
+    }
+
+    public void record(GateEvent.Type type, Long ticketId, String adminEmail, String gateId, String reason) {
+        queue.offer(new ScanJournalEntry(UUID.randomUUID().toString(), ticketId, adminEmail, gateId, type, reason,
+                OffsetDateTime.now(ZONE)));
+        pending.incrementAndGet();
+    }
+
+    /**
+     * Entries accepted but not yet written to the database or the write-ahead file.
+     */
+    public int pendingCount() {
+        return pending.get();
+    }
+
+    @Scheduled(fixedDelayString = "${app.scans.journal.flush-interval-ms:500}")
+    public synchronized void flush() {
+        boolean databaseAvailable = replayWriteAheadLog();
+
+        List<ScanJournalEntry> batch;
+        while (!(batch = drain()).isEmpty()) {
+            if (databaseAvailable) {
+                try {
+                    insertOrQuarantine(batch);
+                    continue;
+                } catch (DataAccessException | TransactionException e) {
+                    log.warn("Scan journal database write failed, spilling to {}: {}", writeAheadLog, e.getMessage());
+                    databaseAvailable = false;
+                }
+            }
+            if (!appendToWriteAheadLog(batch)) {
+                break;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private List<ScanJournalEntry> drain() {
+        List<ScanJournalEntry> batch = new ArrayList<>(Math.min(batchSize, Math.max(1, pending.get())));
+        ScanJournalEntry entry;
+        while (batch.size() < batchSize && (entry = queue.poll()) != null) {
+            batch.add(entry);
+        }
+        pending.addAndGet(-batch.size());
+        return batch;
+    }
+
+    /**
+     * Inserts the batch. When a row breaks a constraint, retries row by row so that only the offending rows are set
+     * aside in the {@code .rejected} file next to the write-ahead log: spilling them would block every later replay.
+     * Any other failure means the database is unavailable and is thrown.
+     */
+    private void insertOrQuarantine(List<ScanJournalEntry> entries) {
+        try {
+            insert(entries);
+        } catch (DataIntegrityViolationException e) {
+            for (ScanJournalEntry entry : entries) {
+                try {
+                    insert(List.of(entry));
+                } catch (DuplicateKeyException duplicate) {
+                    // Committed by a previous replay that crashed before deleting the file.
+                } catch (DataIntegrityViolationException rejected) {
+                    log.error("Scan journal entry {} rejected by the database, quarantined in {}: {}", entry.eventId(),
+                            quarantine, rejected.getMostSpecificCause().getMessage());
+                    if (!append(quarantine, List.of(entry))) {
+                        log.error("Dropping scan journal entry {}", entry);
+                    }
+                }
+            }
+        }
+    }
+
+    private void insert(List<ScanJournalEntry> entries) {
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, entries, batchSize,
+                (ps, entry) -> {
+                    ps.setString(1, entry.eventId());
+                    ps.setObject(2, entry.ticketId());
+                    ps.setString(3, entry.adminEmail());
+                    ps.setString(4, entry.gateId());
+                    ps.setString(5, entry.eventType().name());
+                    ps.setString(6, entry.reason());
+                    ps.setObject(7, entry.occurredAt());
+                }));
+    }
+
+    /**
+     * Streams the file back {@code batch-size} lines at a time: it is largest after a long outage.
+     *
+     * @return {@code false} when the file could not be replayed because the database is still unavailable
+     */
+    private boolean replayWriteAheadLog() {
+        if (!Files.exists(writeAheadLog)) {
+            return true;
+        }
+        try {
+            int replayed = 0;
+            try (BufferedReader reader = Files.newBufferedReader(writeAheadLog, StandardCharsets.UTF_8)) {
+                List<ScanJournalEntry> chunk = new ArrayList<>(batchSize);
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        chunk.add(objectMapper.readValue(line, ScanJournalEntry.class));
+                    } catch (JsonProcessingException e) {
+                        // Torn last line of a write interrupted by a crash.
+                        log.warn("Skipping unreadable scan journal line in {}: {}", writeAheadLog, e.getOriginalMessage());
+                    }
+                    if (chunk.size() == batchSize) {
+                        replayed += replay(chunk);
+                        chunk.clear();
+                    }
+                }
+                replayed += replay(chunk);
+            }
+            Files.delete(writeAheadLog);
+            log.info("Replayed {} scan journal entries from {}", replayed, writeAheadLog);
+            return true;
+        } catch (DataAccessException | TransactionException e) {
+            log.debug("Scan journal database still unavailable: {}", e.getMessage());
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to replay scan journal write-ahead log " + writeAheadLog, e);
+        }
+    }
+
+    private int replay(List<ScanJournalEntry> chunk) {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        // A previous replay may have committed before the file could be deleted.
+        Set<String> existing = new HashSet<>(namedJdbcTemplate.queryForList(
+                "select event_id from ticket_scan_events where event_id in (:ids)",
+                Map.of("ids", chunk.stream().map(ScanJournalEntry::eventId).toList()), String.class));
+        List<ScanJournalEntry> missing = chunk.stream().filter(e -> !existing.contains(e.eventId())).toList();
+        if (!missing.isEmpty()) {
+            insertOrQuarantine(missing);
+        }
+        return chunk.size();
+    }
+
+    /**
+     * @return {@code false} when the file is not writable either; the entries are then put back on the queue
+     */
+    private boolean appendToWriteAheadLog(List<ScanJournalEntry> entries) {
+        if (append(writeAheadLog, entries)) {
+            return true;
+        }
+        entries.forEach(queue::offer);
+        pending.addAndGet(entries.size());
+        return false;
+    }
+
+    private boolean append(Path file, List<ScanJournalEntry> entries) {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE, StandardOpenOption.SYNC)) {
+                for (ScanJournalEntry entry : entries) {
+                    writer.write(objectMapper.writeValueAsString(entry));
+                    writer.newLine();
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            log.error("Unable to write {} scan journal entries to {}", entries.size(), file, e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package studi.doryanbessiere.jo2024.services.scans;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import studi.doryanbessiere.jo2024.common.Routes;
+import studi.doryanbessiere.jo2024.services.scans.dto.TicketScanEventResponse;
+import studi.doryanbessiere.jo2024.shared.security.AdminOnly;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping(Routes.Scans.BASE)
+@RequiredArgsConstructor
+@Tag(name = "Journal des scans", description = "Historique des scans et validations de billets, pour le traitement des litiges")
+public class ScanJournalController {
+
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1000;
+
+    private final TicketScanEventRepository ticketScanEventRepository;
+
+    @GetMapping
+    @AdminOnly
+    @Operation(
+            summary = "Rechercher dans le journal des scans",
+            description = "Renvoie les opérations les plus récentes d'abord. Les scans des dernières secondes peuvent ne pas être encore écrits.",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Événements correspondants",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = TicketScanEventResponse.class)))),
+            @ApiResponse(responseCode = "401", description = "Utilisateur non authentifié", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Accès refusé", content = @Content)
+    })
+    public ResponseEntity<List<TicketScanEventResponse>> search(
+            @Parameter(description = "Identifiant du ticket") @RequestParam(value = "ticket_id", required = false) Long ticketId,
+            @Parameter(description = "Porte de contrôle") @RequestParam(value = "gate_id", required = false) String gateId,
+            @Parameter(description = "E-mail de l'agent") @RequestParam(value = "admin_email", required = false) String adminEmail,
+            @Parameter(description = "Début de période (inclus, ISO-8601)")
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @Parameter(description = "Fin de période (exclue, ISO-8601)")
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+            @Parameter(description = "Nombre maximal de résultats (100 par défaut, 1000 au maximum)")
+            @RequestParam(value = "limit", required = false) Integer limit
+    ) {
+        int effectiveLimit = limit == null || limit < 1 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        List<TicketScanEventResponse> events = ticketScanEventRepository
+                .search(ticketId, gateId, adminEmail, from, to, Limit.of(effectiveLimit))
+                .stream()
+                .map(TicketScanEventResponse::from)
+                .toList();
+        return ResponseEntity.ok(events);
+    }
+}
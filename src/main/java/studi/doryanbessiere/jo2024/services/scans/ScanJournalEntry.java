@@ -0,0 +1,18 @@
+package studi.doryanbessiere.jo2024.services.scans;
+
+import studi.doryanbessiere.jo2024.services.gates.GateEvent;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Journal entry waiting to be written. {@code eventId} is generated by the producer so that replaying the
+ * write-ahead file after a partial failure never inserts the same scan twice.
+ */
+public record ScanJournalEntry(String eventId,
+                               Long ticketId,
+                               String adminEmail,
+                               String gateId,
+                               GateEvent.Type eventType,
+                               String reason,
+                               OffsetDateTime occurredAt) {
+}
@@ -0,0 +1,51 @@
+package studi.doryanbessiere.jo2024.services.scans;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+import studi.doryanbessiere.jo2024.services.gates.GateEvent;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Row of the append-only scan journal. Rows are inserted in batches by {@link ScanJournal} through JDBC; JPA is only
+ * used to read them back.
+ */
+@Entity
+@Immutable
+@Table(name = "ticket_scan_events", indexes = {
+        @Index(name = "idx_ticket_scan_events_ticket_id", columnList = "ticket_id"),
+        @Index(name = "idx_ticket_scan_events_occurred_at", columnList = "occurred_at")
+})
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TicketScanEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "event_id", nullable = false, unique = true, length = 36)
+    private String eventId;
+
+    @Column(name = "ticket_id")
+    private Long ticketId;
+
+    @Column(name = "admin_email")
+    private String adminEmail;
+
+    @Column(name = "gate_id", nullable = false, length = 64)
+    private String gateId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 16)
+    private GateEvent.Type eventType;
+
+    @Column(name = "reason", length = 64)
+    private String reason;
+
+    @Column(name = "occurred_at", nullable = false)
+    private OffsetDateTime occurredAt;
+}
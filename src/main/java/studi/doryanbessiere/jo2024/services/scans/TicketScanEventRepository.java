@@ -0,0 +1,59 @@
+package studi.doryanbessiere.jo2024.services.scans;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import studi.doryanbessiere.jo2024.services.gates.GateOccupancy;
+import studi.doryanbessiere.jo2024.services.gates.OccupancyRow;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public interface TicketScanEventRepository extends JpaRepository<TicketScanEvent, Long> {
+
+    @Query("""
+            select e from TicketScanEvent e
+            where (:ticketId is null or e.ticketId = :ticketId)
+              and (:gateId is null or e.gateId = :gateId)
+              and (:adminEmail is null or e.adminEmail = :adminEmail)
+              and (:from is null or e.occurredAt >= :from)
+              and (:to is null or e.occurredAt < :to)
+            order by e.occurredAt desc, e.id desc
+            """)
+    List<TicketScanEvent> search(@Param("ticketId") Long ticketId,
+                                 @Param("gateId") String gateId,
+                                 @Param("adminEmail") String adminEmail,
+                                 @Param("from") OffsetDateTime from,
+                                 @Param("to") OffsetDateTime to,
+                                 Limit limit);
+
+    /**
+     * Next batch by event id of the validations in the journal, with the ticket's offer and entries, for
+     * {@link GateOccupancy} to load at startup.
+     */
+    @Query("""
+            select new studi.doryanbessiere.jo2024.services.gates.OccupancyRow(
+                e.id, t.id, coalesce(i.offerId, tr.offerId), t.entriesAllowed, e.gateId)
+            from TicketScanEvent e join Ticket t on t.id = e.ticketId join t.transaction tr left join t.item i
+            where e.eventType = studi.doryanbessiere.jo2024.services.gates.GateEvent.Type.VALIDATED and e.id > :afterId
+            order by e.id
+            """)
+    List<OccupancyRow> findValidatedAfter(@Param("afterId") long afterId, Limit limit);
+
+    /**
+     * Same as {@link #findValidatedAfter}, restricted to the validations that occurred since {@code since}: how
+     * {@link GateOccupancy} catches up with the other nodes. Served by {@code idx_ticket_scan_events_occurred_at}.
+     */
+    @Query("""
+            select new studi.doryanbessiere.jo2024.services.gates.OccupancyRow(
+                e.id, t.id, coalesce(i.offerId, tr.offerId), t.entriesAllowed, e.gateId)
+            from TicketScanEvent e join Ticket t on t.id = e.ticketId join t.transaction tr left join t.item i
+            where e.eventType = studi.doryanbessiere.jo2024.services.gates.GateEvent.Type.VALIDATED
+              and e.occurredAt >= :since and e.id > :afterId
+            order by e.id
+            """)
+    List<OccupancyRow> findValidatedSince(@Param("since") OffsetDateTime since,
+                                          @Param("afterId") long afterId,
+                                          Limit limit);
+}
@@ -0,0 +1,47 @@
+package studi.doryanbessiere.jo2024.services.scans.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Value;
+import studi.doryanbessiere.jo2024.services.gates.GateEvent;
+import studi.doryanbessiere.jo2024.services.scans.TicketScanEvent;
+
+import java.time.OffsetDateTime;
+
+@Value
+@Builder
+public class TicketScanEventResponse {
+
+    @Schema(description = "Identifiant unique de l'événement")
+    String eventId;
+
+    @Schema(description = "Identifiant du ticket, absent si le billet présenté est inconnu")
+    Long ticketId;
+
+    @Schema(description = "E-mail de l'agent ayant effectué l'opération")
+    String adminEmail;
+
+    @Schema(description = "Porte de contrôle")
+    String gateId;
+
+    @Schema(description = "Type d'opération")
+    GateEvent.Type eventType;
+
+    @Schema(description = "Motif du rejet")
+    String reason;
+
+    @Schema(description = "Date de l'opération")
+    OffsetDateTime occurredAt;
+
+    public static TicketScanEventResponse from(TicketScanEvent event) {
+        return TicketScanEventResponse.builder()
+                .eventId(event.getEventId())
+                .ticketId(event.getTicketId())
+                .adminEmail(event.getAdminEmail())
+                .gateId(event.getGateId())
+                .eventType(event.getEventType())
+                .reason(event.getReason())
+                .occurredAt(event.getOccurredAt())
+                .build();
+    }
+}
@@ -0,0 +1,124 @@
+package studi.doryanbessiere.jo2024.services.snapshot;
+
+import studi.doryanbessiere.jo2024.services.tickets.ActiveTicketIndex;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary layout of the warm-restart snapshot, big-endian:
+ * <pre>
+ *  0  magic "JO24SNAP"          8 bytes
+ *  8  format version            int
+ * 12  ticket entry count        int
+ * 16  taken at (epoch ms)       long   high-water mark: what the database changed after it is replayed
+ * 24  offer catalogue version   long
+ * 32  catalogue JSON length     int
+ * 36  catalogue JSON            bytes
+ *  …  ticket index entries      {@link ActiveTicketIndex#ENTRY_BYTES} each
+ *  …  CRC32C of all the above   long
+ * </pre>
+ * Ticket entries hold secret hashes, never secrets. Written through a mapping of a temporary file then moved over the
+ * previous snapshot, so a crash mid-write leaves the last complete one; read back through a read-only mapping, so the
+ * loader pays for page faults rather than for {@code read} copies. Any other format version is refused.
+ */
+public final class CacheSnapshotFile {
+
+    static final int FORMAT_VERSION = 1;
+
+    private static final byte[] MAGIC = "JO24SNAP".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_BYTES = 36;
+    private static final int TRAILER_BYTES = Long.BYTES;
+
+    private CacheSnapshotFile() {
+    }
+
+    /**
+     * @return number of ticket entries written
+     */
+    public static int write(Path path, long takenAtMillis, long catalogVersion, byte[] catalogJson,
+                            ActiveTicketIndex index) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        ByteBuffer entries = index.exportEntries();
+        int count = entries.remaining() / ActiveTicketIndex.ENTRY_BYTES;
+        long size = HEADER_BYTES + catalogJson.length + (long) entries.remaining() + TRAILER_BYTES;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Snapshot over 2 GiB: " + count + " tickets");
+        }
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.put(MAGIC)
+                    .putInt(FORMAT_VERSION)
+                    .putInt(count)
+                    .putLong(takenAtMillis)
+                    .putLong(catalogVersion)
+                    .putInt(catalogJson.length)
+                    .put(catalogJson)
+                    .put(entries);
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.duplicate().flip());
+            buffer.putLong(crc.getValue());
+            buffer.force();
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    /**
+     * @throws IOException when the file is missing, truncated, corrupted or of another format version
+     */
+    public static Contents read(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + TRAILER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot truncated or oversized: " + size + " bytes");
+            }
+            // The mapping stays valid once the channel is closed.
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        int checked = buffer.limit() - TRAILER_BYTES;
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().limit(checked));
+        if (crc.getValue() != buffer.getLong(checked)) {
+            throw new IOException("Snapshot checksum mismatch");
+        }
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(magic);
+        int version = buffer.getInt();
+        if (!Arrays.equals(magic, MAGIC) || version != FORMAT_VERSION) {
+            throw new IOException("Not a version " + FORMAT_VERSION + " snapshot");
+        }
+        int count = buffer.getInt();
+        long takenAtMillis = buffer.getLong();
+        long catalogVersion = buffer.getLong();
+        byte[] catalogJson = new byte[buffer.getInt()];
+        buffer.get(catalogJson);
+        if ((long) count * ActiveTicketIndex.ENTRY_BYTES != checked - buffer.position()) {
+            throw new IOException("Snapshot entry count does not match its size");
+        }
+        ByteBuffer entries = buffer.slice(buffer.position(), checked - buffer.position());
+        return new Contents(takenAtMillis, catalogVersion, catalogJson, count, entries);
+    }
+
+    /**
+     * @param entries ticket index entries, positioned at the first one, for {@link ActiveTicketIndex#importEntries}
+     */
+    public record Contents(long takenAtMillis, long catalogVersion, byte[] catalogJson, int entryCount,
+                           ByteBuffer entries) {
+    }
+}
@@ -0,0 +1,121 @@
+package studi.doryanbessiere.jo2024.services.snapshot;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import studi.doryanbessiere.jo2024.services.offers.OfferCatalog;
+import studi.doryanbessiere.jo2024.services.offers.OfferCatalogSnapshot;
+import studi.doryanbessiere.jo2024.services.tickets.ActiveTicketIndex;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+
+/**
+ * Warm restart of the in-memory caches. Every {@code app.snapshot.interval-ms}, and on a clean shutdown, the
+ * {@link ActiveTicketIndex} and the {@link OfferCatalog} are written to a {@link CacheSnapshotFile}. At boot the file
+ * is mapped and restored, then only the tickets created since it was taken, less {@code replay-margin-seconds} for
+ * transactions still open at that time and clock drift between nodes, are read from the database. A missing, corrupt
+ * or disabled snapshot falls back to the full load.
+ * <p>
+ * Validations made after the snapshot are not replayed: the index only answers {@code ACTIVE} tickets from the
+ * database, which corrects it on their next scan.
+ */
+@Slf4j
+@Component
+public class CacheSnapshotService {
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Paris");
+
+    private final ActiveTicketIndex activeTicketIndex;
+    private final OfferCatalog offerCatalog;
+    private final boolean enabled;
+    private final Path path;
+    private final long replayMarginSeconds;
+    private final Clock clock;
+
+    @Autowired
+    public CacheSnapshotService(ActiveTicketIndex activeTicketIndex,
+                                OfferCatalog offerCatalog,
+                                @Value("${app.snapshot.enabled:true}") boolean enabled,
+                                @Value("${app.snapshot.path:data/cache-snapshot.bin}") String path,
+                                @Value("${app.snapshot.replay-margin-seconds:300}") long replayMarginSeconds) {
+        this(activeTicketIndex, offerCatalog, enabled, Path.of(path), replayMarginSeconds, Clock.systemUTC());
+    }
+
+    CacheSnapshotService(ActiveTicketIndex activeTicketIndex, OfferCatalog offerCatalog, boolean enabled, Path path,
+                         long replayMarginSeconds, Clock clock) {
+        this.activeTicketIndex = activeTicketIndex;
+        this.offerCatalog = offerCatalog;
+        this.enabled = enabled;
+        this.path = path;
+        this.replayMarginSeconds = replayMarginSeconds;
+        this.clock = clock;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled || !restore()) {
+            activeTicketIndex.load();
+        }
+    }
+
+    /**
+     * @return whether the caches were restored from the snapshot; on {@code false} nothing was imported
+     */
+    boolean restore() {
+        long started = System.nanoTime();
+        CacheSnapshotFile.Contents contents;
+        try {
+            contents = CacheSnapshotFile.read(path);
+        } catch (NoSuchFileException e) {
+            log.info("No cache snapshot at {}, loading from the database", path);
+            return false;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Cache snapshot {} unusable, loading from the database: {}", path, e.getMessage());
+            return false;
+        }
+        boolean catalogRestored = offerCatalog.restore(contents.catalogVersion(), contents.catalogJson());
+        activeTicketIndex.importEntries(contents.entries(), contents.entryCount());
+        Instant takenAt = Instant.ofEpochMilli(contents.takenAtMillis());
+        activeTicketIndex.loadIssuedSince(OffsetDateTime.ofInstant(takenAt.minusSeconds(replayMarginSeconds), ZONE));
+        log.info("Caches restored from the snapshot taken at {} in {} ms ({} tickets, catalogue {})", takenAt,
+                (System.nanoTime() - started) / 1_000_000, contents.entryCount(),
+                catalogRestored ? "restored" : "outdated");
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${app.snapshot.interval-ms:300000}",
+            initialDelayString = "${app.snapshot.interval-ms:300000}")
+    public void write() {
+        if (!enabled || !activeTicketIndex.isLoaded()) {
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            // Taken before the copy: a ticket issued during it is replayed rather than missed.
+            long takenAt = clock.millis();
+            OfferCatalogSnapshot catalog = offerCatalog.current();
+            int tickets = CacheSnapshotFile.write(path, takenAt, catalog.version(), catalog.json(), activeTicketIndex);
+            log.debug("Cache snapshot written to {}: {} tickets, {} bytes in {} ms", path, tickets, Files.size(path),
+                    (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Cache snapshot not written to {}: {}", path, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void writeOnShutdown() {
+        write();
+    }
+}
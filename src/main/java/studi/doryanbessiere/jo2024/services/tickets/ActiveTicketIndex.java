@@ -0,0 +1,371 @@
+package studi.doryanbessiere.jo2024.services.tickets;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.ByteBuffer;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongFunction;
+
+/**
+ * Tickets that can still enter, held in memory so the gates turn away garbage and forged QR codes without a database
+ * round trip. Open addressing with linear probing over parallel primitive arrays: 64-bit hash of the canonical secret
+ * to ticket id, offer id and entries left (0 once validated), 28 bytes per slot at a load factor of at most 1/2 and no
+ * object per ticket. Lookups are lock-free optimistic reads of a {@link StampedLock}; writers take it exclusively.
+ * <p>
+ * Loaded by id batches at startup, or restored from a warm-restart snapshot, fed with the tickets this node issues once their transaction
+ * commits, and corrected by {@link #observe} whenever a database read tells otherwise. A secret missing from the
+ * index is only declared {@link State#UNKNOWN} when it also fails the {@link TicketSecretAllocator#isAuthentic MAC
+ * check}: a genuine secret issued by another node since startup still reaches the database, then joins the index.
+ * So do secrets of the legacy random format ({@link TicketSecrets#isLegacy}), unless {@code legacy-secrets} is off:
+ * only the active ones are loaded, and a legacy ticket validated before startup must still read as already used.
+ */
+@Slf4j
+@Component
+public class ActiveTicketIndex {
+
+    public static final String SIZE_GAUGE = "jo2024.tickets.active_index.size";
+
+    /**
+     * Size of one entry in {@link #exportEntries} / {@link #importEntries}: hash, ticket id and offer id as longs, then
+     * entries left as an int.
+     */
+    public static final int ENTRY_BYTES = 3 * Long.BYTES + Integer.BYTES;
+
+    private static final long EMPTY = 0L;
+    private static final int MIN_CAPACITY = 1 << 10;
+
+    private static final Hit UNKNOWN = new Hit(State.UNKNOWN, null, null);
+    private static final Hit UNCERTAIN = new Hit(State.UNCERTAIN, null, null);
+
+    private final TicketRepository ticketRepository;
+    private final TicketSecretAllocator ticketSecretAllocator;
+    private final boolean enabled;
+    private final int loadBatchSize;
+    private final boolean legacySecrets;
+    private final StampedLock lock = new StampedLock();
+
+    private Table table = new Table(MIN_CAPACITY);
+    private int size;
+    private volatile boolean loaded;
+
+    @Autowired
+    public ActiveTicketIndex(TicketRepository ticketRepository,
+                             TicketSecretAllocator ticketSecretAllocator,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.tickets.active-index.enabled:true}") boolean enabled,
+                             @Value("${app.tickets.active-index.load-batch-size:10000}") int loadBatchSize,
+                             @Value("${app.tickets.active-index.legacy-secrets:true}") boolean legacySecrets) {
+        this(ticketRepository, ticketSecretAllocator, enabled, loadBatchSize, legacySecrets);
+        Gauge.builder(SIZE_GAUGE, this, ActiveTicketIndex::size)
+                .description("Tickets held by the in-memory scan index, validated ones included")
+                .register(meterRegistry);
+    }
+
+    ActiveTicketIndex(TicketRepository ticketRepository, TicketSecretAllocator ticketSecretAllocator,
+                      boolean enabled, int loadBatchSize, boolean legacySecrets) {
+        this.ticketRepository = ticketRepository;
+        this.ticketSecretAllocator = ticketSecretAllocator;
+        this.enabled = enabled;
+        this.loadBatchSize = Math.max(1, loadBatchSize);
+        this.legacySecrets = legacySecrets;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Streams every {@code ACTIVE} ticket into the index, {@code load-batch-size} rows per keyset query. Until it
+     * returns, every lookup is {@link State#UNCERTAIN}.
+     */
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.nanoTime();
+        ensureCapacity(ticketRepository.countByStatus(Ticket.Status.ACTIVE));
+        int count = loadBatches(afterId -> ticketRepository.findActiveAfter(afterId, Limit.of(loadBatchSize)));
+        loaded = true;
+        log.info("Active ticket index loaded {} tickets in {} ms", count, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Completes entries restored by {@link #importEntries} with the tickets issued since {@code since}, validated ones
+     * included, then opens the index to lookups.
+     */
+    public void loadIssuedSince(OffsetDateTime since) {
+        if (!enabled) {
+            return;
+        }
+        long started = System.nanoTime();
+        int count = loadBatches(afterId -> ticketRepository.findIssuedSince(since, afterId, Limit.of(loadBatchSize)));
+        loaded = true;
+        log.info("Active ticket index replayed {} tickets issued since {} in {} ms", count, since,
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private int loadBatches(LongFunction<List<ActiveTicketRow>> batchAfter) {
+        long afterId = 0;
+        int count = 0;
+        List<ActiveTicketRow> rows;
+        do {
+            rows = batchAfter.apply(afterId);
+            putAll(rows);
+            count += rows.size();
+            if (!rows.isEmpty()) {
+                afterId = rows.get(rows.size() - 1).ticketId();
+            }
+        } while (rows.size() == loadBatchSize);
+        return count;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onTicketsIssued(TicketsIssuedEvent event) {
+        if (enabled) {
+            putAll(event.tickets());
+        }
+    }
+
+    /**
+     * @param secret canonical ticket secret, as scanned
+     */
+    public Hit lookup(String secret) {
+        if (!loaded || secret == null) {
+            return UNCERTAIN;
+        }
+        long hash = hash(secret);
+        long stamp = lock.tryOptimisticRead();
+        Hit hit = probe(table, hash);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                hit = probe(table, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        if (hit != null) {
+            return hit;
+        }
+        return ticketSecretAllocator.isAuthentic(secret) || legacySecrets && TicketSecrets.isLegacy(secret)
+                ? UNCERTAIN : UNKNOWN;
+    }
+
+    /**
+     * Records what the database says of a ticket, e.g. validated on another node or issued there.
+     */
+    public void observe(Ticket ticket) {
+        if (enabled && ticket != null && ticket.getId() != null) {
+            putAll(List.of(ActiveTicketRow.of(ticket)));
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Copies every entry, {@link #ENTRY_BYTES} each, into a heap buffer. The read lock is held for this in-memory pass
+     * only, so the copy is consistent and issuance never waits for the snapshot file to be mapped or written.
+     *
+     * @return the entries, between position 0 and the limit
+     */
+    public ByteBuffer exportEntries() {
+        long stamp = lock.readLock();
+        try {
+            ByteBuffer out = ByteBuffer.allocate(Math.multiplyExact(size, ENTRY_BYTES));
+            long[] hashes = table.hashes;
+            for (int slot = 0; slot < hashes.length; slot++) {
+                if (hashes[slot] != EMPTY) {
+                    out.putLong(hashes[slot])
+                            .putLong(table.ticketIds[slot])
+                            .putLong(table.offerIds[slot])
+                            .putInt(table.remaining[slot]);
+                }
+            }
+            return out.flip();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Adds {@code count} entries written by {@link #exportEntries}, read from the current position of {@code source}.
+     * The index stays closed to lookups until {@link #loadIssuedSince} has replayed what the entries miss.
+     */
+    public void importEntries(ByteBuffer source, int count) {
+        if (!enabled) {
+            return;
+        }
+        ensureCapacity(count);
+        long stamp = lock.writeLock();
+        try {
+            for (int i = 0; i < count; i++) {
+                long hash = source.getLong();
+                long ticketId = source.getLong();
+                long offerId = source.getLong();
+                int entries = source.getInt();
+                if (hash != EMPTY && table.put(hash, ticketId, offerId, entries)) {
+                    size++;
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void putAll(List<ActiveTicketRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            for (ActiveTicketRow row : rows) {
+                if ((size + 1) * 2L > table.hashes.length) {
+                    table = table.resized(table.hashes.length * 2);
+                }
+                if (table.put(hash(row.secretKey()), row.ticketId(), row.offerId() != null ? row.offerId() : 0L,
+                        row.entriesAllowed())) {
+                    size++;
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void ensureCapacity(long expected) {
+        long stamp = lock.writeLock();
+        try {
+            long wanted = Math.max(MIN_CAPACITY, Long.highestOneBit(Math.max(1, (size + expected) * 2 - 1)) << 1);
+            if (wanted > table.hashes.length && wanted <= 1 << 30) {
+                table = table.resized((int) wanted);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Reads a table another thread may be writing: the caller validates its stamp before trusting the result. The
+     * probe always ends, since at most half of the slots are ever taken.
+     */
+    private static Hit probe(Table table, long hash) {
+        int mask = table.hashes.length - 1;
+        for (int slot = (int) hash & mask; ; slot = (slot + 1) & mask) {
+            long current = table.hashes[slot];
+            if (current == EMPTY) {
+                return null;
+            }
+            if (current == hash) {
+                long offerId = table.offerIds[slot];
+                return new Hit(table.remaining[slot] > 0 ? State.ACTIVE : State.USED,
+                        table.ticketIds[slot], offerId != 0L ? offerId : null);
+            }
+        }
+    }
+
+    /**
+     * FNV-1a, then the MurmurHash3 finaliser so every bit of the secret reaches the low bits used as slot index.
+     */
+    static long hash(String secret) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < secret.length(); i++) {
+            h ^= secret.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == EMPTY ? 1L : h;
+    }
+
+    public enum State {
+        /**
+         * No such ticket: neither indexed nor signed with this platform's key.
+         */
+        UNKNOWN,
+        /**
+         * Indexed and already validated.
+         */
+        USED,
+        /**
+         * Indexed with entries left.
+         */
+        ACTIVE,
+        /**
+         * Not indexed but possibly genuine, or index not loaded yet: ask the database.
+         */
+        UNCERTAIN
+    }
+
+    /**
+     * @param ticketId indexed ticket, {@code null} for {@link State#UNKNOWN} and {@link State#UNCERTAIN}
+     * @param offerId  its offer, when known
+     */
+    public record Hit(State state, Long ticketId, Long offerId) {
+    }
+
+    private static final class Table {
+
+        final long[] hashes;
+        final long[] ticketIds;
+        final long[] offerIds;
+        final int[] remaining;
+
+        Table(int capacity) {
+            hashes = new long[capacity];
+            ticketIds = new long[capacity];
+            offerIds = new long[capacity];
+            remaining = new int[capacity];
+        }
+
+        /**
+         * @return whether a slot was taken, {@code false} when the ticket was already indexed and only updated
+         */
+        boolean put(long hash, long ticketId, long offerId, int entries) {
+            int mask = hashes.length - 1;
+            int slot = (int) hash & mask;
+            while (hashes[slot] != EMPTY && !(hashes[slot] == hash && ticketIds[slot] == ticketId)) {
+                slot = (slot + 1) & mask;
+            }
+            boolean added = hashes[slot] == EMPTY;
+            ticketIds[slot] = ticketId;
+            offerIds[slot] = offerId;
+            remaining[slot] = entries;
+            hashes[slot] = hash;
+            return added;
+        }
+
+        Table resized(int capacity) {
+            Table resized = new Table(capacity);
+            for (int slot = 0; slot < hashes.length; slot++) {
+                if (hashes[slot] != EMPTY) {
+                    resized.put(hashes[slot], ticketIds[slot], offerIds[slot], remaining[slot]);
+                }
+            }
+            return resized;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package studi.doryanbessiere.jo2024.services.tickets;
+
+/**
+ * What {@link ActiveTicketIndex} keeps of a ticket: no entity, so rows can outlive their persistence context.
+ *
+ * @param entriesAllowed entries left on the ticket, 0 once validated
+ */
+public record ActiveTicketRow(String secretKey, Long ticketId, Long offerId, int entriesAllowed) {
+
+    public static ActiveTicketRow of(Ticket ticket) {
+        return new ActiveTicketRow(ticket.getSecretKey(), ticket.getId(), ticket.offerId(),
+                ticket.getStatus() == Ticket.Status.ACTIVE ? ticket.getEntriesAllowed() : 0);
+    }
+}
@@ -0,0 +1,91 @@
+package studi.doryanbessiere.jo2024.services.tickets;
+
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import studi.doryanbessiere.jo2024.services.offers.Offer;
+import studi.doryanbessiere.jo2024.services.offers.OfferRepository;
+import studi.doryanbessiere.jo2024.services.payments.Transaction;
+import studi.doryanbessiere.jo2024.services.payments.TransactionRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Issues many tickets for one transaction in a single unit of work. Ids come from the pooled sequence and inserts
+ * are flushed in JDBC batches of {@code hibernate.jdbc.batch_size}; the persistence context is cleared after each
+ * batch so memory stays flat whatever the quantity. Secrets come from one block reserved up front, so the batch
+ * issues no query per ticket.
+ */
+@Slf4j
+@Service
+public class BulkTicketIssuer {
+
+    private final TransactionRepository transactionRepository;
+    private final OfferRepository offerRepository;
+    private final EntityManager entityManager;
+    private final TicketSecretAllocator ticketSecretAllocator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+
+    public BulkTicketIssuer(TransactionRepository transactionRepository,
+                            OfferRepository offerRepository,
+                            EntityManager entityManager,
+                            TicketSecretAllocator ticketSecretAllocator,
+                            ApplicationEventPublisher eventPublisher,
+                            @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
+        this.transactionRepository = transactionRepository;
+        this.offerRepository = offerRepository;
+        this.entityManager = entityManager;
+        this.ticketSecretAllocator = ticketSecretAllocator;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * @return number of tickets issued
+     */
+    @Transactional
+    public int issueTickets(Long transactionId, int quantity) {
+        if (quantity < 1) {
+            throw new IllegalArgumentException("La quantité de billets doit être positive.");
+        }
+        Transaction transaction = transactionRepository.findById(transactionId)
+                .orElseThrow(() -> new IllegalArgumentException("Transaction introuvable pour l'identifiant fourni."));
+        Offer offer = offerRepository.findById(transaction.getOfferId())
+                .orElseThrow(() -> new IllegalStateException(
+                        "Offre introuvable pour la transaction " + transaction.getId()));
+
+        int entriesAllowed = Math.max(1, offer.getPersons());
+        Transaction transactionRef = entityManager.getReference(Transaction.class, transaction.getId());
+        TicketFactory factory = new TicketFactory(ticketSecretAllocator, transaction.getCustomer().getSecretKey(), quantity);
+        // Appends after the lines already issued, keeping (transaction_id, line_index) unique.
+        int firstLine = entityManager.createQuery(
+                        "select coalesce(max(t.lineIndex) + 1, 0) from Ticket t where t.transaction.id = :transactionId",
+                        Integer.class)
+                .setParameter("transactionId", transaction.getId())
+                .getSingleResult();
+
+        List<ActiveTicketRow> issued = new ArrayList<>(quantity);
+        for (int i = 0; i < quantity; i++) {
+            Ticket ticket = factory.next(transactionRef, null, firstLine + i, entriesAllowed);
+            entityManager.persist(ticket);
+            issued.add(new ActiveTicketRow(ticket.getSecretKey(), ticket.getId(), offer.getId(), entriesAllowed));
+
+            if ((i + 1) % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+                transactionRef = entityManager.getReference(Transaction.class, transaction.getId());
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        eventPublisher.publishEvent(new TicketsIssuedEvent(issued));
+
+        log.info("Issued {} tickets for transaction {}", quantity, transaction.getId());
+        return quantity;
+    }
+}
@@ -0,0 +1,9 @@
+package studi.doryanbessiere.jo2024.services.tickets;
+
+import studi.doryanbessiere.jo2024.notifications.dto.EmailRequest;
+
+/**
+ * Published in the issuing transaction; {@link TicketService} sends the e-mail once the tickets have committed.
+ */
+public record PaymentConfirmationEvent(EmailRequest email) {
+}
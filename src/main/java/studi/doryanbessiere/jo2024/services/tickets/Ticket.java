@@ -3,12 +3,22 @@ package studi.doryanbessiere.jo2024.services.tickets;
 import jakarta.persistence.*;
 import lombok.*;
 import studi.doryanbessiere.jo2024.services.payments.Transaction;
+import studi.doryanbessiere.jo2024.services.payments.TransactionItem;
 
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
 
 @Entity
-@Table(name = "tickets")
+@Table(
+        name = "tickets",
+        indexes = {
+                @Index(name = "idx_tickets_customer_secret_created_at", columnList = "customer_secret, created_at"),
+                @Index(name = "idx_tickets_transaction_id", columnList = "transaction_id"),
+                @Index(name = "idx_tickets_transaction_item_id", columnList = "transaction_item_id"),
+                @Index(name = "idx_tickets_created_at", columnList = "created_at")
+        },
+        uniqueConstraints = @UniqueConstraint(name = "uk_tickets_transaction_line", columnNames = {"transaction_id", "line_index"})
+)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -16,8 +26,15 @@ import java.time.ZoneId;
 @Builder
 public class Ticket {
 
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    /**
+     * Allocated from {@code ticket_seq} in blocks of {@link #ID_ALLOCATION_SIZE} (pooled-lo optimizer), so inserts
+     * need no key round trip and can be JDBC-batched. MySQL, which lacks sequences, gets a one-row table instead.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ticket_seq")
+    @SequenceGenerator(name = "ticket_seq", sequenceName = "ticket_seq", allocationSize = Ticket.ID_ALLOCATION_SIZE)
     private Long id;
 
     @Column(name = "secret_key", nullable = false, unique = true, length = 64)
@@ -31,6 +48,21 @@ public class Ticket {
     @ToString.Exclude
     private Transaction transaction;
 
+    /**
+     * Cart line the ticket was issued for; {@code null} for tickets issued without one (bulk issuance).
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "transaction_item_id")
+    @ToString.Exclude
+    private TransactionItem item;
+
+    /**
+     * Position of the ticket in its transaction (0 to quantity - 1), across every line of the cart. Unique per transaction, so a replayed webhook
+     * cannot issue the same ticket twice.
+     */
+    @Column(name = "line_index", nullable = false)
+    private int lineIndex;
+
     @Column(name = "entries_allowed", nullable = false)
     private int entriesAllowed;
 
@@ -38,9 +70,33 @@ public class Ticket {
     @Column(nullable = false)
     private Status status;
 
-    @Column(nullable = false)
+    @Column(name = "created_at", nullable = false)
     private OffsetDateTime createdAt;
 
+    /**
+     * Optimistic lock: of two gates validating the same ticket, only one commit succeeds.
+     */
+    @Version
+    private long version;
+
+    /**
+     * @return id of the offer this ticket admits to: its cart line's, or the transaction's when it has none
+     */
+    public Long offerId() {
+        return item != null ? item.getOfferId() : transaction.getOfferId();
+    }
+
+    public String offerName() {
+        return item != null ? item.getOfferName() : transaction.getOfferName();
+    }
+
+    /**
+     * @return amount paid for this ticket's offer: its cart line subtotal, or the transaction amount when it has none
+     */
+    public double amount() {
+        return item != null ? item.getSubtotal() : transaction.getAmount();
+    }
+
     public enum Status {
         ACTIVE,
         USED
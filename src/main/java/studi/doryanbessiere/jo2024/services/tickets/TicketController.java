@@ -1,5 +1,6 @@
 package studi.doryanbessiere.jo2024.services.tickets;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -15,8 +16,13 @@ import studi.doryanbessiere.jo2024.common.Routes;
 import studi.doryanbessiere.jo2024.common.dto.ApiMessageResponse;
 import studi.doryanbessiere.jo2024.services.customers.Customer;
 import studi.doryanbessiere.jo2024.services.customers.CustomerRepository;
+import studi.doryanbessiere.jo2024.services.gates.GateActivityService;
+import studi.doryanbessiere.jo2024.services.gates.GateEvent;
+import studi.doryanbessiere.jo2024.services.gates.GateOccupancy;
+import studi.doryanbessiere.jo2024.services.scans.ScanJournal;
 import studi.doryanbessiere.jo2024.services.tickets.dto.*;
 import studi.doryanbessiere.jo2024.shared.security.AdminOnly;
+import studi.doryanbessiere.jo2024.shared.security.AuthenticatedAdmin;
 
 import java.util.List;
 
@@ -27,8 +33,18 @@ import java.util.List;
 @Slf4j
 public class TicketController {
 
+    static final String OUTCOME_COUNTER = "jo2024.tickets.gate.operations";
+    private static final String SCAN = "scan";
+    private static final String VALIDATE = "validate";
+
     private final TicketRepository ticketRepository;
+    private final TicketService ticketService;
+    private final ActiveTicketIndex activeTicketIndex;
     private final CustomerRepository customerRepository;
+    private final GateActivityService gateActivityService;
+    private final GateOccupancy gateOccupancy;
+    private final ScanJournal scanJournal;
+    private final MeterRegistry meterRegistry;
 
     @PostMapping(Routes.Tickets.SCAN)
     @AdminOnly
@@ -47,21 +63,26 @@ public class TicketController {
             content = @Content(schema = @Schema(implementation = TicketScanResponse.class)))
     @ApiResponse(responseCode = "400", description = "Ticket introuvable", content = @Content)
     public ResponseEntity<?> scanTicket(@Valid @RequestBody ScanTicketRequest request) {
-        Ticket ticket = ticketRepository.findBySecretKeyIgnoreCase(request.getTicketSecret())
-                .orElse(null);
+        // Garbage and forged codes are turned away from memory, before any query.
+        Ticket ticket = activeTicketIndex.lookup(request.getTicketSecret()).state() == ActiveTicketIndex.State.UNKNOWN
+                ? null
+                : ticketRepository.findBySecretKey(request.getTicketSecret()).orElse(null);
 
         if (ticket == null) {
+            recordGateEvent(SCAN, GateEvent.Type.REJECTED, request.getGateId(), null, "ticket_not_found");
             return ResponseEntity.badRequest().body(new ApiMessageResponse("error", "ticket_not_found"));
         }
 
+        activeTicketIndex.observe(ticket);
+        recordGateEvent(SCAN, GateEvent.Type.SCANNED, request.getGateId(), ticket, null);
         Customer customer = ticket.getTransaction().getCustomer();
 
         var response = TicketScanResponse.builder()
                 .ticketId(ticket.getId())
                 .status(ticket.getStatus())
                 .entriesAllowed(ticket.getEntriesAllowed())
-                .offerName(ticket.getTransaction().getOfferName())
-                .amount(ticket.getTransaction().getAmount())
+                .offerName(ticket.offerName())
+                .amount(ticket.amount())
                 .createdAt(ticket.getCreatedAt())
                 .customer(TicketScanResponse.CustomerInfo.builder()
                         .id(customer.getId())
@@ -88,21 +109,48 @@ public class TicketController {
             content = @Content(schema = @Schema(implementation = ApiMessageResponse.class)))
     @ApiResponse(responseCode = "400", description = "Ticket déjà utilisé ou introuvable", content = @Content)
     public ResponseEntity<ApiMessageResponse> validateTicket(@Valid @RequestBody ValidateTicketRequest request) {
-        var ticket = ticketRepository.findAll()
-                .stream()
-                .filter(t -> t.getSecretKey().equals(request.getTicketSecret()))
-                .findFirst()
-                .orElse(null);
-
-        if (ticket == null)
+        ActiveTicketIndex.Hit hit = activeTicketIndex.lookup(request.getTicketSecret());
+        if (hit.state() == ActiveTicketIndex.State.UNKNOWN) {
+            recordGateEvent(VALIDATE, GateEvent.Type.REJECTED, request.getGateId(), null, "ticket_not_found");
             return ResponseEntity.badRequest().body(new ApiMessageResponse("error", "ticket_not_found"));
-
-        if (ticket.getStatus() == Ticket.Status.USED)
+        }
+        if (hit.state() == ActiveTicketIndex.State.USED) {
+            // USED never goes back to ACTIVE: no need to ask the database.
+            recordGateEvent(VALIDATE, GateEvent.Type.REJECTED, request.getGateId(), hit.offerId(), null,
+                    hit.ticketId(), "ticket_already_used");
             return ResponseEntity.badRequest().body(new ApiMessageResponse("error", "ticket_already_used"));
+        }
+
+        TicketService.GateValidation validation = ticketService.validate(request.getTicketSecret());
+        activeTicketIndex.observe(validation.ticket());
+
+        if (validation.rejection() != null) {
+            recordGateEvent(VALIDATE, GateEvent.Type.REJECTED, request.getGateId(), validation.ticket(), validation.rejection());
+            return ResponseEntity.badRequest().body(new ApiMessageResponse("error", validation.rejection()));
+        }
 
-        ticket.setStatus(Ticket.Status.USED);
-        ticketRepository.save(ticket);
+        Ticket ticket = validation.ticket();
+        recordGateEvent(VALIDATE, GateEvent.Type.VALIDATED, request.getGateId(), ticket, null);
+        gateOccupancy.recordValidation(ticket.getId(), ticket.offerId(), ticket.getEntriesAllowed(),
+                GateActivityService.normalizeGateId(request.getGateId()));
 
         return ResponseEntity.ok(new ApiMessageResponse("success", "ticket_validated_successfully"));
     }
+
+    private void recordGateEvent(String operation, GateEvent.Type type, String gateId, Ticket ticket, String reason) {
+        if (ticket == null) {
+            recordGateEvent(operation, type, gateId, null, null, null, reason);
+            return;
+        }
+        recordGateEvent(operation, type, gateId, ticket.offerId(), ticket.offerName(), ticket.getId(), reason);
+    }
+
+    private void recordGateEvent(String operation, GateEvent.Type type, String gateId,
+                                 Long offerId, String offerName, Long ticketId, String reason) {
+        meterRegistry.counter(OUTCOME_COUNTER, "operation", operation, "outcome", reason == null ? "accepted" : reason)
+                .increment();
+        String gate = GateActivityService.normalizeGateId(gateId);
+        gateActivityService.record(type, gate, offerId, offerName, ticketId, reason);
+        scanJournal.record(type, ticketId, AuthenticatedAdmin.currentEmail(), gate, reason);
+    }
 }
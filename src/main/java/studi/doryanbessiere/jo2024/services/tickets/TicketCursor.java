@@ -0,0 +1,35 @@
+package studi.doryanbessiere.jo2024.services.tickets;
+
+import studi.doryanbessiere.jo2024.common.exceptions.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor over {@code (created_at, id)} used to page through a customer's tickets.
+ */
+record TicketCursor(OffsetDateTime createdAt, long id) {
+
+    static final String INVALID_CURSOR = "invalid_cursor";
+
+    private static final char SEPARATOR = '|';
+
+    String encode() {
+        String raw = createdAt + String.valueOf(SEPARATOR) + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static TicketCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            return new TicketCursor(
+                    OffsetDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1))
+            );
+        } catch (RuntimeException e) {
+            throw new BadRequestException(INVALID_CURSOR);
+        }
+    }
+}
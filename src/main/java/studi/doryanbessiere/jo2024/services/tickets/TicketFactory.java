@@ -0,0 +1,47 @@
+package studi.doryanbessiere.jo2024.services.tickets;
+
+import studi.doryanbessiere.jo2024.services.payments.Transaction;
+import studi.doryanbessiere.jo2024.services.payments.TransactionItem;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+
+/**
+ * Builds the new {@code ACTIVE} tickets of one issuance, for {@link TicketService} and {@link BulkTicketIssuer} alike:
+ * secrets come from a single {@link TicketSecretAllocator} block reserved up front, and every ticket of the issuance
+ * shares its creation time.
+ */
+final class TicketFactory {
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Paris");
+
+    private final TicketSecretAllocator.Block secrets;
+    private final String customerSecret;
+    private final OffsetDateTime createdAt = OffsetDateTime.now(ZONE);
+    private int built;
+
+    /**
+     * @param count number of tickets this issuance will build at most
+     */
+    TicketFactory(TicketSecretAllocator allocator, String customerSecret, int count) {
+        this.secrets = allocator.reserve(count);
+        this.customerSecret = customerSecret;
+    }
+
+    /**
+     * @param transaction the transaction, or a reference to it when the persistence context is cleared between batches
+     * @param item        cart line the ticket admits to, {@code null} when issued without one
+     */
+    Ticket next(Transaction transaction, TransactionItem item, int lineIndex, int entriesAllowed) {
+        return Ticket.builder()
+                .secretKey(secrets.secret(built++))
+                .customerSecret(customerSecret)
+                .item(item)
+                .lineIndex(lineIndex)
+                .entriesAllowed(entriesAllowed)
+                .status(Ticket.Status.ACTIVE)
+                .transaction(transaction)
+                .createdAt(createdAt)
+                .build();
+    }
+}
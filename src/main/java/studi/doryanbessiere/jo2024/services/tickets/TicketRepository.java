@@ -1,14 +1,103 @@
 package studi.doryanbessiere.jo2024.services.tickets;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import studi.doryanbessiere.jo2024.services.gates.GateOccupancy;
+import studi.doryanbessiere.jo2024.services.gates.OccupancyRow;
+import studi.doryanbessiere.jo2024.services.tickets.dto.TicketResponse;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
 
 public interface TicketRepository extends JpaRepository<Ticket, Long> {
-    boolean existsBySecretKey(String secretKey);
-    Optional<Ticket> findByTransactionId(Long transactionId);
+    List<Ticket> findAllByTransactionIdOrderByLineIndex(Long transactionId);
+
+    @EntityGraph(attributePaths = {"transaction", "item"})
     List<Ticket> findAllByCustomerSecretOrderByCreatedAtDesc(String customerSecret);
 
-    Optional<Ticket> findBySecretKeyIgnoreCase(String secretKey);
+    /**
+     * Exact match on the unique {@code secret_key} index: callers pass a {@link TicketSecrets#canonicalize canonical}
+     * secret. The cart line comes in the same query, for the offer shown at the gate.
+     */
+    @EntityGraph(attributePaths = "item")
+    Optional<Ticket> findBySecretKey(String secretKey);
+
+    long countByStatus(Ticket.Status status);
+
+    /**
+     * Next batch of {@code ACTIVE} tickets by id, for {@link ActiveTicketIndex}: a keyset walk of the primary key, so
+     * each batch costs the same whatever the table size.
+     */
+    @Query("""
+            select new studi.doryanbessiere.jo2024.services.tickets.ActiveTicketRow(
+                t.secretKey, t.id, coalesce(i.offerId, tr.offerId), t.entriesAllowed)
+            from Ticket t join t.transaction tr left join t.item i
+            where t.status = studi.doryanbessiere.jo2024.services.tickets.Ticket.Status.ACTIVE and t.id > :afterId
+            order by t.id
+            """)
+    List<ActiveTicketRow> findActiveAfter(@Param("afterId") long afterId, Limit limit);
+
+    /**
+     * Next batch of {@code USED} tickets by id, for {@link GateOccupancy}: the same keyset walk as
+     * {@link #findActiveAfter}.
+     */
+    @Query("""
+            select new studi.doryanbessiere.jo2024.services.gates.OccupancyRow(
+                t.id, t.id, coalesce(i.offerId, tr.offerId), t.entriesAllowed)
+            from Ticket t join t.transaction tr left join t.item i
+            where t.status = studi.doryanbessiere.jo2024.services.tickets.Ticket.Status.USED and t.id > :afterId
+            order by t.id
+            """)
+    List<OccupancyRow> findUsedAfter(@Param("afterId") long afterId, Limit limit);
+
+    /**
+     * Next batch by id of the tickets created since {@code since}, whatever their status, to replay on top of a
+     * warm-restart snapshot. Served by {@code idx_tickets_created_at}: only the recent range is read.
+     */
+    @Query("""
+            select new studi.doryanbessiere.jo2024.services.tickets.ActiveTicketRow(
+                t.secretKey, t.id, coalesce(i.offerId, tr.offerId),
+                case when t.status = studi.doryanbessiere.jo2024.services.tickets.Ticket.Status.ACTIVE
+                     then t.entriesAllowed else 0 end)
+            from Ticket t join t.transaction tr left join t.item i
+            where t.createdAt >= :since and t.id > :afterId
+            order by t.id
+            """)
+    List<ActiveTicketRow> findIssuedSince(@Param("since") OffsetDateTime since,
+                                          @Param("afterId") long afterId,
+                                          Limit limit);
+
+    /**
+     * First page of a customer's tickets, newest first, projected straight into {@link TicketResponse}.
+     */
+    @Query("""
+            select new studi.doryanbessiere.jo2024.services.tickets.dto.TicketResponse(
+                t.id, t.secretKey, t.status, t.entriesAllowed, coalesce(i.offerName, tr.offerName),
+                coalesce(i.unitPrice * i.quantity, tr.amount), cast(tr.status as String), t.createdAt)
+            from Ticket t join t.transaction tr left join t.item i
+            where t.customerSecret = :customerSecret
+            order by t.createdAt desc, t.id desc
+            """)
+    List<TicketResponse> findPageByCustomerSecret(@Param("customerSecret") String customerSecret, Limit limit);
+
+    /**
+     * Next page of a customer's tickets, strictly after the {@code (createdAt, id)} keyset of the previous page.
+     */
+    @Query("""
+            select new studi.doryanbessiere.jo2024.services.tickets.dto.TicketResponse(
+                t.id, t.secretKey, t.status, t.entriesAllowed, coalesce(i.offerName, tr.offerName),
+                coalesce(i.unitPrice * i.quantity, tr.amount), cast(tr.status as String), t.createdAt)
+            from Ticket t join t.transaction tr left join t.item i
+            where t.customerSecret = :customerSecret
+              and (t.createdAt < :createdAt or (t.createdAt = :createdAt and t.id < :id))
+            order by t.createdAt desc, t.id desc
+            """)
+    List<TicketResponse> findPageByCustomerSecretAfter(@Param("customerSecret") String customerSecret,
+                                                       @Param("createdAt") OffsetDateTime createdAt,
+                                                       @Param("id") Long id,
+                                                       Limit limit);
 }
@@ -0,0 +1,155 @@
+package studi.doryanbessiere.jo2024.services.tickets;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Allocates ticket secrets that cannot collide, without asking the database: the first 64 bits are the node id
+ * (16 bits) and a per-node counter (48 bits), the last 64 bits an HMAC of those, so a secret can neither be guessed
+ * from its neighbours nor forged without the key. Both halves are written as upper-case hex, which keeps the
+ * {@link TicketSecrets} canonical form.
+ * <p>
+ * The counter never goes below {@code currentTimeMillis * 64}: a restarted node resumes above every value it handed
+ * out before, as long as it did not sustain more than 64 secrets per millisecond. Node ids must be unique per running
+ * instance ({@code app.tickets.secret.node-id}); the unique index on {@code secret_key} remains the backstop.
+ */
+@Component
+public class TicketSecretAllocator {
+
+    static final int NODE_BITS = 16;
+    static final int COUNTER_BITS = 48;
+    static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    static final long MAX_COUNTER = (1L << COUNTER_BITS) - 1;
+    static final long COUNTER_PER_MILLI = 64;
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final HexFormat HEX = HexFormat.of().withUpperCase();
+
+    private final long nodeId;
+    private final SecretKeySpec key;
+    private final LongSupplier clockMillis;
+    private final AtomicLong lastCounter = new AtomicLong();
+    private final ThreadLocal<Mac> macs;
+
+    @Autowired
+    public TicketSecretAllocator(@Value("${app.tickets.secret.node-id}") int nodeId,
+                                 @Value("${app.tickets.secret.hmac-key}") String hmacKey) {
+        this(nodeId, hmacKey, System::currentTimeMillis);
+    }
+
+    TicketSecretAllocator(int nodeId, String hmacKey, LongSupplier clockMillis) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("app.tickets.secret.node-id doit être compris entre 0 et " + MAX_NODE_ID);
+        }
+        if (hmacKey == null || hmacKey.length() < 32) {
+            throw new IllegalArgumentException("app.tickets.secret.hmac-key doit contenir au moins 32 caractères");
+        }
+        this.nodeId = nodeId;
+        this.key = new SecretKeySpec(hmacKey.getBytes(StandardCharsets.UTF_8), MAC_ALGORITHM);
+        this.clockMillis = clockMillis;
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    /**
+     * @return one new secret
+     */
+    public String next() {
+        return reserve(1).secret(0);
+    }
+
+    /**
+     * Reserves {@code count} consecutive counter values in one atomic step; the block renders its secrets on demand.
+     */
+    public Block reserve(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Le nombre de clés à réserver doit être positif.");
+        }
+        long previous;
+        long first;
+        do {
+            previous = lastCounter.get();
+            first = Math.max(previous + 1, clockMillis.getAsLong() * COUNTER_PER_MILLI);
+        } while (!lastCounter.compareAndSet(previous, first + count - 1));
+        if (first + count - 1 > MAX_COUNTER) {
+            throw new IllegalStateException("Ticket secret counter exhausted for node " + nodeId);
+        }
+        return new Block(first, count);
+    }
+
+    /**
+     * @return whether {@code secret} carries a valid MAC for its node id and counter, i.e. was issued with this key
+     */
+    public boolean isAuthentic(String secret) {
+        if (secret == null || secret.length() != TicketSecrets.PREFIX.length() + 32
+                || !secret.startsWith(TicketSecrets.PREFIX)) {
+            return false;
+        }
+        int split = TicketSecrets.PREFIX.length() + 16;
+        try {
+            long id = HexFormat.fromHexDigitsToLong(secret, TicketSecrets.PREFIX.length(), split);
+            long tag = HexFormat.fromHexDigitsToLong(secret, split, secret.length());
+            return MessageDigest.isEqual(toBytes(mac(id)), toBytes(tag));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private String render(long counter) {
+        long id = (nodeId << COUNTER_BITS) | counter;
+        return TicketSecrets.PREFIX + HEX.toHexDigits(id) + HEX.toHexDigits(mac(id));
+    }
+
+    private long mac(long id) {
+        return ByteBuffer.wrap(macs.get().doFinal(toBytes(id))).getLong();
+    }
+
+    private static byte[] toBytes(long value) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(value).array();
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 indisponible", e);
+        }
+    }
+
+    /**
+     * A run of reserved counter values, for bulk issuance.
+     */
+    public final class Block {
+
+        private final long firstCounter;
+        private final int size;
+
+        private Block(long firstCounter, int size) {
+            this.firstCounter = firstCounter;
+            this.size = size;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public String secret(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return render(firstCounter + index);
+        }
+    }
+}
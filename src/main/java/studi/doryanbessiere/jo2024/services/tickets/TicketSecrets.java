@@ -0,0 +1,41 @@
+package studi.doryanbessiere.jo2024.services.tickets;
+
+import java.util.HexFormat;
+import java.util.Locale;
+
+/**
+ * Canonical ticket secret format: {@code TCK-} followed by 32 upper-case hexadecimal digits. Secrets are generated in
+ * this form by {@link TicketSecretAllocator} and every secret read from a request is canonicalized before the lookup,
+ * so the unique index on {@code tickets.secret_key} can serve an exact match.
+ */
+public final class TicketSecrets {
+
+    public static final String PREFIX = "TCK-";
+
+    private TicketSecrets() {
+    }
+
+    /**
+     * Trims and upper-cases a secret typed or scanned at a gate; {@code null} stays {@code null}.
+     */
+    public static String canonicalize(String secret) {
+        return secret == null ? null : secret.strip().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Whether a canonical secret has the shape of those drawn at random before {@link TicketSecretAllocator}: a
+     * version 4 UUID, with version digit {@code 4} and variant digit {@code 8} to {@code B}. One well-formed forgery in
+     * 64 has that shape too.
+     */
+    public static boolean isLegacy(String secret) {
+        if (secret == null || secret.length() != PREFIX.length() + 32 || !secret.startsWith(PREFIX)) {
+            return false;
+        }
+        for (int i = PREFIX.length(); i < secret.length(); i++) {
+            if (!HexFormat.isHexDigit(secret.charAt(i))) {
+                return false;
+            }
+        }
+        return secret.charAt(PREFIX.length() + 12) == '4' && "89AB".indexOf(secret.charAt(PREFIX.length() + 16)) >= 0;
+    }
+}
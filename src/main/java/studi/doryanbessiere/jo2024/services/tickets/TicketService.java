@@ -1,10 +1,16 @@
 package studi.doryanbessiere.jo2024.services.tickets;
 
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.tracing.annotation.NewSpan;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.env.Environment;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 import org.springframework.util.StringUtils;
 import studi.doryanbessiere.jo2024.notifications.EmailNotificationService;
 import studi.doryanbessiere.jo2024.notifications.dto.EmailRequest;
@@ -12,31 +18,75 @@ import studi.doryanbessiere.jo2024.services.customers.Customer;
 import studi.doryanbessiere.jo2024.services.offers.Offer;
 import studi.doryanbessiere.jo2024.services.offers.OfferRepository;
 import studi.doryanbessiere.jo2024.services.payments.Transaction;
+import studi.doryanbessiere.jo2024.services.payments.TransactionItem;
 import studi.doryanbessiere.jo2024.services.payments.TransactionRepository;
+import studi.doryanbessiere.jo2024.services.tickets.dto.TicketPageResponse;
 import studi.doryanbessiere.jo2024.services.tickets.dto.TicketResponse;
+import studi.doryanbessiere.jo2024.shared.datasource.ReadYourWritesTracker;
+import studi.doryanbessiere.jo2024.shared.persistence.RetryOnOptimisticLock;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class TicketService {
 
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
     private final TicketRepository ticketRepository;
     private final TransactionRepository transactionRepository;
     private final OfferRepository offerRepository;
     private final EmailNotificationService emailNotificationService;
     private final Environment environment;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final TicketSecretAllocator ticketSecretAllocator;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Marks the ticket used at a gate. When two gates validate the same ticket at once, the second commit fails on the
+     * ticket's version and is re-run from a fresh read, so it answers {@code ticket_already_used}: a ticket never
+     * lets two people in.
+     */
+    @Transactional
+    @RetryOnOptimisticLock
+    public GateValidation validate(String ticketSecret) {
+        Ticket ticket = ticketRepository.findBySecretKey(ticketSecret).orElse(null);
+        if (ticket == null) {
+            return new GateValidation(null, "ticket_not_found");
+        }
+        if (ticket.getStatus() == Ticket.Status.USED) {
+            return new GateValidation(ticket, "ticket_already_used");
+        }
+        ticket.setStatus(Ticket.Status.USED);
+        return new GateValidation(ticket, null);
+    }
 
+    /**
+     * Issues the tickets of a paid transaction, one per unit of each cart line, in a single batched insert, then sends
+     * one confirmation e-mail for all of them once they have committed. Lines already issued are kept: a replayed
+     * webhook issues nothing.
+     *
+     * @return every ticket of the transaction, ordered by line
+     */
     @Transactional
-    public Ticket generateTicketForTransaction(Long transactionId) {
+    @Timed(value = "jo2024.tickets.generate", description = "Ticket issuance for a paid transaction, e-mail included")
+    @NewSpan("ticket.issue")
+    public List<Ticket> generateTicketsForTransaction(Long transactionId) {
         Transaction transaction = transactionRepository.findById(transactionId)
                 .orElseThrow(() -> new IllegalArgumentException("Transaction introuvable pour l'identifiant fourni."));
 
-        return ticketRepository.findByTransactionId(transactionId)
-                .orElseGet(() -> createTicket(transaction));
+        List<Ticket> existing = ticketRepository.findAllByTransactionIdOrderByLineIndex(transactionId);
+        if (existing.size() >= transaction.getQuantity()) {
+            return existing;
+        }
+        return createTickets(transaction, existing);
     }
 
     @Transactional(readOnly = true)
@@ -48,8 +98,8 @@ public class TicketService {
                         .ticketSecret(ticket.getSecretKey())
                         .status(ticket.getStatus())
                         .entriesAllowed(ticket.getEntriesAllowed())
-                        .offerName(ticket.getTransaction().getOfferName())
-                        .amount(ticket.getTransaction().getAmount())
+                        .offerName(ticket.offerName())
+                        .amount(ticket.amount())
                         .transactionStatus(ticket.getTransaction().getStatus().name())
                         .createdAt(ticket.getCreatedAt())
                         .build()
@@ -57,36 +107,105 @@ public class TicketService {
                 .toList();
     }
 
-    private Ticket createTicket(Transaction transaction) {
-        Offer offer = offerRepository.findById(transaction.getOfferId())
-                .orElseThrow(() -> new IllegalStateException(
-                        "Offre introuvable pour la transaction " + transaction.getId()));
+    /**
+     * Returns one page of the customer's tickets, newest first, using a keyset cursor on {@code (created_at, id)}
+     * so every page costs a single indexed query whatever its depth.
+     *
+     * @param cursor value of {@link TicketPageResponse#getNextCursor()} from the previous page, {@code null} for the first one
+     * @param size   requested page size, clamped between 1 and {@link #MAX_PAGE_SIZE}
+     */
+    @Transactional(readOnly = true)
+    public TicketPageResponse getTicketPageForCustomer(Customer customer, String cursor, Integer size) {
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        // One extra row tells whether a next page exists without a COUNT query.
+        Limit limit = Limit.of(pageSize + 1);
+
+        List<TicketResponse> rows;
+        if (StringUtils.hasText(cursor)) {
+            TicketCursor after = TicketCursor.decode(cursor);
+            rows = ticketRepository.findPageByCustomerSecretAfter(customer.getSecretKey(), after.createdAt(), after.id(), limit);
+        } else {
+            rows = ticketRepository.findPageByCustomerSecret(customer.getSecretKey(), limit);
+        }
 
-        int entriesAllowed = Math.max(1, offer.getPersons());
+        if (rows.size() <= pageSize) {
+            return TicketPageResponse.builder().items(rows).build();
+        }
 
-        Ticket ticket = Ticket.builder()
-                .secretKey(generateUniqueTicketSecret(transaction.getCustomer().getSecretKey()))
-                .customerSecret(transaction.getCustomer().getSecretKey())
-                .entriesAllowed(entriesAllowed)
-                .status(Ticket.Status.ACTIVE)
-                .transaction(transaction)
+        List<TicketResponse> items = rows.subList(0, pageSize);
+        TicketResponse last = items.get(pageSize - 1);
+        return TicketPageResponse.builder()
+                .items(List.copyOf(items))
+                .nextCursor(new TicketCursor(last.getCreatedAt(), last.getTicketId()).encode())
                 .build();
+    }
+
+    private List<Ticket> createTickets(Transaction transaction, List<Ticket> existing) {
+        List<TransactionItem> items = transaction.getItems().isEmpty()
+                ? List.of(legacyItem(transaction))
+                : transaction.getItems();
+
+        Set<Integer> issuedLines = existing.stream().map(Ticket::getLineIndex).collect(Collectors.toSet());
+        int missing = transaction.getQuantity() - issuedLines.size();
+        TicketFactory factory = new TicketFactory(ticketSecretAllocator, transaction.getCustomer().getSecretKey(), missing);
+
+        // Lines are numbered across the cart: item after item, in the order they were added.
+        List<Ticket> tickets = new ArrayList<>(missing);
+        int line = 0;
+        for (TransactionItem item : items) {
+            for (int unit = 0; unit < item.getQuantity(); unit++, line++) {
+                if (issuedLines.contains(line)) {
+                    continue;
+                }
+                tickets.add(factory.next(transaction, item.getId() != null ? item : null, line, item.getEntriesAllowed()));
+            }
+        }
 
-        Ticket savedTicket = ticketRepository.save(ticket);
-        log.info("Generated ticket {} for transaction {}", savedTicket.getId(), transaction.getId());
-        sendPaymentConfirmationEmail(transaction);
-        return savedTicket;
+        // Sequence ids come in pooled blocks and hibernate.jdbc.batch_size groups the INSERTs.
+        List<Ticket> saved = ticketRepository.saveAll(tickets);
+        log.info("Generated {} tickets for transaction {}", saved.size(), transaction.getId());
+        eventPublisher.publishEvent(new TicketsIssuedEvent(saved.stream().map(ActiveTicketRow::of).toList()));
+        readYourWritesTracker.recordWrite(transaction.getCustomer().getEmail());
+        eventPublisher.publishEvent(new PaymentConfirmationEvent(paymentConfirmationEmail(transaction)));
+
+        List<Ticket> all = new ArrayList<>(existing);
+        all.addAll(saved);
+        all.sort(Comparator.comparingInt(Ticket::getLineIndex));
+        return all;
+    }
+
+    /**
+     * Single implicit line for a transaction created before carts, read from its offer.
+     */
+    private TransactionItem legacyItem(Transaction transaction) {
+        Offer offer = offerRepository.findById(transaction.getOfferId())
+                .orElseThrow(() -> new IllegalStateException(
+                        "Offre introuvable pour la transaction " + transaction.getId()));
+        return TransactionItem.builder()
+                .offerId(offer.getId())
+                .offerName(transaction.getOfferName())
+                .unitPrice(offer.getPrice())
+                .quantity(transaction.getQuantity())
+                .entriesAllowed(Math.max(1, offer.getPersons()))
+                .build();
     }
 
-    private String generateUniqueTicketSecret(String customerSecret) {
-        String secret;
-        do {
-            secret = "TCK-" + UUID.randomUUID().toString().replace("-", "").toUpperCase();
-        } while (secret.equals(customerSecret) || ticketRepository.existsBySecretKey(secret));
-        return secret;
+    /**
+     * Sends the confirmation after commit, so a mail failure never rolls the tickets back; it is only logged, the
+     * tickets being listed in the customer's account either way.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPaymentConfirmation(PaymentConfirmationEvent event) {
+        String to = event.email().getTo();
+        try {
+            emailNotificationService.sendNotification(event.email());
+            log.info("Payment confirmation email sent to {}", to);
+        } catch (RuntimeException e) {
+            log.error("Payment confirmation email to {} failed: {}", to, e.getMessage(), e);
+        }
     }
 
-    private void sendPaymentConfirmationEmail(Transaction transaction) {
+    private EmailRequest paymentConfirmationEmail(Transaction transaction) {
         Customer customer = transaction.getCustomer();
         String frontendUrl = environment.getProperty("APP_FRONTEND_URL", "http://localhost:5173");
         String accountUrl = frontendUrl.endsWith("/") ? frontendUrl + "account" : frontendUrl + "/account";
@@ -96,18 +215,23 @@ public class TicketService {
         Map<String, Object> variables = Map.of(
                 "name", recipientName,
                 "offerName", transaction.getOfferName(),
+                "ticketCount", transaction.getQuantity(),
                 "accountUrl", accountUrl,
                 "appName", appName
         );
 
-        emailNotificationService.sendNotification(
-                EmailRequest.builder()
-                        .to(customer.getEmail())
-                        .subject("Confirmation de paiement - " + appName)
-                        .templateName("emails/payment-confirmation")
-                        .variables(variables)
-                        .build()
-        );
-        log.info("Payment confirmation email sent to {}", customer.getEmail());
+        return EmailRequest.builder()
+                .to(customer.getEmail())
+                .subject("Confirmation de paiement - " + appName)
+                .templateName("emails/payment-confirmation")
+                .variables(variables)
+                .build();
+    }
+
+    /**
+     * @param ticket    the scanned ticket, {@code null} when the secret matches none
+     * @param rejection why the gate refuses entry, {@code null} once the ticket is marked used
+     */
+    public record GateValidation(Ticket ticket, String rejection) {
     }
 }
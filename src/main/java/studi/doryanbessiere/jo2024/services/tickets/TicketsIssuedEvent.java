@@ -0,0 +1,9 @@
+package studi.doryanbessiere.jo2024.services.tickets;
+
+import java.util.List;
+
+/**
+ * Published in the issuing transaction; {@link ActiveTicketIndex} indexes the tickets once it has committed.
+ */
+public record TicketsIssuedEvent(List<ActiveTicketRow> tickets) {
+}
@@ -3,9 +3,13 @@ package studi.doryanbessiere.jo2024.services.tickets.dto;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import studi.doryanbessiere.jo2024.services.gates.GateActivityService;
+import studi.doryanbessiere.jo2024.services.tickets.TicketSecrets;
 
 @Data
 @NoArgsConstructor
@@ -16,4 +20,15 @@ public class ScanTicketRequest {
     @NotBlank(message = "is_required")
     @JsonProperty("ticket_secret")
     private String ticketSecret;
+
+    @Schema(description = "Identifiant de la porte de contrôle (64 caractères max. : lettres, chiffres, « . _ : - »)",
+            example = "porte-A3")
+    @Size(max = GateActivityService.GATE_ID_MAX_LENGTH, message = "gate_id_invalid")
+    @Pattern(regexp = GateActivityService.GATE_ID_PATTERN, message = "gate_id_invalid")
+    @JsonProperty("gate_id")
+    private String gateId;
+
+    public void setTicketSecret(String ticketSecret) {
+        this.ticketSecret = TicketSecrets.canonicalize(ticketSecret);
+    }
 }
@@ -0,0 +1,19 @@
+package studi.doryanbessiere.jo2024.services.tickets.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+@Builder
+public class TicketPageResponse {
+
+    @Schema(description = "Billets de la page, du plus récent au plus ancien")
+    List<TicketResponse> items;
+
+    @Schema(description = "Curseur à renvoyer pour obtenir la page suivante, absent sur la dernière page",
+            example = "MjAyNC0wNy0yNlQxMDowMDowMCswMjowMHw0Mg")
+    String nextCursor;
+}
@@ -1,5 +1,6 @@
 package studi.doryanbessiere.jo2024.services.tickets.dto;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Value;
 import studi.doryanbessiere.jo2024.services.tickets.Ticket;
@@ -8,6 +9,7 @@ import java.time.OffsetDateTime;
 
 @Value
 @Builder
+@AllArgsConstructor
 public class TicketResponse {
     Long ticketId;
     String ticketSecret;
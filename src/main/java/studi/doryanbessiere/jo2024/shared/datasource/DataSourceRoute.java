@@ -0,0 +1,6 @@
+package studi.doryanbessiere.jo2024.shared.datasource;
+
+public enum DataSourceRoute {
+    PRIMARY,
+    REPLICA
+}
@@ -0,0 +1,28 @@
+package studi.doryanbessiere.jo2024.shared.datasource;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Per-request override forcing read-only transactions onto the primary. Stored as a request attribute so it is
+ * dropped with the request and never leaks to a pooled thread.
+ */
+public final class ReadRouting {
+
+    private static final String PRIMARY_PINNED_ATTRIBUTE = ReadRouting.class.getName() + ".PRIMARY_PINNED";
+
+    private ReadRouting() {
+    }
+
+    public static void pinCurrentRequestToPrimary() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(PRIMARY_PINNED_ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    public static boolean isCurrentRequestPinnedToPrimary() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes != null && attributes.getAttribute(PRIMARY_PINNED_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null;
+    }
+}
@@ -0,0 +1,38 @@
+package studi.doryanbessiere.jo2024.shared.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Sends read-only transactions to the replica and everything else to the primary. Must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} so the physical connection is only
+ * chosen once the transaction's read-only flag is known.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final ReplicaLagMonitor lagMonitor;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor lagMonitor) {
+        this.lagMonitor = lagMonitor;
+        setTargetDataSources(Map.of(DataSourceRoute.PRIMARY, primary, DataSourceRoute.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return currentRoute();
+    }
+
+    public DataSourceRoute currentRoute() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || ReadRouting.isCurrentRequestPinnedToPrimary()
+                || !lagMonitor.isReplicaUsable()) {
+            return DataSourceRoute.PRIMARY;
+        }
+        return DataSourceRoute.REPLICA;
+    }
+}
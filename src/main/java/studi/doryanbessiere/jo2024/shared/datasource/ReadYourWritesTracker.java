@@ -0,0 +1,57 @@
+package studi.doryanbessiere.jo2024.shared.datasource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which customers wrote recently (registration, checkout, ticket issuance) so that their follow-up
+ * reads are served by the primary until the replica has had time to catch up. State is local to the node.
+ */
+@Component
+public class ReadYourWritesTracker {
+
+    private final Map<String, Long> lastWriteMillis = new ConcurrentHashMap<>();
+    private final Clock clock;
+    private final long windowMillis;
+
+    @Autowired
+    public ReadYourWritesTracker(@Value("${app.datasource.replica.read-your-writes-seconds:10}") long windowSeconds) {
+        this(Clock.systemUTC(), windowSeconds);
+    }
+
+    ReadYourWritesTracker(Clock clock, long windowSeconds) {
+        this.clock = clock;
+        this.windowMillis = windowSeconds * 1000;
+    }
+
+    public void recordWrite(String customerKey) {
+        if (customerKey != null) {
+            lastWriteMillis.put(customerKey, clock.millis());
+        }
+    }
+
+    /**
+     * Pins the current request to the primary when {@code customerKey} wrote within the stickiness window.
+     */
+    public void pinIfRecent(String customerKey) {
+        if (customerKey == null) {
+            return;
+        }
+        Long writtenAt = lastWriteMillis.get(customerKey);
+        if (writtenAt != null && clock.millis() - writtenAt < windowMillis) {
+            ReadRouting.pinCurrentRequestToPrimary();
+        }
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void evictExpired() {
+        long threshold = clock.millis() - windowMillis;
+        lastWriteMillis.values().removeIf(writtenAt -> writtenAt < threshold);
+    }
+}
@@ -0,0 +1,69 @@
+package studi.doryanbessiere.jo2024.shared.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.util.List;
+
+/**
+ * Replication-lag guard based on a heartbeat row: each check stamps {@code replica_heartbeat} on the primary and
+ * reads it back from the replica. The replica is used only while the replicated stamp is younger than the
+ * configured maximum lag; any error marks it unusable until the next successful check.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final Clock clock;
+    private final long maxLagMillis;
+
+    private volatile boolean replicaUsable;
+    private volatile long lastLagMillis = -1;
+
+    public ReplicaLagMonitor(DataSource primary, DataSource replica, Clock clock, long maxLagMillis) {
+        this.primary = new JdbcTemplate(primary);
+        this.replica = new JdbcTemplate(replica);
+        this.clock = clock;
+        this.maxLagMillis = maxLagMillis;
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    public long getLastLagMillis() {
+        return lastLagMillis;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.lag-check-interval-ms:1000}")
+    public void checkLag() {
+        long now = clock.millis();
+        try {
+            if (primary.update("update replica_heartbeat set beat_at_ms = ? where id = 1", now) == 0) {
+                primary.update("insert into replica_heartbeat (id, beat_at_ms) values (1, ?)", now);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Unable to write replication heartbeat on primary: {}", e.getMessage());
+        }
+
+        boolean usable;
+        try {
+            List<Long> beats = replica.queryForList("select beat_at_ms from replica_heartbeat where id = 1", Long.class);
+            lastLagMillis = beats.isEmpty() ? -1 : Math.max(0, now - beats.get(0));
+            usable = !beats.isEmpty() && lastLagMillis <= maxLagMillis;
+        } catch (RuntimeException e) {
+            log.warn("Replica heartbeat check failed: {}", e.getMessage());
+            lastLagMillis = -1;
+            usable = false;
+        }
+
+        if (usable != replicaUsable) {
+            log.info("Read replica {} (lag {} ms, max {} ms)", usable ? "enabled" : "disabled", lastLagMillis, maxLagMillis);
+        }
+        replicaUsable = usable;
+    }
+}
@@ -0,0 +1,98 @@
+package studi.doryanbessiere.jo2024.shared.idempotency;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import studi.doryanbessiere.jo2024.common.exceptions.ConflictException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.regex.Pattern;
+
+/**
+ * Runs a request at most once per {@code Idempotency-Key}: the first request claims the key and runs, retries sent
+ * while it is in flight are refused, retries sent after it completed get its response back without running again.
+ * A failed execution releases the key so the client may retry it. Keys are scoped by the caller, so two customers
+ * can never see each other's responses.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final Pattern KEY_FORMAT = Pattern.compile("[\\x21-\\x7E]{1,128}");
+
+    private final IdempotencyStore store;
+
+    @Value("${app.idempotency.ttl-seconds:3600}")
+    private long ttlSeconds;
+
+    @Value("${app.idempotency.lock-seconds:120}")
+    private long lockSeconds;
+
+    /**
+     * @param scope   caller the key belongs to (operation and user)
+     * @param key     value of the {@value #HEADER} header; {@code null} or blank runs {@code action} unguarded
+     * @param request canonical form of the request, to refuse a key reused for a different request
+     * @throws IllegalArgumentException when the key is malformed or was used for a different request
+     * @throws ConflictException        when the first request with this key is still in flight
+     */
+    public Result execute(String scope, String key, String request, Callable<Map<String, String>> action) throws Exception {
+        if (!StringUtils.hasText(key)) {
+            return new Result(action.call(), false);
+        }
+        if (!KEY_FORMAT.matcher(key).matches()) {
+            throw new IllegalArgumentException("En-tête " + HEADER + " invalide (1 à 128 caractères ASCII imprimables).");
+        }
+
+        String storeKey = scope + ":" + key;
+        String fingerprint = sha256(request);
+        Optional<IdempotencyStore.Entry> live = store.claim(storeKey, fingerprint, lockSeconds * 1000);
+        if (live.isPresent()) {
+            IdempotencyStore.Entry entry = live.get();
+            if (!entry.fingerprint().equals(fingerprint)) {
+                throw new IllegalArgumentException("Cette clé " + HEADER + " a déjà servi pour une autre requête.");
+            }
+            if (entry.inFlight()) {
+                throw new ConflictException("Une requête avec cette clé " + HEADER + " est déjà en cours.");
+            }
+            log.debug("Replaying response for idempotency key {}", storeKey);
+            return new Result(entry.response(), true);
+        }
+
+        Map<String, String> response;
+        try {
+            response = action.call();
+        } catch (Exception | Error e) {
+            store.release(storeKey);
+            throw e;
+        }
+        store.complete(storeKey, response, ttlSeconds * 1000);
+        return new Result(response, false);
+    }
+
+    private static String sha256(String value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+
+    /**
+     * @param replayed whether {@code response} comes from an earlier request with the same key
+     */
+    public record Result(Map<String, String> response, boolean replayed) {
+    }
+}
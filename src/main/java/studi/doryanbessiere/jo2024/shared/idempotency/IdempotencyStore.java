@@ -0,0 +1,42 @@
+package studi.doryanbessiere.jo2024.shared.idempotency;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Backend holding the {@code Idempotency-Key} entries used by {@link IdempotencyService}: one entry per key, in flight
+ * until its request completes, then holding the response until its time-to-live runs out.
+ * The in-memory implementation is used by default; {@link JdbcIdempotencyStore} shares the entries between nodes
+ * running behind a load balancer ({@code app.idempotency.store=jdbc}).
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Claims {@code key} for a new execution unless a live entry already holds it.
+     *
+     * @param fingerprint  digest of the request the key is used for
+     * @param lockMillis   how long the in-flight claim survives if it is never completed nor released
+     * @return empty when the caller now owns the key, otherwise the live entry
+     */
+    Optional<Entry> claim(String key, String fingerprint, long lockMillis);
+
+    /**
+     * Stores the response of the execution that claimed {@code key}, for replays during {@code ttlMillis}.
+     */
+    void complete(String key, Map<String, String> response, long ttlMillis);
+
+    /**
+     * Drops the claim of a failed execution, so the client can retry with the same key.
+     */
+    void release(String key);
+
+    /**
+     * @param response {@code null} while the first request is still in flight
+     */
+    record Entry(String fingerprint, Map<String, String> response) {
+
+        public boolean inFlight() {
+            return response == null;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package studi.doryanbessiere.jo2024.shared.idempotency;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Idempotency entries kept in the JVM heap. Claiming is a single atomic {@code compute} on the key; expired entries
+ * are swept every 1024 calls rather than by a scheduler.
+ */
+@Component
+@ConditionalOnProperty(name = "app.idempotency.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private static final int EVICTION_PERIOD_MASK = 0x3FF;
+
+    private final ConcurrentMap<String, Stored> entries = new ConcurrentHashMap<>();
+    private final AtomicLong calls = new AtomicLong();
+    private final Clock clock;
+
+    public InMemoryIdempotencyStore() {
+        this(Clock.systemUTC());
+    }
+
+    InMemoryIdempotencyStore(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public Optional<Entry> claim(String key, String fingerprint, long lockMillis) {
+        long now = clock.millis();
+        if ((calls.incrementAndGet() & EVICTION_PERIOD_MASK) == 0) {
+            entries.values().removeIf(stored -> stored.expiresAt <= now);
+        }
+        Stored[] live = new Stored[1];
+        entries.compute(key, (k, stored) -> {
+            if (stored != null && stored.expiresAt > now) {
+                live[0] = stored;
+                return stored;
+            }
+            return new Stored(new Entry(fingerprint, null), now + lockMillis);
+        });
+        return live[0] == null ? Optional.empty() : Optional.of(live[0].entry);
+    }
+
+    @Override
+    public void complete(String key, Map<String, String> response, long ttlMillis) {
+        long expiresAt = clock.millis() + ttlMillis;
+        entries.computeIfPresent(key, (k, stored) ->
+                new Stored(new Entry(stored.entry.fingerprint(), Map.copyOf(response)), expiresAt));
+    }
+
+    @Override
+    public void release(String key) {
+        entries.computeIfPresent(key, (k, stored) -> stored.entry.inFlight() ? null : stored);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private record Stored(Entry entry, long expiresAt) {
+    }
+}
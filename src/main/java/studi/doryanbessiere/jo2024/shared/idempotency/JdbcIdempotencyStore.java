@@ -0,0 +1,113 @@
+package studi.doryanbessiere.jo2024.shared.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Idempotency entries kept in the {@code idempotency_keys} table, shared by every node behind the load balancer.
+ * A key is claimed by inserting its row: the primary key lets a single node win, the others read the live entry. An
+ * expired row is taken over by a conditional update; expired rows are deleted every 1024 claims of a node.
+ */
+@Component
+@ConditionalOnProperty(name = "app.idempotency.store", havingValue = "jdbc")
+public class JdbcIdempotencyStore implements IdempotencyStore {
+
+    private static final int EVICTION_PERIOD_MASK = 0x3FF;
+    private static final ObjectMapper RESPONSE_MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, String>> RESPONSE_TYPE = new TypeReference<>() {
+    };
+
+    private static final String INSERT_SQL = """
+            insert into idempotency_keys (idempotency_key, fingerprint, response, expires_at_ms)
+            values (?, ?, null, ?)
+            """;
+    private static final String TAKE_OVER_SQL = """
+            update idempotency_keys set fingerprint = ?, response = null, expires_at_ms = ?
+            where idempotency_key = ? and expires_at_ms <= ?
+            """;
+    private static final String SELECT_SQL = """
+            select fingerprint, response from idempotency_keys where idempotency_key = ? and expires_at_ms > ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AtomicLong calls = new AtomicLong();
+    private final Clock clock;
+    private final RowMapper<Entry> entryMapper = (rs, rowNum) ->
+            new Entry(rs.getString("fingerprint"), readResponse(rs.getString("response")));
+
+    @Autowired
+    public JdbcIdempotencyStore(JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, Clock.systemUTC());
+    }
+
+    JdbcIdempotencyStore(JdbcTemplate jdbcTemplate, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clock = clock;
+    }
+
+    @Override
+    public Optional<Entry> claim(String key, String fingerprint, long lockMillis) {
+        long now = clock.millis();
+        if ((calls.incrementAndGet() & EVICTION_PERIOD_MASK) == 0) {
+            jdbcTemplate.update("delete from idempotency_keys where expires_at_ms <= ?", now);
+        }
+        try {
+            jdbcTemplate.update(INSERT_SQL, key, fingerprint, now + lockMillis);
+            return Optional.empty();
+        } catch (DuplicateKeyException e) {
+            if (jdbcTemplate.update(TAKE_OVER_SQL, fingerprint, now + lockMillis, key, now) == 1) {
+                return Optional.empty();
+            }
+            List<Entry> live = jdbcTemplate.query(SELECT_SQL, entryMapper, key, now);
+            // Released or expired since the insert failed: the key is free again.
+            return live.isEmpty() ? claim(key, fingerprint, lockMillis) : Optional.of(live.get(0));
+        }
+    }
+
+    @Override
+    public void complete(String key, Map<String, String> response, long ttlMillis) {
+        jdbcTemplate.update("update idempotency_keys set response = ?, expires_at_ms = ? where idempotency_key = ?",
+                writeResponse(response), clock.millis() + ttlMillis, key);
+    }
+
+    @Override
+    public void release(String key) {
+        jdbcTemplate.update("delete from idempotency_keys where idempotency_key = ? and response is null", key);
+    }
+
+    int size() {
+        return jdbcTemplate.queryForObject("select count(*) from idempotency_keys", Integer.class);
+    }
+
+    private static String writeResponse(Map<String, String> response) {
+        try {
+            return RESPONSE_MAPPER.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Réponse idempotente non sérialisable", e);
+        }
+    }
+
+    private static Map<String, String> readResponse(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return Map.copyOf(RESPONSE_MAPPER.readValue(json, RESPONSE_TYPE));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Réponse idempotente illisible", e);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package studi.doryanbessiere.jo2024.shared.persistence;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.hibernate.StaleStateException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implements {@link RetryOnOptimisticLock}. Ordered just outside the transaction interceptor, so every attempt
+ * begins and commits its own transaction; a rollback also clears an entity manager bound to the request, so the next
+ * attempt reads fresh rows. The backoff is "full jitter": a random delay up to {@code base * 2^(attempt - 1)}, capped,
+ * so retries from contending requests spread out instead of colliding again.
+ */
+@Slf4j
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class OptimisticLockRetryAspect {
+
+    public static final String RETRY_COUNTER = "jo2024.persistence.optimistic_lock.retries";
+    public static final String EXHAUSTED_COUNTER = "jo2024.persistence.optimistic_lock.exhausted";
+
+    private final MeterRegistry meterRegistry;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    public OptimisticLockRetryAspect(MeterRegistry meterRegistry,
+                                     @Value("${app.persistence.optimistic-retry.base-delay-ms:10}") long baseDelayMillis,
+                                     @Value("${app.persistence.optimistic-retry.max-delay-ms:200}") long maxDelayMillis) {
+        this.meterRegistry = meterRegistry;
+        this.baseDelayMillis = Math.max(1, baseDelayMillis);
+        this.maxDelayMillis = Math.max(this.baseDelayMillis, maxDelayMillis);
+    }
+
+    @Around("@annotation(retry)")
+    public Object retry(ProceedingJoinPoint joinPoint, RetryOnOptimisticLock retry) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+        String method = joinPoint.getSignature().getDeclaringType().getSimpleName() + "." + joinPoint.getSignature().getName();
+        int maxAttempts = Math.max(1, retry.maxAttempts());
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return joinPoint.proceed();
+            } catch (RuntimeException e) {
+                if (!isOptimisticLockFailure(e)) {
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    meterRegistry.counter(EXHAUSTED_COUNTER, "method", method).increment();
+                    log.warn("{} lost {} optimistic-lock races, giving up", method, attempt);
+                    throw e;
+                }
+                meterRegistry.counter(RETRY_COUNTER, "method", method).increment();
+                long delay = ThreadLocalRandom.current().nextLong(backoffCeiling(attempt) + 1);
+                log.debug("{} lost an optimistic-lock race (attempt {}), retrying in {} ms", method, attempt, delay);
+                TimeUnit.MILLISECONDS.sleep(delay);
+            }
+        }
+    }
+
+    long backoffCeiling(int attempt) {
+        long ceiling = baseDelayMillis << Math.min(attempt - 1, 20);
+        return Math.min(maxDelayMillis, ceiling);
+    }
+
+    static boolean isOptimisticLockFailure(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockingFailureException
+                    || cause instanceof OptimisticLockException
+                    || cause instanceof StaleStateException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,23 @@
+package studi.doryanbessiere.jo2024.shared.persistence;
+
+import java.lang.annotation.*;
+
+/**
+ * Re-executes a {@code @Transactional} service method whose commit lost an optimistic-lock race on a {@code @Version}
+ * column, after a jittered backoff, up to {@link #maxAttempts()} times. Each attempt runs in a new transaction and
+ * re-reads the rows, so the method must be safe to run again: it must decide from what it reads, not from state
+ * captured by the caller.
+ * <p>
+ * Has no effect when the method joins a transaction opened by its caller, since that transaction is already
+ * marked for rollback.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RetryOnOptimisticLock {
+
+    /**
+     * Total number of executions, the first one included.
+     */
+    int maxAttempts() default 4;
+}
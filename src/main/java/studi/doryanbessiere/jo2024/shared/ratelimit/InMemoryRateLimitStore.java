@@ -0,0 +1,165 @@
+package studi.doryanbessiere.jo2024.shared.ratelimit;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free sliding-window counter store kept in the JVM heap.
+ * <p>
+ * Each key owns a single {@link AtomicLong} packing the current window index with the
+ * counters of the current and previous windows, so recording an attempt is one CAS.
+ * The estimated count is {@code previous * (1 - elapsed) + current}, which smooths the
+ * burst allowed at the boundary of two fixed windows. Counters are local to the node: behind a load balancer
+ * without session affinity, each node grants the full quota.
+ */
+@Component
+public class InMemoryRateLimitStore implements RateLimitStore {
+
+    private static final int MAX_COUNT = 0xFFFF;
+    private static final int EVICTION_PERIOD_MASK = 0x3FF;
+
+    private final ConcurrentMap<String, Window> windows = new ConcurrentHashMap<>();
+    private final AtomicLong calls = new AtomicLong();
+    private final Clock clock;
+
+    public InMemoryRateLimitStore() {
+        this(Clock.systemUTC());
+    }
+
+    InMemoryRateLimitStore(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public long tryAcquire(String key, int limit, long windowMillis) {
+        return attempt(key, limit, windowMillis, true);
+    }
+
+    @Override
+    public long retryAfter(String key, int limit, long windowMillis) {
+        return attempt(key, limit, windowMillis, false);
+    }
+
+    @Override
+    public void release(String key, long windowMillis) {
+        Window window = windows.get(key);
+        if (window == null) {
+            return;
+        }
+        int index = (int) (clock.millis() / windowMillis);
+        while (true) {
+            long state = window.state.get();
+            int gap = index - storedIndex(state);
+            long next;
+            if (gap == 0 && currentCount(state) > 0) {
+                next = pack(index, previousCount(state), currentCount(state) - 1);
+            } else if (gap == 1 && currentCount(state) > 0) {
+                // The window rolled over since the attempt: it now counts in the previous one.
+                next = pack(index, currentCount(state) - 1, 0);
+            } else {
+                return;
+            }
+            if (window.state.compareAndSet(state, next)) {
+                return;
+            }
+        }
+    }
+
+    private long attempt(String key, int limit, long windowMillis, boolean record) {
+        long now = clock.millis();
+        if (record && (calls.incrementAndGet() & EVICTION_PERIOD_MASK) == 0) {
+            evictExpired(now);
+        }
+
+        long index = now / windowMillis;
+        long windowStart = index * windowMillis;
+        double elapsed = (double) (now - windowStart) / windowMillis;
+        Window window = record ? windows.computeIfAbsent(key, k -> new Window(windowMillis)) : windows.get(key);
+        if (window == null) {
+            return 0;
+        }
+
+        while (true) {
+            long state = window.state.get();
+            int gap = (int) index - storedIndex(state);
+            int previous = previousCount(state);
+            int current = currentCount(state);
+
+            if (gap == 1) {
+                previous = current;
+                current = 0;
+            } else if (gap != 0) {
+                previous = 0;
+                current = 0;
+            }
+
+            double estimate = previous * (1 - elapsed) + current;
+            if (estimate >= limit) {
+                return delayUntilAllowed(now, windowStart, windowMillis, limit, previous, current);
+            }
+            if (!record) {
+                return 0;
+            }
+
+            long next = pack((int) index, previous, Math.min(current + 1, MAX_COUNT));
+            if (window.state.compareAndSet(state, next)) {
+                return 0;
+            }
+        }
+    }
+
+    int size() {
+        return windows.size();
+    }
+
+    private long delayUntilAllowed(long now, long windowStart, long windowMillis, int limit, int previous, int current) {
+        long delay;
+        if (current < limit) {
+            // The previous window still weighs too much: wait until its share decays below the limit.
+            double fraction = 1 - (double) (limit - current) / previous;
+            delay = windowStart + (long) Math.ceil(fraction * windowMillis) - now;
+        } else {
+            // The current window alone is full: wait for the next one, then for this one to decay.
+            double fraction = 1 - (double) limit / current;
+            delay = windowStart + windowMillis - now + (long) Math.ceil(fraction * windowMillis);
+        }
+        return Math.max(1, delay + 1);
+    }
+
+    private void evictExpired(long now) {
+        windows.entrySet().removeIf(entry -> {
+            Window window = entry.getValue();
+            int index = (int) (now / window.windowMillis);
+            return index - storedIndex(window.state.get()) > 1;
+        });
+    }
+
+    private static long pack(int index, int previous, int current) {
+        return ((long) index << 32) | ((long) previous << 16) | current;
+    }
+
+    private static int storedIndex(long state) {
+        return (int) (state >>> 32);
+    }
+
+    private static int previousCount(long state) {
+        return (int) ((state >>> 16) & MAX_COUNT);
+    }
+
+    private static int currentCount(long state) {
+        return (int) (state & MAX_COUNT);
+    }
+
+    private static final class Window {
+        private final long windowMillis;
+        private final AtomicLong state = new AtomicLong();
+
+        private Window(long windowMillis) {
+            this.windowMillis = windowMillis;
+        }
+    }
+}
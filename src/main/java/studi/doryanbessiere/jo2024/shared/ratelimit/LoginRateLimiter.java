@@ -0,0 +1,85 @@
+package studi.doryanbessiere.jo2024.shared.ratelimit;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import studi.doryanbessiere.jo2024.common.exceptions.TooManyRequestsException;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throttles login attempts per client IP and per targeted e-mail before any password hashing
+ * or 2FA e-mail is triggered.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LoginRateLimiter {
+
+    private final RateLimitStore store;
+
+    @Value("${security.login-rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${security.login-rate-limit.ip.max-attempts:30}")
+    private int ipMaxAttempts;
+
+    @Value("${security.login-rate-limit.ip.window-seconds:60}")
+    private long ipWindowSeconds;
+
+    @Value("${security.login-rate-limit.email.max-attempts:5}")
+    private int emailMaxAttempts;
+
+    @Value("${security.login-rate-limit.email.window-seconds:300}")
+    private long emailWindowSeconds;
+
+    /**
+     * Records a login attempt and throws a {@link TooManyRequestsException} when either the IP address
+     * or the e-mail has exhausted its quota. Both quotas are checked before either is recorded, and the IP slot is
+     * given back if the e-mail's last slot went to a concurrent request in between: an attempt refused for its e-mail
+     * does not use up its IP's quota, nor the other way round.
+     *
+     * @param scope    namespace of the counters (customer, admin...)
+     * @param clientIp address of the caller, as resolved from the forwarded headers behind a proxy
+     * @param email    e-mail submitted in the login form
+     */
+    public void check(String scope, String clientIp, String email) {
+        if (!enabled) {
+            return;
+        }
+
+        String ipKey = StringUtils.hasText(clientIp) ? scope + ":ip:" + clientIp : null;
+        String emailKey = StringUtils.hasText(email) ? scope + ":email:" + email.trim().toLowerCase(Locale.ROOT) : null;
+        long ipWindowMillis = TimeUnit.SECONDS.toMillis(ipWindowSeconds);
+        long emailWindowMillis = TimeUnit.SECONDS.toMillis(emailWindowSeconds);
+
+        if (ipKey != null) {
+            throwIfThrottled(ipKey, store.retryAfter(ipKey, ipMaxAttempts, ipWindowMillis));
+        }
+        if (emailKey != null) {
+            throwIfThrottled(emailKey, store.retryAfter(emailKey, emailMaxAttempts, emailWindowMillis));
+        }
+        // Another request may have taken the last slot since: recording can still refuse.
+        if (ipKey != null) {
+            throwIfThrottled(ipKey, store.tryAcquire(ipKey, ipMaxAttempts, ipWindowMillis));
+        }
+        if (emailKey != null) {
+            long retryAfterMillis = store.tryAcquire(emailKey, emailMaxAttempts, emailWindowMillis);
+            if (retryAfterMillis > 0 && ipKey != null) {
+                store.release(ipKey, ipWindowMillis);
+            }
+            throwIfThrottled(emailKey, retryAfterMillis);
+        }
+    }
+
+    private void throwIfThrottled(String key, long retryAfterMillis) {
+        if (retryAfterMillis > 0) {
+            long retryAfterSeconds = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(retryAfterMillis + 999));
+            log.warn("Login attempts throttled for key={} retryAfter={}s", key, retryAfterSeconds);
+            throw new TooManyRequestsException(retryAfterSeconds);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package studi.doryanbessiere.jo2024.shared.ratelimit;
+
+/**
+ * Backend holding the sliding-window counters used by {@link LoginRateLimiter}.
+ */
+public interface RateLimitStore {
+
+    /**
+     * Records an attempt for the given key if the sliding window still allows it.
+     *
+     * @param key          identifier of the counter (e-mail, IP address...)
+     * @param limit        maximum number of attempts allowed per window
+     * @param windowMillis length of the sliding window in milliseconds
+     * @return {@code 0} when the attempt is allowed, otherwise the delay in milliseconds before a new attempt can succeed
+     */
+    long tryAcquire(String key, int limit, long windowMillis);
+
+    /**
+     * Same answer as {@link #tryAcquire} without recording anything, so that a caller checking several counters
+     * consumes none of them when another one refuses.
+     *
+     * @return {@code 0} when an attempt would be allowed now, otherwise the delay in milliseconds before it would be
+     */
+    long retryAfter(String key, int limit, long windowMillis);
+
+    /**
+     * Gives back an attempt {@link #tryAcquire} recorded moments ago, when the caller refuses the request on another
+     * counter. Does nothing once the attempt has left the sliding window.
+     */
+    void release(String key, long windowMillis);
+}
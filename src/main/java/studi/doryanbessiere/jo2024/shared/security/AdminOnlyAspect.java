@@ -32,5 +32,7 @@ public class AdminOnlyAspect {
         if (!"ADMIN".equalsIgnoreCase(admin.getRole())) {
             throw new AccessDeniedException();
         }
+
+        AuthenticatedAdmin.store(admin);
     }
 }
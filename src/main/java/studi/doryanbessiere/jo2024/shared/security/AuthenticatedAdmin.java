@@ -0,0 +1,36 @@
+package studi.doryanbessiere.jo2024.shared.security;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import studi.doryanbessiere.jo2024.services.admins.dto.AdminMeResponse;
+
+/**
+ * Admin resolved by {@link AdminOnlyAspect} for the current request, so handlers can attribute their actions
+ * without decoding the token a second time.
+ */
+public final class AuthenticatedAdmin {
+
+    private static final String ADMIN_ATTRIBUTE = AuthenticatedAdmin.class.getName() + ".ADMIN";
+
+    private AuthenticatedAdmin() {
+    }
+
+    static void store(AdminMeResponse admin) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(ADMIN_ATTRIBUTE, admin, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    /**
+     * @return e-mail of the admin authenticated for this request, {@code null} outside an {@link AdminOnly} handler
+     */
+    public static String currentEmail() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        Object admin = attributes.getAttribute(ADMIN_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        return admin instanceof AdminMeResponse response ? response.getEmail() : null;
+    }
+}
@@ -9,6 +9,7 @@ import studi.doryanbessiere.jo2024.common.exceptions.AccessDeniedException;
 import studi.doryanbessiere.jo2024.common.exceptions.UnauthorizedException;
 import studi.doryanbessiere.jo2024.services.customers.Customer;
 import studi.doryanbessiere.jo2024.services.customers.CustomerAuthService;
+import studi.doryanbessiere.jo2024.shared.datasource.ReadYourWritesTracker;
 
 @Aspect
 @Component
@@ -17,6 +18,7 @@ public class CustomerOnlyAspect {
 
     private final HttpServletRequest request;
     private final CustomerAuthService customerAuthService;
+    private final ReadYourWritesTracker readYourWritesTracker;
 
     @Before("@annotation(CustomerOnly)")
     public void verifyCustomerAccess() {
@@ -28,5 +30,6 @@ public class CustomerOnlyAspect {
 
         String token = header.substring(7);
         Customer customer = customerAuthService.getAuthenticatedCustomer(token);
+        readYourWritesTracker.pinIfRecent(customer.getEmail());
     }
 }
@@ -0,0 +1,8 @@
+package studi.doryanbessiere.jo2024.shared.security;
+
+/**
+ * Login payload exposing the e-mail used as throttling key.
+ */
+public interface LoginCredentials {
+    String getEmail();
+}
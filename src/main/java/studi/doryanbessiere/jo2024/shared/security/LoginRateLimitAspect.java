@@ -0,0 +1,22 @@
+package studi.doryanbessiere.jo2024.shared.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+import org.springframework.stereotype.Component;
+import studi.doryanbessiere.jo2024.shared.ratelimit.LoginRateLimiter;
+
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class LoginRateLimitAspect {
+
+    private final HttpServletRequest request;
+    private final LoginRateLimiter loginRateLimiter;
+
+    @Before("@annotation(rateLimited) && args(credentials,..)")
+    public void throttleLogin(LoginRateLimited rateLimited, LoginCredentials credentials) {
+        loginRateLimiter.check(rateLimited.value(), request.getRemoteAddr(), credentials.getEmail());
+    }
+}
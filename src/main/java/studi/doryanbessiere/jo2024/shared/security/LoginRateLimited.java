@@ -0,0 +1,17 @@
+package studi.doryanbessiere.jo2024.shared.security;
+
+import java.lang.annotation.*;
+
+/**
+ * Applies the login throttling to a controller method whose first argument is a {@link LoginCredentials}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface LoginRateLimited {
+
+    /**
+     * Namespace of the counters, so customer and admin attempts are accounted separately.
+     */
+    String value();
+}
@@ -0,0 +1,99 @@
+package studi.doryanbessiere.jo2024.shared.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.LinkData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Appends finished spans to a local file, one JSON object per line, for offline analysis of a run without a tracing
+ * backend ({@code jq}, a notebook, or a conversion to OTLP). Timestamps are epoch nanoseconds as reported by the SDK.
+ */
+@Slf4j
+public class FileSpanExporter implements SpanExporter {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Path path;
+    private BufferedWriter writer;
+
+    public FileSpanExporter(Path path) throws IOException {
+        this.path = path;
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+        if (writer == null) {
+            return CompletableResultCode.ofFailure();
+        }
+        try {
+            for (SpanData span : spans) {
+                writer.write(objectMapper.writeValueAsString(toLine(span)));
+                writer.newLine();
+            }
+            writer.flush();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            log.warn("Could not export {} spans to {}: {}", spans.size(), path, e.getMessage());
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    static Map<String, Object> toLine(SpanData span) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("trace_id", span.getTraceId());
+        line.put("span_id", span.getSpanId());
+        line.put("parent_span_id", span.getParentSpanContext().isValid() ? span.getParentSpanId() : null);
+        line.put("name", span.getName());
+        line.put("kind", span.getKind().name());
+        line.put("start_epoch_nanos", span.getStartEpochNanos());
+        line.put("end_epoch_nanos", span.getEndEpochNanos());
+        line.put("duration_micros", (span.getEndEpochNanos() - span.getStartEpochNanos()) / 1_000);
+        line.put("status", span.getStatus().getStatusCode().name());
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        span.getAttributes().forEach((key, value) -> attributes.put(key.getKey(), value));
+        line.put("attributes", attributes);
+        List<Map<String, String>> links = span.getLinks().stream()
+                .map(LinkData::getSpanContext)
+                .map(context -> Map.of("trace_id", context.getTraceId(), "span_id", context.getSpanId()))
+                .toList();
+        line.put("links", links);
+        return line;
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.warn("Could not close span file {}: {}", path, e.getMessage());
+            }
+            writer = null;
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+}
@@ -0,0 +1,67 @@
+package studi.doryanbessiere.jo2024.shared.tracing;
+
+import io.micrometer.tracing.Link;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.TraceContext;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Carries the W3C trace context across hops that are not HTTP calls from this application, such as a Stripe checkout
+ * session whose webhook comes back later on another request (and possibly another node).
+ * <p>
+ * The propagator is only registered while tracing is enabled; without it nothing is injected and extracted contexts
+ * fall back to the current span.
+ */
+@Component
+public class TracePropagation {
+
+    public static final String TRACEPARENT = "traceparent";
+
+    private final Tracer tracer;
+    private final Propagator propagator;
+
+    public TracePropagation(Tracer tracer, ObjectProvider<Propagator> propagator) {
+        this.tracer = tracer;
+        this.propagator = propagator.getIfAvailable(() -> Propagator.NOOP);
+    }
+
+    /**
+     * @return the {@code traceparent} of the current span, empty when no span is active. {@code tracestate} is left
+     * out: it only carries vendor entries, up to 512 characters, where a Stripe metadata value is capped at 500.
+     */
+    public Map<String, String> currentContext() {
+        Map<String, String> carrier = new LinkedHashMap<>();
+        TraceContext context = tracer.currentTraceContext().context();
+        if (context != null) {
+            propagator.inject(context, carrier, (fields, key, value) -> {
+                if (TRACEPARENT.equals(key)) {
+                    fields.put(key, value);
+                }
+            });
+        }
+        return carrier;
+    }
+
+    /**
+     * Starts a span continuing the trace found in {@code carrier}, linked to the span current on this thread so the
+     * request that delivered the carrier stays reachable. Without a usable carrier the span is a child of the current
+     * one.
+     */
+    public Span continueFrom(Map<String, String> carrier, String name) {
+        if (!carrier.containsKey(TRACEPARENT)) {
+            return tracer.nextSpan().name(name).start();
+        }
+        Span.Builder builder = propagator.extract(carrier, Map::get);
+        Span current = tracer.currentSpan();
+        if (current != null) {
+            builder.addLink(new Link(current));
+        }
+        return builder.name(name).start();
+    }
+}
@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
@@ -83,6 +84,18 @@ public class TwoFactorAuthService {
         return token;
     }
 
+    /**
+     * Abandoned challenges are otherwise never removed; the purge is a range delete on {@code expires_at}.
+     */
+    @Scheduled(fixedDelayString = "${security.twofactor.purge-interval-ms:600000}")
+    @Transactional
+    public void purgeExpiredChallenges() {
+        int purged = tokenRepository.deleteExpiredBefore(LocalDateTime.now(clock));
+        if (purged > 0) {
+            log.info("Purged {} expired 2FA challenges", purged);
+        }
+    }
+
     private void sendMail(String email, String displayName, String code) {
         String appName = environment.getProperty("APP_NAME", "Billetterie JO 2024");
 
@@ -5,6 +5,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -15,7 +16,13 @@ import lombok.Setter;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "two_factor_tokens")
+@Table(
+        name = "two_factor_tokens",
+        indexes = {
+                @Index(name = "idx_two_factor_tokens_email_type", columnList = "email, type"),
+                @Index(name = "idx_two_factor_tokens_expires_at", columnList = "expires_at")
+        }
+)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -1,9 +1,18 @@
 package studi.doryanbessiere.jo2024.shared.twofactor;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
 
 public interface TwoFactorTokenRepository extends JpaRepository<TwoFactorToken, String> {
 
     void deleteByEmailAndType(String email, TwoFactorTokenType type);
+
+    @Modifying
+    @Query("delete from TwoFactorToken t where t.expiresAt < :threshold")
+    int deleteExpiredBefore(@Param("threshold") LocalDateTime threshold);
 }
 
@@ -0,0 +1,2 @@
+-- Warm restart: the active ticket index replays the tickets created since its snapshot was taken.
+create index idx_tickets_created_at on tickets (created_at);
@@ -0,0 +1,2 @@
+-- Abandoned checkouts: the sweeper reads the PENDING transactions older than the checkout session TTL.
+create index idx_transactions_status_created_at on transactions (status, created_at);
@@ -0,0 +1,10 @@
+-- Idempotency-Key entries shared by every node (JdbcIdempotencyStore, app.idempotency.store=jdbc).
+create table idempotency_keys (
+    idempotency_key varchar(512) not null,
+    fingerprint char(64) not null,
+    response text,
+    expires_at_ms bigint not null,
+    primary key (idempotency_key)
+) engine=InnoDB;
+
+create index idx_idempotency_keys_expires_at_ms on idempotency_keys (expires_at_ms);
@@ -0,0 +1,6 @@
+-- Cart lines take their ids from a pooled sequence (a one-row table, as for ticket_seq and transaction_seq), so
+-- Hibernate can batch their inserts; it starts past the ids the AUTO_INCREMENT column already handed out.
+create table transaction_item_seq (next_val bigint) engine=InnoDB;
+
+insert into transaction_item_seq (next_val)
+select coalesce(max(id), 0) + 1 from transaction_items;
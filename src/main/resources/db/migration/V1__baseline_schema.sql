@@ -0,0 +1,79 @@
+-- Baseline: schema as previously maintained by spring.jpa.hibernate.ddl-auto=update (MySQL 8).
+-- Existing databases are baselined at this version (spring.flyway.baseline-on-migrate) and only run V2+.
+
+create table admins (
+    id bigint not null auto_increment,
+    email varchar(255) not null,
+    full_name varchar(255),
+    password varchar(255) not null,
+    role varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table customers (
+    id bigint not null auto_increment,
+    email varchar(255) not null,
+    first_name varchar(255),
+    last_name varchar(255),
+    password varchar(255) not null,
+    reset_expire_token varchar(255),
+    secret_key varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table offers (
+    id bigint not null auto_increment,
+    active BOOLEAN DEFAULT TRUE not null,
+    persons integer not null,
+    price float(53) not null,
+    quantity integer not null,
+    description TEXT not null,
+    name varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table transactions (
+    id bigint not null auto_increment,
+    amount float(53) not null,
+    created_at datetime(6),
+    customer_id bigint not null,
+    offer_id bigint not null,
+    offer_name varchar(255) not null,
+    stripe_session_id varchar(255),
+    status enum ('FAILED','PAID','PENDING'),
+    primary key (id)
+) engine=InnoDB;
+
+create table tickets (
+    id bigint not null auto_increment,
+    entries_allowed integer not null,
+    created_at datetime(6) not null,
+    transaction_id bigint not null,
+    customer_secret varchar(64) not null,
+    secret_key varchar(64) not null,
+    status enum ('ACTIVE','USED') not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table two_factor_tokens (
+    id varchar(255) not null,
+    consumed bit not null,
+    created_at datetime(6) not null,
+    expires_at datetime(6) not null,
+    code varchar(255) not null,
+    email varchar(255) not null,
+    type enum ('ADMIN','CUSTOMER') not null,
+    primary key (id)
+) engine=InnoDB;
+
+alter table admins add constraint uk_admins_email unique (email);
+alter table customers add constraint uk_customers_email unique (email);
+alter table customers add constraint uk_customers_secret_key unique (secret_key);
+alter table offers add constraint uk_offers_name unique (name);
+alter table tickets add constraint uk_tickets_secret_key unique (secret_key);
+
+alter table tickets
+    add constraint fk_tickets_transaction foreign key (transaction_id) references transactions (id);
+
+alter table transactions
+    add constraint fk_transactions_customer foreign key (customer_id) references customers (id);
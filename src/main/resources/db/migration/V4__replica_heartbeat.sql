@@ -0,0 +1,8 @@
+-- Heartbeat stamped on the primary and read back from the replica to measure replication lag (ReplicaLagMonitor).
+create table replica_heartbeat (
+    id bigint not null,
+    beat_at_ms bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+insert into replica_heartbeat (id, beat_at_ms) values (1, 0);
@@ -0,0 +1,16 @@
+-- Append-only scan journal written in batches by ScanJournal.
+create table ticket_scan_events (
+    id bigint not null auto_increment,
+    event_id varchar(36) not null,
+    ticket_id bigint,
+    admin_email varchar(255),
+    gate_id varchar(64) not null,
+    event_type varchar(16) not null,
+    reason varchar(64),
+    occurred_at datetime(6) not null,
+    primary key (id),
+    constraint uk_ticket_scan_events_event_id unique (event_id)
+) engine=InnoDB;
+
+create index idx_ticket_scan_events_ticket_id on ticket_scan_events (ticket_id);
+create index idx_ticket_scan_events_occurred_at on ticket_scan_events (occurred_at);
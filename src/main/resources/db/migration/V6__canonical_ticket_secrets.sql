@@ -0,0 +1,4 @@
+-- Ticket secrets are looked up by exact match on uk_tickets_secret_key (TicketSecrets.canonicalize on input).
+-- Rewrite rows stored before the canonical form was enforced; generated secrets were already upper case, so this only
+-- touches secrets entered by hand or imported.
+update tickets set secret_key = upper(trim(secret_key));
@@ -0,0 +1,5 @@
+-- A transaction may now buy several tickets of the same offer; each ticket records its position in the transaction.
+-- Existing transactions hold exactly one ticket, which becomes line 0.
+alter table transactions add column quantity int not null default 1;
+alter table tickets add column line_index int not null default 0;
+alter table tickets add constraint uk_tickets_transaction_line unique (transaction_id, line_index);
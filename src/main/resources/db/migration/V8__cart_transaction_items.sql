@@ -0,0 +1,32 @@
+-- A transaction now holds one line per offer of the cart; each ticket points at the line it was issued for.
+create table transaction_items (
+    id bigint not null auto_increment,
+    transaction_id bigint not null,
+    offer_id bigint not null,
+    offer_name varchar(255) not null,
+    unit_price float(53) not null,
+    quantity integer not null,
+    entries_allowed integer not null,
+    primary key (id)
+) engine=InnoDB;
+
+create index idx_transaction_items_transaction_id on transaction_items (transaction_id);
+
+alter table transaction_items
+    add constraint fk_transaction_items_transaction foreign key (transaction_id) references transactions (id);
+
+-- Existing transactions become single-line carts.
+insert into transaction_items (transaction_id, offer_id, offer_name, unit_price, quantity, entries_allowed)
+select t.id, t.offer_id, t.offer_name, t.amount / t.quantity, t.quantity,
+       coalesce((select greatest(o.persons, 1) from offers o where o.id = t.offer_id), 1)
+from transactions t;
+
+alter table tickets add column transaction_item_id bigint;
+
+update tickets
+set transaction_item_id = (select i.id from transaction_items i where i.transaction_id = tickets.transaction_id);
+
+create index idx_tickets_transaction_item_id on tickets (transaction_item_id);
+
+alter table tickets
+    add constraint fk_tickets_transaction_item foreign key (transaction_item_id) references transaction_items (id);
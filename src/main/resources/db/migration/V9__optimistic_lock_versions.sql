@@ -0,0 +1,4 @@
+-- Optimistic locking: every write to an offer, transaction or ticket checks and bumps its version.
+alter table offers add column version bigint not null default 0;
+alter table transactions add column version bigint not null default 0;
+alter table tickets add column version bigint not null default 0;
@@ -13,6 +13,7 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import studi.doryanbessiere.jo2024.common.Routes;
 import studi.doryanbessiere.jo2024.common.exceptions.InvalidCredentialsException;
+import studi.doryanbessiere.jo2024.common.exceptions.TooManyRequestsException;
 import studi.doryanbessiere.jo2024.common.validation.password.PasswordMatches;
 import studi.doryanbessiere.jo2024.common.validation.password.ValidPassword;
 import studi.doryanbessiere.jo2024.notifications.EmailNotificationService;
@@ -228,6 +229,28 @@ class CustomerAuthControllerTest {
                 .andExpect(jsonPath("$.message").value(InvalidCredentialsException.DEFAULT_CODE));
     }
 
+    @Test
+    void shouldThrottleRepeatedLoginAttemptsForTheSameEmail() throws Exception {
+        var loginPayload = new java.util.HashMap<String, String>();
+        loginPayload.put("email", "throttled@example.com");
+        loginPayload.put("password", "SomePass123");
+        String body = objectMapper.writeValueAsString(loginPayload);
+
+        for (int i = 0; i < 5; i++) {
+            mockMvc.perform(post(Routes.Auth.Customer.BASE + Routes.Auth.Customer.LOGIN)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(body))
+                    .andExpect(status().isUnauthorized());
+        }
+
+        mockMvc.perform(post(Routes.Auth.Customer.BASE + Routes.Auth.Customer.LOGIN)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"))
+                .andExpect(jsonPath("$.code").value(TooManyRequestsException.DEFAULT_CODE));
+    }
+
     @Test
     void shouldRejectLoginWithEmptyFields() throws Exception {
         // Attempt to login with empty email and password
@@ -0,0 +1,85 @@
+package studi.doryanbessiere.jo2024.config;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import studi.doryanbessiere.jo2024.config.migration.SchemaIndexVerifier;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the real migrations on H2 in MySQL compatibility mode, for a fresh database and for a database previously
+ * maintained by {@code ddl-auto=update}.
+ */
+class FlywayMigrationTest {
+
+    @Test
+    void freshDatabaseShouldGetFullSchemaAndIndexes() throws Exception {
+        DataSource dataSource = newDatabase();
+
+        MigrateResult result = flyway(dataSource).migrate();
+
+        assertEquals(13, result.migrationsExecuted);
+        assertTrue(new SchemaIndexVerifier(dataSource).missingIndexes().isEmpty());
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        assertEquals(1L, jdbc.queryForObject("select next_val from ticket_seq", Long.class));
+        assertEquals(1L, jdbc.queryForObject("select next_val from transaction_seq", Long.class));
+        assertEquals(1L, jdbc.queryForObject("select next_val from transaction_item_seq", Long.class));
+    }
+
+    @Test
+    void legacyDatabaseShouldBeBaselinedThenIndexedAndSequencesAligned() throws Exception {
+        DataSource dataSource = newDatabase();
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__baseline_schema.sql")).execute(dataSource);
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.update("insert into customers (id, email, password, secret_key) values (7, 'legacy@example.com', 'x', 'CUS-LEGACY')");
+        jdbc.update("insert into transactions (id, amount, customer_id, offer_id, offer_name, status) values (41, 10, 7, 1, 'Pack', 'PAID')");
+        jdbc.update("insert into tickets (id, entries_allowed, created_at, transaction_id, customer_secret, secret_key, status) "
+                + "values (120, 1, current_timestamp, 41, 'CUS-LEGACY', ' tck-legacy', 'ACTIVE')");
+
+        SchemaIndexVerifier verifier = new SchemaIndexVerifier(dataSource);
+        List<String> missingBefore = verifier.missingIndexes();
+        assertFalse(missingBefore.isEmpty());
+        assertThrows(IllegalStateException.class, () -> verifier.run(null));
+
+        MigrateResult result = flyway(dataSource).migrate();
+
+        assertEquals(12, result.migrationsExecuted);
+        assertTrue(verifier.missingIndexes().isEmpty());
+        assertEquals(121L, jdbc.queryForObject("select next_val from ticket_seq", Long.class));
+        assertEquals(42L, jdbc.queryForObject("select next_val from transaction_seq", Long.class));
+        assertEquals(0L, jdbc.queryForObject("select count(*) from offer_catalog_version", Long.class));
+        assertEquals("TCK-LEGACY", jdbc.queryForObject("select secret_key from tickets where id = 120", String.class));
+        Long itemId = jdbc.queryForObject("select id from transaction_items where transaction_id = 41", Long.class);
+        assertEquals(itemId, jdbc.queryForObject("select transaction_item_id from tickets where id = 120", Long.class));
+        assertEquals(itemId + 1, jdbc.queryForObject("select next_val from transaction_item_seq", Long.class));
+        assertEquals(10.0, jdbc.queryForObject("select unit_price from transaction_items where id = ?", Double.class, itemId));
+        assertEquals(0L, jdbc.queryForObject("select version from tickets where id = 120", Long.class));
+    }
+
+    private Flyway flyway(DataSource dataSource) {
+        return Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration", "classpath:studi/doryanbessiere/jo2024/config/migration")
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load();
+    }
+
+    private DataSource newDatabase() {
+        return new DriverManagerDataSource(
+                "jdbc:h2:mem:flyway-" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "sa", "");
+    }
+}
@@ -0,0 +1,73 @@
+package studi.doryanbessiere.jo2024.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import studi.doryanbessiere.jo2024.common.exceptions.InvalidCredentialsException;
+import studi.doryanbessiere.jo2024.notifications.EmailNotificationService;
+import studi.doryanbessiere.jo2024.services.customers.CustomerAuthService;
+import studi.doryanbessiere.jo2024.services.customers.CustomerRepository;
+import studi.doryanbessiere.jo2024.services.customers.dto.LoginRequest;
+import studi.doryanbessiere.jo2024.services.customers.dto.RegisterRequest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@AutoConfigureObservability(tracing = false)
+@ActiveProfiles("test")
+class MetricsTest {
+
+    @Autowired
+    private CustomerAuthService customerAuthService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PrometheusMeterRegistry prometheusMeterRegistry;
+
+    @MockBean
+    private EmailNotificationService emailNotificationService;
+
+    @BeforeEach
+    void setUp() {
+        customerRepository.deleteAll();
+    }
+
+    @Test
+    void loginIsTimedPerOutcomeAndExportedWithHistogramBuckets() {
+        RegisterRequest register = new RegisterRequest();
+        register.setFirstname("Jean");
+        register.setLastname("Dupont");
+        register.setEmail("metrics@example.com");
+        register.setPassword("Password123");
+        register.setConfirmPassword("Password123");
+        customerAuthService.register(register);
+
+        LoginRequest login = new LoginRequest();
+        login.setEmail("metrics@example.com");
+        login.setPassword("Password123");
+        customerAuthService.login(login);
+        login.setPassword("WrongPassword1");
+        assertThrows(InvalidCredentialsException.class, () -> customerAuthService.login(login));
+
+        assertEquals(1, meterRegistry.get("jo2024.auth.login").tag("exception", "none").timer().count());
+        assertEquals(1, meterRegistry.get("jo2024.auth.login")
+                .tag("exception", "InvalidCredentialsException").timer().count());
+
+        String scrape = prometheusMeterRegistry.scrape();
+        assertTrue(scrape.contains("jo2024_auth_login_seconds_bucket"), "login histogram exported");
+        assertTrue(scrape.contains("hikaricp_connections_acquire_seconds_bucket"), "pool wait histogram exported");
+    }
+}
@@ -0,0 +1,34 @@
+package studi.doryanbessiere.jo2024.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskHolder;
+import org.springframework.test.context.ActiveProfiles;
+import studi.doryanbessiere.jo2024.notifications.EmailNotificationService;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class SchedulingConfigTest {
+
+    @Autowired
+    private ThreadPoolTaskScheduler taskScheduler;
+
+    @Autowired
+    private ScheduledTaskHolder scheduledTaskHolder;
+
+    @MockBean
+    private EmailNotificationService emailNotificationService;
+
+    @Test
+    void everyScheduledJobShouldHaveItsOwnThread() {
+        int jobs = scheduledTaskHolder.getScheduledTasks().size();
+
+        assertTrue(taskScheduler.getPoolSize() >= jobs,
+                "spring.task.scheduling.pool.size " + taskScheduler.getPoolSize() + " < " + jobs + " @Scheduled jobs");
+    }
+}
@@ -1,8 +1,10 @@
 package studi.doryanbessiere.jo2024.notifications;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 import studi.doryanbessiere.jo2024.notifications.dto.EmailRequest;
@@ -12,8 +14,10 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 class EmailNotificationServiceTest {
@@ -26,7 +30,7 @@ class EmailNotificationServiceTest {
     void setUp() {
         mailSender = mock(JavaMailSenderImpl.class);
         templateEngine = new TextTemplateEngine();
-        service = new EmailNotificationService(mailSender, templateEngine);
+        service = new EmailNotificationService(mailSender, templateEngine, false, 0, new SimpleMeterRegistry());
 
         createTemplate("test-template", "Bonjour {{firstname}}, votre code est {{code}}.");
     }
@@ -80,6 +84,68 @@ class EmailNotificationServiceTest {
         assertEquals("Ceci est un message texte brut", sentMessage.getText());
     }
 
+    @Test
+    void shouldRunSmtpExchangeOnPlatformThreadWhenVirtualThreadsEnabled() throws Exception {
+        EmailNotificationService virtualThreadService =
+                new EmailNotificationService(mailSender, templateEngine, true, 1, new SimpleMeterRegistry());
+        AtomicBoolean sentFromVirtualThread = new AtomicBoolean(true);
+        doAnswer(invocation -> {
+            sentFromVirtualThread.set(Thread.currentThread().isVirtual());
+            return null;
+        }).when(mailSender).send(any(SimpleMailMessage.class));
+
+        EmailRequest request = EmailRequest.builder()
+                .to("user@example.com")
+                .subject("Test brut")
+                .message("Ceci est un message texte brut")
+                .build();
+
+        Thread caller = Thread.ofVirtual().start(() -> virtualThreadService.sendNotification(request));
+        caller.join();
+
+        verify(mailSender, times(1)).send(any(SimpleMailMessage.class));
+        assertFalse(sentFromVirtualThread.get());
+        virtualThreadService.shutdown();
+    }
+
+    @Test
+    void shouldPropagateMailFailuresFromSmtpThread() {
+        EmailNotificationService virtualThreadService =
+                new EmailNotificationService(mailSender, templateEngine, true, 1, new SimpleMeterRegistry());
+        doThrow(new MailSendException("smtp down")).when(mailSender).send(any(SimpleMailMessage.class));
+
+        EmailRequest request = EmailRequest.builder()
+                .to("user@example.com")
+                .subject("Test brut")
+                .message("Ceci est un message texte brut")
+                .build();
+
+        assertThrows(MailSendException.class, () -> virtualThreadService.sendNotification(request));
+        virtualThreadService.shutdown();
+    }
+
+    @Test
+    void shouldTimeDeliveriesByTemplateAndOutcome() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        EmailNotificationService meteredService =
+                new EmailNotificationService(mailSender, templateEngine, false, 0, meterRegistry);
+        EmailRequest request = EmailRequest.builder()
+                .to("jean.dupont@example.com")
+                .subject("Code de vérification")
+                .templateName("mails/test-template")
+                .variables(Map.of("firstname", "Jean", "code", "123456"))
+                .build();
+
+        meteredService.sendNotification(request);
+        doThrow(new MailSendException("smtp down")).when(mailSender).send(any(SimpleMailMessage.class));
+        assertThrows(MailSendException.class, () -> meteredService.sendNotification(request));
+
+        assertEquals(1, meterRegistry.get("jo2024.email.send")
+                .tags("template", "mails/test-template", "outcome", "success").timer().count());
+        assertEquals(1, meterRegistry.get("jo2024.email.send")
+                .tags("template", "mails/test-template", "outcome", "failure").timer().count());
+    }
+
     /**
      * Crée un template de test dans le dossier src/test/resources/templates/mails/
      */
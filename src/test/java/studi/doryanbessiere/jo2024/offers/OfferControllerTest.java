@@ -1,5 +1,6 @@
 package studi.doryanbessiere.jo2024.offers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -15,6 +16,8 @@ import studi.doryanbessiere.jo2024.config.SecurityConfig;
 import studi.doryanbessiere.jo2024.services.admins.AdminAuthService;
 import studi.doryanbessiere.jo2024.services.admins.dto.AdminMeResponse;
 import studi.doryanbessiere.jo2024.services.offers.Offer;
+import studi.doryanbessiere.jo2024.services.offers.OfferCatalog;
+import studi.doryanbessiere.jo2024.services.offers.OfferCatalogSnapshot;
 import studi.doryanbessiere.jo2024.services.offers.OfferController;
 import studi.doryanbessiere.jo2024.services.offers.OfferService;
 import studi.doryanbessiere.jo2024.shared.security.AdminOnlyAspect;
@@ -28,6 +31,8 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -46,6 +51,9 @@ class OfferControllerTest {
     @MockBean
     private OfferService offerService;
 
+    @MockBean
+    private OfferCatalog offerCatalog;
+
     @MockBean
     private AdminAuthService adminAuthService;
 
@@ -70,13 +78,43 @@ class OfferControllerTest {
                 .quantity(50)
                 .build();
 
-        Mockito.when(offerService.getAllOffers()).thenReturn(List.of(offer1, offer2));
+        OfferCatalogSnapshot snapshot = OfferCatalogSnapshot.of(1L, List.of(offer1, offer2), new ObjectMapper());
+        Mockito.when(offerCatalog.current()).thenReturn(snapshot);
 
         mockMvc.perform(get("/offers"))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", snapshot.etag()))
+                .andExpect(header().string("Cache-Control", "max-age=10, public"))
                 .andExpect(jsonPath("$", hasSize(2)))
                 .andExpect(jsonPath("$[0].name").value("Pack Cérémonie d'ouverture"))
                 .andExpect(jsonPath("$[1].price").value(120.0));
+
+        Mockito.verifyNoInteractions(offerService);
+    }
+
+    @Test
+    @DisplayName("GET /offers renvoie 304 sans corps quand l'ETag correspond")
+    void getAllOffers_shouldReturnNotModified_whenEtagMatches() throws Exception {
+        Offer offer = Offer.builder()
+                .id(1L)
+                .name("Pack Cérémonie d'ouverture")
+                .description("Accès à la cérémonie d'ouverture des JO 2024")
+                .price(150.0)
+                .persons(1)
+                .quantity(100)
+                .build();
+
+        OfferCatalogSnapshot snapshot = OfferCatalogSnapshot.of(3L, List.of(offer), new ObjectMapper());
+        Mockito.when(offerCatalog.current()).thenReturn(snapshot);
+
+        mockMvc.perform(get("/offers").header("If-None-Match", "W/\"stale\", " + snapshot.etag()))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", snapshot.etag()))
+                .andExpect(content().string(""));
+
+        mockMvc.perform(get("/offers").header("If-None-Match", "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
     }
 
     @Test
@@ -0,0 +1,84 @@
+package studi.doryanbessiere.jo2024.services.gates;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import studi.doryanbessiere.jo2024.services.gates.dto.GateDashboardSnapshot;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GateActivityServiceTest {
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-07-26T18:00:00Z");
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    private MutableClock clock;
+    private GateActivityService service;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock();
+        service = new GateActivityService(clock, 64);
+    }
+
+    private static GateDashboardSnapshot.Counter counter(List<GateDashboardSnapshot.Counter> counters, String key) {
+        return counters.stream().filter(c -> c.getKey().equals(key)).findFirst().orElseThrow();
+    }
+
+    @Test
+    void aggregatesPerGateAndPerOffer() {
+        service.record(GateEvent.Type.SCANNED, "porte-A", 1L, "Solo", 10L, null);
+        service.record(GateEvent.Type.VALIDATED, "porte-A", 1L, "Solo", 10L, null);
+        service.record(GateEvent.Type.VALIDATED, "porte-B", 2L, "Famille", 11L, null);
+        service.record(GateEvent.Type.REJECTED, " ", null, null, null, "ticket_not_found");
+
+        GateDashboardSnapshot snapshot = service.snapshot(List.of(), 0);
+
+        GateDashboardSnapshot.Counter gateA = counter(snapshot.getGates(), "porte-A");
+        assertEquals(1, gateA.getScans());
+        assertEquals(1, gateA.getValidations());
+        assertEquals(1, gateA.getEntriesLastMinute());
+        assertEquals(1, counter(snapshot.getGates(), GateActivityService.UNKNOWN_GATE).getRejections());
+
+        assertEquals(2, snapshot.getOffers().size());
+        assertEquals("Famille", counter(snapshot.getOffers(), "2").getLabel());
+        assertEquals(4, service.ring().head());
+    }
+
+    @Test
+    void entryRateOnlyCoversTheLastMinute() {
+        service.record(GateEvent.Type.VALIDATED, "porte-A", 1L, "Solo", 10L, null);
+        clock.now = clock.now.plusSeconds(30);
+        service.record(GateEvent.Type.VALIDATED, "porte-A", 1L, "Solo", 11L, null);
+        assertEquals(2, counter(service.snapshot(List.of(), 0).getGates(), "porte-A").getEntriesLastMinute());
+
+        clock.now = clock.now.plusSeconds(45);
+        GateDashboardSnapshot.Counter gateA = counter(service.snapshot(List.of(), 0).getGates(), "porte-A");
+        assertEquals(1, gateA.getEntriesLastMinute());
+        assertEquals(2, gateA.getValidations());
+
+        clock.now = clock.now.plusSeconds(3600);
+        assertEquals(0, counter(service.snapshot(List.of(), 0).getGates(), "porte-A").getEntriesLastMinute());
+    }
+}
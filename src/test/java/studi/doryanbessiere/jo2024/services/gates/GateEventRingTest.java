@@ -0,0 +1,57 @@
+package studi.doryanbessiere.jo2024.services.gates;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GateEventRingTest {
+
+    private static GateEvent event(long ticketId) {
+        return new GateEvent(GateEvent.Type.VALIDATED, "porte-A", 1L, "Solo", ticketId, null, Instant.EPOCH);
+    }
+
+    @Test
+    void capacityIsRoundedUpToPowerOfTwo() {
+        assertEquals(8, new GateEventRing(5).capacity());
+        assertEquals(8, new GateEventRing(8).capacity());
+    }
+
+    @Test
+    void consumerReadsEventsInOrderAndResumesFromItsCursor() {
+        GateEventRing ring = new GateEventRing(8);
+        long cursor = ring.head();
+        for (long i = 0; i < 5; i++) {
+            ring.publish(event(i));
+        }
+
+        GateEventRing.Batch first = ring.readFrom(cursor, 3);
+        assertEquals(3, first.events().size());
+        assertEquals(0L, first.events().get(0).ticketId());
+        assertEquals(0, first.dropped());
+
+        GateEventRing.Batch second = ring.readFrom(first.nextCursor(), 10);
+        assertEquals(2, second.events().size());
+        assertEquals(3L, second.events().get(0).ticketId());
+        assertEquals(ring.head(), second.nextCursor());
+        assertTrue(ring.readFrom(second.nextCursor(), 10).events().isEmpty());
+    }
+
+    @Test
+    void lappedConsumerSkipsOverwrittenEventsAndCountsThem() {
+        GateEventRing ring = new GateEventRing(4);
+        long cursor = ring.head();
+        for (long i = 0; i < 10; i++) {
+            ring.publish(event(i));
+        }
+
+        GateEventRing.Batch batch = ring.readFrom(cursor, 10);
+
+        assertEquals(6, batch.dropped());
+        assertEquals(4, batch.events().size());
+        assertEquals(6L, batch.events().get(0).ticketId());
+        assertEquals(10, batch.nextCursor());
+    }
+}
@@ -0,0 +1,107 @@
+package studi.doryanbessiere.jo2024.services.gates;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import studi.doryanbessiere.jo2024.services.gates.dto.GateOccupancySnapshot;
+import studi.doryanbessiere.jo2024.services.scans.TicketScanEventRepository;
+import studi.doryanbessiere.jo2024.services.tickets.TicketRepository;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class GateOccupancyTest {
+
+    private static final Instant NOW = Instant.parse("2024-07-26T18:00:00Z");
+
+    @Mock
+    private TicketRepository ticketRepository;
+
+    @Mock
+    private TicketScanEventRepository scanEventRepository;
+
+    @Test
+    void loadShouldCountEachTicketOnceAndSplitItByGate() {
+        when(ticketRepository.findUsedAfter(0L, Limit.of(2))).thenReturn(List.of(
+                new OccupancyRow(10L, 10L, 1L, 1),
+                new OccupancyRow(11L, 11L, 2L, 4)));
+        when(ticketRepository.findUsedAfter(11L, Limit.of(2))).thenReturn(List.of(
+                new OccupancyRow(12L, 12L, 1L, 1)));
+        when(scanEventRepository.findValidatedAfter(0L, Limit.of(2))).thenReturn(List.of(
+                new OccupancyRow(500L, 10L, 1L, 1, "porte-A"),
+                new OccupancyRow(501L, 11L, 2L, 4, "porte-B")));
+        when(scanEventRepository.findValidatedAfter(501L, Limit.of(2))).thenReturn(List.of(
+                new OccupancyRow(502L, 12L, 1L, 1, "porte-B")));
+        GateOccupancy occupancy = occupancy(true);
+
+        occupancy.load();
+
+        GateOccupancySnapshot snapshot = occupancy.snapshot();
+        assertTrue(snapshot.isLoaded());
+        assertEquals(3, snapshot.getTicketsValidated());
+        assertEquals(6, snapshot.getEntries());
+        GateOccupancySnapshot.Offer solo = snapshot.getOffers().get(0);
+        assertEquals(1L, solo.getOfferId());
+        assertEquals(2, solo.getTicketsValidated());
+        assertEquals(List.of(new GateOccupancySnapshot.Gate("porte-A", 1), new GateOccupancySnapshot.Gate("porte-B", 1)),
+                solo.getGates());
+        GateOccupancySnapshot.Offer family = snapshot.getOffers().get(1);
+        assertEquals(4, family.getEntries());
+        assertEquals(List.of(new GateOccupancySnapshot.Gate("porte-B", 1)), family.getGates());
+        assertTrue(snapshot.getMemoryBytes() > 0);
+    }
+
+    @Test
+    void syncShouldReadTheJournalSinceTheLastSyncLessTheMargin() {
+        when(ticketRepository.findUsedAfter(anyLong(), any(Limit.class))).thenReturn(List.of());
+        when(scanEventRepository.findValidatedAfter(anyLong(), any(Limit.class))).thenReturn(List.of());
+        OffsetDateTime since = OffsetDateTime.ofInstant(NOW.minusSeconds(60), ZoneId.of("Europe/Paris"));
+        // Validated here then journaled: the sync reads it back without counting its entries twice.
+        when(scanEventRepository.findValidatedSince(eq(since), eq(0L), any(Limit.class))).thenReturn(List.of(
+                new OccupancyRow(900L, 20L, 3L, 2, "porte-C"),
+                new OccupancyRow(901L, 21L, 3L, 2, "porte-D")));
+        GateOccupancy occupancy = occupancy(true);
+        occupancy.load();
+        occupancy.recordValidation(20L, 3L, 2, "porte-C");
+
+        occupancy.sync();
+
+        GateOccupancySnapshot.Offer offer = occupancy.snapshot().getOffers().get(0);
+        assertEquals(2, offer.getTicketsValidated());
+        assertEquals(4, offer.getEntries());
+        assertEquals(2, offer.getGates().size());
+    }
+
+    @Test
+    void disabledOccupancyShouldNeitherLoadNorRecord() {
+        GateOccupancy occupancy = occupancy(false);
+
+        occupancy.load();
+        occupancy.recordValidation(20L, 3L, 2, "porte-C");
+        occupancy.sync();
+
+        assertFalse(occupancy.isLoaded());
+        assertTrue(occupancy.snapshot().getOffers().isEmpty());
+        verifyNoInteractions(ticketRepository, scanEventRepository);
+    }
+
+    private GateOccupancy occupancy(boolean enabled) {
+        return new GateOccupancy(ticketRepository, scanEventRepository, enabled, 2, 60, Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+}
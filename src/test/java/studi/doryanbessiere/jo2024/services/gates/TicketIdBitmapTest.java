@@ -0,0 +1,83 @@
+package studi.doryanbessiere.jo2024.services.gates;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TicketIdBitmapTest {
+
+    @Test
+    void addShouldReportNewIdsOnlyAndKeepTheCardinality() {
+        TicketIdBitmap bitmap = new TicketIdBitmap();
+
+        assertTrue(bitmap.add(42));
+        assertFalse(bitmap.add(42));
+        assertTrue(bitmap.add(1L << 40));
+        assertTrue(bitmap.add(0));
+
+        assertEquals(3, bitmap.cardinality());
+        assertTrue(bitmap.contains(42));
+        assertTrue(bitmap.contains(1L << 40));
+        assertFalse(bitmap.contains(43));
+        assertFalse(bitmap.contains(-1));
+        assertThrows(IllegalArgumentException.class, () -> bitmap.add(-1));
+    }
+
+    @Test
+    void denseChunksShouldSwitchToABitmapWithoutLosingIds() {
+        TicketIdBitmap bitmap = new TicketIdBitmap();
+        int ids = TicketIdBitmap.ARRAY_MAX * 3;
+        for (int i = ids - 1; i >= 0; i--) {
+            bitmap.add(70_000L + i * 2L);
+        }
+
+        assertEquals(ids, bitmap.cardinality());
+        for (int i = 0; i < ids; i++) {
+            assertTrue(bitmap.contains(70_000L + i * 2L));
+            assertFalse(bitmap.contains(70_001L + i * 2L));
+        }
+        assertFalse(bitmap.add(70_000L));
+        assertTrue(bitmap.sizeInBytes() < ids * Long.BYTES, "more compact than a long per id");
+    }
+
+    @Test
+    void andCardinalityShouldMatchASetIntersectionAcrossChunkKinds() {
+        Random random = new Random(2024);
+        TicketIdBitmap offer = new TicketIdBitmap();
+        TicketIdBitmap gate = new TicketIdBitmap();
+        Set<Long> offerIds = new HashSet<>();
+        Set<Long> gateIds = new HashSet<>();
+        // Dense and sparse chunks on both sides, so array/array, array/bitmap and bitmap/bitmap pairs all occur.
+        for (int i = 0; i < 30_000; i++) {
+            long dense = random.nextInt(20_000);
+            long sparse = 200_000L + random.nextInt(1_000_000);
+            offer.add(dense);
+            offerIds.add(dense);
+            if (i % 3 == 0) {
+                offer.add(sparse);
+                offerIds.add(sparse);
+            } else {
+                gate.add(sparse);
+                gateIds.add(sparse);
+            }
+            if (i % 2 == 0) {
+                gate.add(dense + 5);
+                gateIds.add(dense + 5);
+            }
+        }
+        Set<Long> both = new HashSet<>(offerIds);
+        both.retainAll(gateIds);
+
+        assertEquals(offerIds.size(), offer.cardinality());
+        assertEquals(gateIds.size(), gate.cardinality());
+        assertEquals(both.size(), offer.andCardinality(gate));
+        assertEquals(both.size(), gate.andCardinality(offer));
+    }
+}
@@ -0,0 +1,176 @@
+package studi.doryanbessiere.jo2024.services.monitoring;
+
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import studi.doryanbessiere.jo2024.notifications.EmailNotificationService;
+import studi.doryanbessiere.jo2024.services.customers.Customer;
+import studi.doryanbessiere.jo2024.services.customers.CustomerRepository;
+import studi.doryanbessiere.jo2024.services.monitoring.dto.CacheStatisticsResponse;
+import studi.doryanbessiere.jo2024.services.offers.Offer;
+import studi.doryanbessiere.jo2024.services.offers.OfferRepository;
+import studi.doryanbessiere.jo2024.services.offers.OfferService;
+import studi.doryanbessiere.jo2024.services.offers.OfferStockService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Counts the SQL statements issued by the lookups a checkout performs (customer resolved from the JWT e-mail,
+ * then the offer by id), each simulated request running in its own transaction as in production.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:second-level-cache;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=true"
+})
+@ActiveProfiles("test")
+class SecondLevelCacheTest {
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private OfferService offerService;
+
+    @Autowired
+    private OfferStockService offerStockService;
+
+    @Autowired
+    private CacheStatisticsService cacheStatisticsService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private EmailNotificationService emailNotificationService;
+
+    private TransactionTemplate requestTransaction;
+    private Long offerId;
+
+    @BeforeEach
+    void setUp() {
+        requestTransaction = new TransactionTemplate(transactionManager);
+        customerRepository.deleteAll();
+        offerRepository.deleteAll();
+        entityManagerFactory.getCache().evictAll();
+
+        customerRepository.save(Customer.builder()
+                .firstName("Jean")
+                .lastName("Dupont")
+                .email("cache@example.com")
+                .password("encoded")
+                .secretKey("CUS-CACHE")
+                .build());
+        offerId = offerRepository.save(Offer.builder()
+                .name("Pack Cache")
+                .description("Offre de test")
+                .price(80.0)
+                .persons(1)
+                .quantity(10)
+                .active(true)
+                .build()).getId();
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void repeatedCheckoutLookupsShouldNotHitTheDatabase() {
+        long cold = statementsFor(this::checkoutLookups);
+        long warm = statementsFor(this::checkoutLookups);
+
+        assertEquals(2, cold, "customer by e-mail + offer by id");
+        assertEquals(0, warm, "both lookups served from the second-level and query caches");
+
+        CacheStatisticsResponse response = cacheStatisticsService.getStatistics();
+        assertTrue(response.getSecondLevelCacheHitCount() > 0);
+        assertTrue(response.getQueryCacheHitCount() > 0);
+        assertTrue(response.getRegions().stream().anyMatch(region -> region.getName().equals("offers")));
+    }
+
+    @Test
+    void offerUpdateShouldBeVisibleToTheNextLookup() {
+        checkoutLookups();
+
+        Offer changes = Offer.builder()
+                .name("Pack Cache renommé")
+                .description("Offre de test")
+                .price(95.0)
+                .persons(1)
+                .build();
+        offerService.updateOffer(offerId, changes);
+
+        Offer reloaded = requestTransaction.execute(status -> offerRepository.findById(offerId).orElseThrow());
+        assertEquals("Pack Cache renommé", reloaded.getName());
+        assertEquals(95.0, reloaded.getPrice());
+    }
+
+    @Test
+    void stockReservationShouldEvictOnlyTheOfferItChanged() {
+        Long otherId = offerRepository.save(Offer.builder()
+                .name("Pack Autre")
+                .description("Offre de test")
+                .price(40.0)
+                .persons(1)
+                .quantity(5)
+                .active(true)
+                .build()).getId();
+        requestTransaction.executeWithoutResult(status -> {
+            offerRepository.findById(offerId).orElseThrow();
+            offerRepository.findById(otherId).orElseThrow();
+        });
+
+        offerStockService.reserve(Map.of(offerId, 2));
+
+        assertEquals(0, statementsFor(() -> requestTransaction.executeWithoutResult(
+                status -> offerRepository.findById(otherId).orElseThrow())), "untouched offer still cached");
+        Offer reserved = requestTransaction.execute(status -> offerRepository.findById(offerId).orElseThrow());
+        assertEquals(8, reserved.getQuantity());
+        assertEquals(1, reserved.getVersion());
+    }
+
+    @Test
+    void newCustomerShouldInvalidateCachedEmptyLookup() {
+        String email = "late@example.com";
+        requestTransaction.executeWithoutResult(status -> assertTrue(customerRepository.findByEmail(email).isEmpty()));
+
+        customerRepository.save(Customer.builder()
+                .firstName("Late")
+                .lastName("Comer")
+                .email(email)
+                .password("encoded")
+                .secretKey("CUS-LATE")
+                .build());
+
+        requestTransaction.executeWithoutResult(status -> assertTrue(customerRepository.findByEmail(email).isPresent()));
+    }
+
+    private void checkoutLookups() {
+        requestTransaction.executeWithoutResult(status -> {
+            customerRepository.findByEmail("cache@example.com").orElseThrow();
+            offerRepository.findById(offerId).orElseThrow();
+        });
+    }
+
+    private long statementsFor(Runnable action) {
+        Statistics statistics = cacheStatisticsService.statistics();
+        long before = statistics.getPrepareStatementCount();
+        action.run();
+        return statistics.getPrepareStatementCount() - before;
+    }
+}
@@ -0,0 +1,99 @@
+package studi.doryanbessiere.jo2024.services.offers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OfferCatalogTest {
+
+    @Mock
+    private OfferRepository offerRepository;
+
+    @Mock
+    private OfferCatalogVersionRepository versionRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private OfferCatalog offerCatalog;
+
+    @BeforeEach
+    void setUp() {
+        offerCatalog = new OfferCatalog(offerRepository, versionRepository, objectMapper, transactionManager);
+    }
+
+    @Test
+    void currentShouldBuildOnceAndServePrecomputedBytes() throws Exception {
+        List<Offer> offers = List.of(offer(1L, "Pack Solo"));
+        when(versionRepository.findCurrentVersion()).thenReturn(Optional.of(4L));
+        when(offerRepository.findAll(any(Sort.class))).thenReturn(offers);
+
+        OfferCatalogSnapshot first = offerCatalog.current();
+        OfferCatalogSnapshot second = offerCatalog.current();
+
+        assertSame(first, second);
+        assertEquals(4L, first.version());
+        assertArrayEquals(objectMapper.writeValueAsBytes(offers), first.json());
+        verify(offerRepository, times(1)).findAll(any(Sort.class));
+    }
+
+    @Test
+    void pollShouldRebuildOnlyWhenVersionMoved() {
+        when(versionRepository.findCurrentVersion()).thenReturn(Optional.of(1L));
+        when(offerRepository.findAll(any(Sort.class))).thenReturn(List.of(offer(1L, "Pack Solo")));
+        OfferCatalogSnapshot initial = offerCatalog.current();
+
+        offerCatalog.pollVersion();
+        assertSame(initial, offerCatalog.current());
+
+        when(versionRepository.findCurrentVersion()).thenReturn(Optional.of(2L));
+        when(offerRepository.findAll(any(Sort.class))).thenReturn(List.of(offer(1L, "Pack Duo")));
+        offerCatalog.pollVersion();
+
+        OfferCatalogSnapshot rebuilt = offerCatalog.current();
+        assertEquals(2L, rebuilt.version());
+        assertNotEquals(initial.etag(), rebuilt.etag());
+    }
+
+    @Test
+    void etagShouldDependOnContentOnly() {
+        List<Offer> offers = List.of(offer(1L, "Pack Solo"));
+
+        OfferCatalogSnapshot a = OfferCatalogSnapshot.of(1L, offers, objectMapper);
+        OfferCatalogSnapshot b = OfferCatalogSnapshot.of(9L, offers, objectMapper);
+
+        assertEquals(a.etag(), b.etag());
+    }
+
+    private Offer offer(Long id, String name) {
+        return Offer.builder()
+                .id(id)
+                .name(name)
+                .description("Description")
+                .price(50.0)
+                .persons(1)
+                .quantity(10)
+                .active(true)
+                .build();
+    }
+}
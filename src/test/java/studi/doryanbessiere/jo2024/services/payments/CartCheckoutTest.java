@@ -0,0 +1,351 @@
+package studi.doryanbessiere.jo2024.services.payments;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.model.checkout.Session;
+import com.stripe.net.Webhook;
+import com.stripe.param.checkout.SessionCreateParams;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.MailSendException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import studi.doryanbessiere.jo2024.notifications.EmailNotificationService;
+import studi.doryanbessiere.jo2024.services.customers.Customer;
+import studi.doryanbessiere.jo2024.services.customers.CustomerRepository;
+import studi.doryanbessiere.jo2024.services.offers.Offer;
+import studi.doryanbessiere.jo2024.services.offers.OfferRepository;
+import studi.doryanbessiere.jo2024.services.tickets.Ticket;
+import studi.doryanbessiere.jo2024.services.tickets.TicketRepository;
+import studi.doryanbessiere.jo2024.services.tickets.TicketService;
+import studi.doryanbessiere.jo2024.shared.JwtService;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CartCheckoutTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TicketRepository ticketRepository;
+
+    @Autowired
+    private TicketService ticketService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private PaymentGateway paymentGateway;
+
+    @MockBean
+    private EmailNotificationService emailNotificationService;
+
+    private Long athletics;
+    private Long swimming;
+    private String token;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ticketRepository.deleteAll();
+        transactionRepository.deleteAll();
+        customerRepository.deleteAll();
+        offerRepository.deleteAll();
+
+        Customer customer = customerRepository.save(Customer.builder()
+                .firstName("Jean")
+                .lastName("Dupont")
+                .email("cart@example.com")
+                .password("encoded")
+                .secretKey("CUS-CART")
+                .build());
+        athletics = offer("Pack Athlétisme", 50.0, 1, 10);
+        swimming = offer("Pack Natation", 80.0, 4, 1);
+        token = jwtService.generateToken(customer.getEmail(), "CUSTOMER");
+
+        when(paymentGateway.createCheckoutSession(any(), any())).thenAnswer(invocation -> {
+            Session session = new Session();
+            session.setId("cs_cart");
+            session.setUrl("https://checkout.example/cs_cart");
+            return session;
+        });
+    }
+
+    @Test
+    void cartShouldReserveStockAndOpenOneSessionThenIssueTicketsPerLine() throws Exception {
+        Instant before = Instant.now();
+        checkout("""
+                {"items": [{"offer_id": %d, "quantity": 2}, {"offer_id": %d, "quantity": 1}]}
+                """.formatted(athletics, swimming))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.session_id").value("cs_cart"));
+
+        ArgumentCaptor<SessionCreateParams> params = ArgumentCaptor.forClass(SessionCreateParams.class);
+        verify(paymentGateway, times(1)).createCheckoutSession(params.capture(), any());
+        List<SessionCreateParams.LineItem> lines = params.getValue().getLineItems();
+        assertEquals(List.of(2L, 1L), lines.stream().map(SessionCreateParams.LineItem::getQuantity).toList());
+        assertEquals(List.of(5000L, 8000L), lines.stream().map(line -> line.getPriceData().getUnitAmount()).toList());
+        // 30 minutes is Stripe's floor: the session is asked for a little more.
+        assertTrue(params.getValue().getExpiresAt() >= before.plus(Duration.ofMinutes(PaymentService.MIN_SESSION_TTL_MINUTES))
+                .plus(PaymentService.SESSION_TTL_MARGIN).getEpochSecond());
+        assertEquals(8, stock(athletics));
+        assertEquals(0, stock(swimming));
+
+        Transaction transaction = transactionRepository.findByStripeSessionId("cs_cart").orElseThrow();
+        assertEquals(180.0, transaction.getAmount());
+        assertEquals(3, transaction.getQuantity());
+
+        List<Ticket> tickets = ticketService.generateTicketsForTransaction(transaction.getId());
+        assertEquals(List.of(1, 1, 4), tickets.stream().map(Ticket::getEntriesAllowed).toList());
+        verify(emailNotificationService, times(1)).sendNotification(any());
+    }
+
+    @Test
+    void cartShouldReserveNothingWhenOneOfferIsShortOfStock() throws Exception {
+        checkout("""
+                {"items": [{"offer_id": %d, "quantity": 2}, {"offer_id": %d, "quantity": 2}]}
+                """.formatted(athletics, swimming))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(10, stock(athletics));
+        assertEquals(1, stock(swimming));
+        assertEquals(0, transactionRepository.count());
+        verify(paymentGateway, never()).createCheckoutSession(any(), any());
+    }
+
+    @Test
+    void gatewayFailureShouldGiveTheStockBack() throws Exception {
+        when(paymentGateway.createCheckoutSession(any(), any()))
+                .thenThrow(new ApiConnectionException("Stripe injoignable"));
+
+        checkout("""
+                {"offer_id": %d, "quantity": 3}
+                """.formatted(athletics))
+                .andExpect(status().isInternalServerError());
+
+        assertEquals(10, stock(athletics));
+        assertEquals(Transaction.TransactionStatus.FAILED, transactionRepository.findAll().get(0).getStatus());
+    }
+
+    @Test
+    void retryWithTheSameIdempotencyKeyShouldReplayTheFirstSession() throws Exception {
+        String body = """
+                {"offer_id": %d, "quantity": 2}
+                """.formatted(athletics);
+
+        checkout(body, "retry-1")
+                .andExpect(status().isOk())
+                .andExpect(header().string("Idempotent-Replayed", "false"));
+        checkout(body, "retry-1")
+                .andExpect(status().isOk())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(jsonPath("$.session_id").value("cs_cart"));
+        checkout("""
+                {"offer_id": %d, "quantity": 1}
+                """.formatted(athletics), "retry-1")
+                .andExpect(status().isBadRequest());
+
+        ArgumentCaptor<String> gatewayKey = ArgumentCaptor.forClass(String.class);
+        verify(paymentGateway, times(1)).createCheckoutSession(any(), gatewayKey.capture());
+        Transaction transaction = transactionRepository.findAll().get(0);
+        assertEquals("retry-1-" + transaction.getId(), gatewayKey.getValue());
+        assertEquals(1, transactionRepository.count());
+        assertEquals(8, stock(athletics));
+    }
+
+    @Test
+    void repeatedCheckoutShouldReuseTheOpenSessionUntilItsTransactionSettles() throws Exception {
+        String body = """
+                {"offer_id": %d, "quantity": 1}
+                """.formatted(athletics);
+
+        checkout(body).andExpect(status().isOk());
+        checkout(body)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.checkout_url").value("https://checkout.example/cs_cart"));
+
+        verify(paymentGateway, times(1)).createCheckoutSession(any(), any());
+        assertEquals(1, transactionRepository.count());
+        assertEquals(9, stock(athletics));
+
+        // Settled through a webhook delivered to another node: this node's index is stale.
+        paymentService.cancelCheckout(transactionRepository.findAll().get(0).getId());
+        checkout(body).andExpect(status().isOk());
+
+        verify(paymentGateway, times(2)).createCheckoutSession(any(), any());
+        assertEquals(2, transactionRepository.count());
+    }
+
+    @Test
+    void sessionIdSaveFailureShouldExpireTheSessionAndGiveTheStockBack() throws Exception {
+        when(paymentGateway.createCheckoutSession(any(), any())).thenAnswer(invocation -> {
+            // Another writer moves the version on: the checkout's own save of the session id then fails.
+            jdbcTemplate.update("update transactions set version = version + 1");
+            Session session = new Session();
+            session.setId("cs_cart");
+            session.setUrl("https://checkout.example/cs_cart");
+            return session;
+        });
+
+        checkout("""
+                {"offer_id": %d, "quantity": 3}
+                """.formatted(athletics))
+                .andExpect(status().isInternalServerError());
+
+        verify(paymentGateway).expireCheckoutSession("cs_cart");
+        assertEquals(10, stock(athletics));
+        assertEquals(Transaction.TransactionStatus.FAILED, transactionRepository.findAll().get(0).getStatus());
+    }
+
+    @Test
+    void webhookShouldFindTheTransactionFromItsMetadataWhenTheSessionIdWasNeverSaved() throws Exception {
+        checkout("""
+                {"offer_id": %d, "quantity": 2}
+                """.formatted(athletics))
+                .andExpect(status().isOk());
+        Transaction transaction = transactionRepository.findAll().get(0);
+        transaction.setStripeSessionId(null);
+        transactionRepository.save(transaction);
+
+        webhook("checkout.session.completed", "cs_cart", transaction.getId()).andExpect(status().isOk());
+
+        Transaction paid = transactionRepository.findById(transaction.getId()).orElseThrow();
+        assertEquals(Transaction.TransactionStatus.PAID, paid.getStatus());
+        assertEquals("cs_cart", paid.getStripeSessionId());
+        assertEquals(2, ticketRepository.count());
+    }
+
+    @Test
+    void paidWebhookShouldKeepTheTicketsWhenTheConfirmationMailFails() throws Exception {
+        doThrow(new MailSendException("SMTP injoignable")).when(emailNotificationService).sendNotification(any());
+        checkout("""
+                {"offer_id": %d, "quantity": 2}
+                """.formatted(athletics))
+                .andExpect(status().isOk());
+        Long transactionId = transactionRepository.findAll().get(0).getId();
+
+        webhook("checkout.session.completed", "cs_cart", transactionId).andExpect(status().isOk());
+        webhook("checkout.session.completed", "cs_cart", transactionId).andExpect(status().isOk());
+
+        assertEquals(Transaction.TransactionStatus.PAID, transactionRepository.findById(transactionId).orElseThrow().getStatus());
+        assertEquals(2, ticketRepository.count());
+        verify(emailNotificationService, times(1)).sendNotification(any());
+    }
+
+    @Test
+    void abandonedCheckoutShouldBeCancelledOnceItsSessionHasExpired() throws Exception {
+        checkout("""
+                {"offer_id": %d, "quantity": 2}
+                """.formatted(athletics))
+                .andExpect(status().isOk());
+        Duration expired = paymentService.sessionTtl().plus(Duration.ofMinutes(15));
+
+        sweeper(expired.minusMinutes(1)).sweep();
+        assertEquals(Transaction.TransactionStatus.PENDING, transactionRepository.findAll().get(0).getStatus());
+        assertEquals(8, stock(athletics));
+
+        sweeper(expired.plusMinutes(1)).sweep();
+        assertEquals(Transaction.TransactionStatus.FAILED, transactionRepository.findAll().get(0).getStatus());
+        assertEquals(10, stock(athletics));
+        verify(paymentGateway).createCheckoutSession(any(), any());
+        verifyNoMoreInteractions(paymentGateway);
+    }
+
+    private AbandonedCheckoutSweeper sweeper(Duration later) {
+        return new AbandonedCheckoutSweeper(transactionRepository, paymentService, 15, 100,
+                Clock.offset(Clock.systemDefaultZone(), later));
+    }
+
+    private ResultActions webhook(String type, String sessionId, Long transactionId) throws Exception {
+        String payload = new ObjectMapper().writeValueAsString(Map.of(
+                "id", "evt_cart",
+                "object", "event",
+                "type", type,
+                "created", System.currentTimeMillis() / 1000,
+                "data", Map.of("object", Map.of(
+                        "id", sessionId,
+                        "object", "checkout.session",
+                        "metadata", Map.of("transaction_id", String.valueOf(transactionId))))));
+        long timestamp = Webhook.Util.getTimeNow();
+        String signature = "t=" + timestamp + ",v1=" + Webhook.Util.computeHmacSha256("dummy_webhook", timestamp + "." + payload);
+        return mockMvc.perform(post("/stripe/webhook")
+                .content(payload)
+                .header("Stripe-Signature", signature));
+    }
+
+    private ResultActions checkout(String body) throws Exception {
+        return checkout(body, null);
+    }
+
+    private ResultActions checkout(String body, String idempotencyKey) throws Exception {
+        MockHttpServletRequestBuilder request = post("/payments/checkout")
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body);
+        if (idempotencyKey != null) {
+            request.header("Idempotency-Key", idempotencyKey);
+        }
+        return mockMvc.perform(request);
+    }
+
+    private Long offer(String name, double price, int persons, int stock) {
+        return offerRepository.save(Offer.builder()
+                .name(name)
+                .description("Offre de test")
+                .price(price)
+                .persons(persons)
+                .quantity(stock)
+                .active(true)
+                .build()).getId();
+    }
+
+    private int stock(Long offerId) {
+        return offerRepository.findById(offerId).orElseThrow().getQuantity();
+    }
+}
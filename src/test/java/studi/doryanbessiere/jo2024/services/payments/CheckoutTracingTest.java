@@ -0,0 +1,173 @@
+package studi.doryanbessiere.jo2024.services.payments;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stripe.model.checkout.Session;
+import com.stripe.net.Webhook;
+import com.stripe.param.checkout.SessionCreateParams;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import studi.doryanbessiere.jo2024.notifications.EmailNotificationService;
+import studi.doryanbessiere.jo2024.services.customers.Customer;
+import studi.doryanbessiere.jo2024.services.customers.CustomerRepository;
+import studi.doryanbessiere.jo2024.services.offers.Offer;
+import studi.doryanbessiere.jo2024.services.offers.OfferRepository;
+import studi.doryanbessiere.jo2024.services.tickets.TicketRepository;
+import studi.doryanbessiere.jo2024.shared.JwtService;
+import studi.doryanbessiere.jo2024.shared.tracing.TracePropagation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "management.tracing.sampling.probability=1.0")
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ActiveProfiles("test")
+class CheckoutTracingTest {
+
+    @TestConfiguration
+    static class InMemoryExporterConfig {
+        @Bean
+        InMemorySpanExporter inMemorySpanExporter() {
+            return InMemorySpanExporter.create();
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private InMemorySpanExporter exporter;
+
+    @Autowired
+    private SdkTracerProvider tracerProvider;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TicketRepository ticketRepository;
+
+    @MockBean
+    private PaymentGateway paymentGateway;
+
+    @MockBean
+    private EmailNotificationService emailNotificationService;
+
+    private Long offerId;
+    private String token;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ticketRepository.deleteAll();
+        transactionRepository.deleteAll();
+        customerRepository.deleteAll();
+        offerRepository.deleteAll();
+
+        Customer customer = customerRepository.save(Customer.builder()
+                .firstName("Jean")
+                .lastName("Dupont")
+                .email("trace@example.com")
+                .password("encoded")
+                .secretKey("CUS-TRACE")
+                .build());
+        offerId = offerRepository.save(Offer.builder()
+                .name("Pack Traces")
+                .description("Offre de test")
+                .price(50.0)
+                .persons(1)
+                .quantity(10)
+                .active(true)
+                .build()).getId();
+        token = jwtService.generateToken(customer.getEmail(), "CUSTOMER");
+
+        when(paymentGateway.createCheckoutSession(any(), any())).thenAnswer(invocation -> {
+            SessionCreateParams params = invocation.getArgument(0);
+            Session session = new Session();
+            session.setId("cs_trace");
+            session.setMetadata(params.getMetadata());
+            return session;
+        });
+        exporter.reset();
+    }
+
+    @Test
+    void webhookShouldContinueTheCheckoutTrace() throws Exception {
+        Session session = paymentService.createCheckoutSession(Map.of(offerId, 1), "Bearer " + token, null);
+        String traceparent = session.getMetadata().get(TracePropagation.TRACEPARENT);
+        assertTrue(traceparent != null && traceparent.startsWith("00-"), "traceparent stored next to transaction_id");
+        // Nothing of unbounded length: Stripe caps each metadata value at 500 characters.
+        assertEquals(Set.of("transaction_id", TracePropagation.TRACEPARENT), session.getMetadata().keySet());
+
+        String payload = new ObjectMapper().writeValueAsString(Map.of(
+                "id", "evt_trace",
+                "object", "event",
+                "type", "checkout.session.completed",
+                "created", System.currentTimeMillis() / 1000,
+                "data", Map.of("object", Map.of(
+                        "id", "cs_trace",
+                        "object", "checkout.session",
+                        "metadata", session.getMetadata()))));
+        long timestamp = Webhook.Util.getTimeNow();
+        String signature = "t=" + timestamp + ",v1=" + Webhook.Util.computeHmacSha256("dummy_webhook", timestamp + "." + payload);
+        mockMvc.perform(post("/stripe/webhook")
+                        .content(payload)
+                        .header("Stripe-Signature", signature))
+                .andExpect(status().isOk());
+
+        tracerProvider.forceFlush().join(10, TimeUnit.SECONDS);
+        List<SpanData> spans = exporter.getFinishedSpanItems();
+        SpanData checkout = span(spans, "checkout.create");
+        SpanData webhook = span(spans, "stripe.webhook");
+        SpanData ticket = span(spans, "ticket.issue");
+
+        assertEquals(checkout.getTraceId(), webhook.getTraceId(), "webhook continues the checkout trace");
+        assertEquals(checkout.getSpanId(), webhook.getParentSpanId());
+        assertEquals(webhook.getSpanId(), ticket.getParentSpanId());
+        assertFalse(webhook.getLinks().isEmpty(), "webhook links to the HTTP request that delivered it");
+        assertTrue(spans.stream().anyMatch(span -> span.getName().equals("query")
+                        && span.getTraceId().equals(checkout.getTraceId())),
+                "JDBC statements are traced");
+    }
+
+    private static SpanData span(List<SpanData> spans, String name) {
+        return spans.stream()
+                .filter(span -> span.getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("missing span " + name + " in "
+                        + spans.stream().map(SpanData::getName).toList()));
+    }
+}
@@ -0,0 +1,54 @@
+package studi.doryanbessiere.jo2024.services.payments;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OpenCheckoutSessionsTest {
+
+    private static final Instant NOW = Instant.parse("2024-07-26T10:00:00Z");
+
+    private final OpenCheckoutSessions sessions = new OpenCheckoutSessions(300, Clock.fixed(NOW, ZoneOffset.UTC));
+
+    @Test
+    void sameCustomerAndCartShouldFindTheOpenSession() {
+        String key = OpenCheckoutSessions.cartKey(1L, Map.of(12L, 2));
+        sessions.register(key, open("cs_1", NOW.plusSeconds(1800)));
+
+        assertEquals("cs_1", sessions.find(key).orElseThrow().sessionId());
+        assertTrue(sessions.find(OpenCheckoutSessions.cartKey(2L, Map.of(12L, 2))).isEmpty(), "other customer");
+        assertTrue(sessions.find(OpenCheckoutSessions.cartKey(1L, Map.of(12L, 3))).isEmpty(), "other cart");
+    }
+
+    @Test
+    void sessionCloseToExpiryShouldNotBeHandedOut() {
+        String key = OpenCheckoutSessions.cartKey(1L, Map.of(12L, 1));
+        sessions.register(key, open("cs_1", NOW.plusSeconds(299)));
+
+        assertTrue(sessions.find(key).isEmpty());
+        assertEquals(0, sessions.size());
+    }
+
+    @Test
+    void invalidatedSessionShouldBeForgottenWithoutDroppingItsReplacement() {
+        String key = OpenCheckoutSessions.cartKey(1L, Map.of(12L, 1));
+        sessions.register(key, open("cs_1", NOW.plusSeconds(1800)));
+        sessions.register(key, open("cs_2", NOW.plusSeconds(1800)));
+
+        sessions.invalidate("cs_1");
+        assertEquals("cs_2", sessions.find(key).orElseThrow().sessionId());
+
+        sessions.invalidate("cs_2");
+        assertTrue(sessions.find(key).isEmpty());
+    }
+
+    private static OpenCheckoutSessions.OpenSession open(String sessionId, Instant expiresAt) {
+        return new OpenCheckoutSessions.OpenSession(sessionId, "https://checkout.example/" + sessionId, 99L, expiresAt);
+    }
+}
@@ -0,0 +1,138 @@
+package studi.doryanbessiere.jo2024.services.payments;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import studi.doryanbessiere.jo2024.notifications.EmailNotificationService;
+import studi.doryanbessiere.jo2024.services.customers.Customer;
+import studi.doryanbessiere.jo2024.services.customers.CustomerRepository;
+import studi.doryanbessiere.jo2024.services.tickets.TicketRepository;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class PaymentStatusStreamTest {
+
+    private static final String STREAM_URL = "/payments/status/{session_id}/stream";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PaymentStatusRegistry registry;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TicketRepository ticketRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @MockBean
+    private EmailNotificationService emailNotificationService;
+
+    private Customer customer;
+
+    @BeforeEach
+    void setUp() {
+        ticketRepository.deleteAll();
+        transactionRepository.deleteAll();
+        customerRepository.deleteAll();
+        customer = customerRepository.save(Customer.builder()
+                .firstName("Jean")
+                .lastName("Dupont")
+                .email("stream@example.com")
+                .password("encoded")
+                .secretKey("CUS-STREAM")
+                .build());
+    }
+
+    @Test
+    void settledTransactionShouldEmitOnceAndComplete() throws Exception {
+        transaction("cs_paid", Transaction.TransactionStatus.PAID);
+
+        MvcResult result = mockMvc.perform(get(STREAM_URL, "cs_paid"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("event:status")))
+                .andExpect(content().string(containsString("\"status\":\"PAID\"")));
+        assertEquals(0, registry.subscriberCount());
+    }
+
+    @Test
+    void pendingTransactionShouldWaitForWebhookNotification() throws Exception {
+        transaction("cs_pending", Transaction.TransactionStatus.PENDING);
+
+        MvcResult result = mockMvc.perform(get(STREAM_URL, "cs_pending"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertTrue(result.getResponse().getContentAsString().contains("\"status\":\"PENDING\""));
+        assertEquals(1, registry.subscriberCount());
+
+        registry.publish("cs_pending", Transaction.TransactionStatus.PAID);
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(content().string(containsString("\"status\":\"PAID\"")));
+        assertEquals(0, registry.subscriberCount());
+    }
+
+    @Test
+    void reconcileShouldNotifySubscribersSettledOnAnotherNode() throws Exception {
+        Transaction transaction = transaction("cs_remote", Transaction.TransactionStatus.PENDING);
+
+        MvcResult result = mockMvc.perform(get(STREAM_URL, "cs_remote"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        registry.reconcile();
+        assertFalse(result.getResponse().getContentAsString().contains("FAILED"));
+
+        // Webhook handled elsewhere: only the database knows.
+        transaction.setStatus(Transaction.TransactionStatus.FAILED);
+        transactionRepository.save(transaction);
+        registry.reconcile();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(content().string(containsString("\"status\":\"FAILED\"")));
+        assertEquals(0, registry.subscriberCount());
+    }
+
+    @Test
+    void unknownSessionShouldReturnNotFound() throws Exception {
+        mockMvc.perform(get(STREAM_URL, "cs_unknown"))
+                .andExpect(status().isNotFound());
+    }
+
+    private Transaction transaction(String sessionId, Transaction.TransactionStatus status) {
+        return transactionRepository.save(Transaction.builder()
+                .stripeSessionId(sessionId)
+                .offerId(1L)
+                .offerName("Pack Natation")
+                .amount(120.0)
+                .customer(customer)
+                .status(status)
+                .build());
+    }
+}
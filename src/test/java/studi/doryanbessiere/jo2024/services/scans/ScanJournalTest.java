@@ -0,0 +1,135 @@
+package studi.doryanbessiere.jo2024.services.scans;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import studi.doryanbessiere.jo2024.notifications.EmailNotificationService;
+import studi.doryanbessiere.jo2024.services.gates.GateEvent;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.spy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ScanJournalTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TicketScanEventRepository ticketScanEventRepository;
+
+    @MockBean
+    private EmailNotificationService emailNotificationService;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        ticketScanEventRepository.deleteAll();
+    }
+
+    @Test
+    void flushWritesQueuedEntriesInBatches() {
+        ScanJournal journal = new ScanJournal(jdbcTemplate, transactionManager, objectMapper, tempDir.resolve("journal.wal"), 2);
+        journal.record(GateEvent.Type.SCANNED, 10L, "agent@jo2024.fr", "porte-A", null);
+        journal.record(GateEvent.Type.VALIDATED, 10L, "agent@jo2024.fr", "porte-A", null);
+        journal.record(GateEvent.Type.REJECTED, null, "agent@jo2024.fr", "porte-B", "ticket_not_found");
+        assertEquals(3, journal.pendingCount());
+
+        journal.flush();
+
+        assertEquals(0, journal.pendingCount());
+        List<TicketScanEvent> forTicket = ticketScanEventRepository.search(10L, null, null, null, null, Limit.of(10));
+        assertEquals(2, forTicket.size());
+        List<TicketScanEvent> rejected = ticketScanEventRepository.search(null, "porte-B", null, null, null, Limit.of(10));
+        assertEquals("ticket_not_found", rejected.get(0).getReason());
+        assertEquals("agent@jo2024.fr", rejected.get(0).getAdminEmail());
+    }
+
+    @Test
+    void entriesSpillToWriteAheadLogWhileDatabaseIsDownAndAreReplayedOnce() throws Exception {
+        Path wal = tempDir.resolve("journal.wal");
+        JdbcTemplate flaky = spy(jdbcTemplate);
+        doThrow(new CannotGetJdbcConnectionException("database down"))
+                .when(flaky).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+        ScanJournal journal = new ScanJournal(flaky, transactionManager, objectMapper, wal, 100);
+
+        journal.record(GateEvent.Type.VALIDATED, 20L, "agent@jo2024.fr", "porte-C", null);
+        journal.flush();
+        journal.record(GateEvent.Type.VALIDATED, 21L, "agent@jo2024.fr", "porte-C", null);
+        journal.flush();
+
+        assertEquals(2, Files.readAllLines(wal).size());
+        assertEquals(0, ticketScanEventRepository.count());
+
+        reset(flaky);
+        // A previous replay committed the first entry but crashed before deleting the file, then tore a line.
+        ScanJournalEntry replayed = objectMapper.readValue(Files.readAllLines(wal).get(0), ScanJournalEntry.class);
+        jdbcTemplate.update(ScanJournal.INSERT_SQL, replayed.eventId(), replayed.ticketId(), replayed.adminEmail(),
+                replayed.gateId(), replayed.eventType().name(), replayed.reason(), replayed.occurredAt());
+        Files.writeString(wal, "{\"event_id\":", StandardOpenOption.APPEND);
+        journal.record(GateEvent.Type.VALIDATED, 22L, "agent@jo2024.fr", "porte-C", null);
+        journal.flush();
+
+        assertFalse(Files.exists(wal));
+        assertEquals(3, ticketScanEventRepository.count());
+        assertEquals(1, ticketScanEventRepository.search(20L, null, null, null, null, Limit.of(10)).size());
+    }
+
+    @Test
+    void rowsBreakingAConstraintShouldBeQuarantinedWithoutBlockingTheJournal() throws Exception {
+        Path wal = tempDir.resolve("journal.wal");
+        Path rejected = tempDir.resolve("journal.wal.rejected");
+        String tooLong = "porte-" + "X".repeat(64);
+        ScanJournal journal = new ScanJournal(jdbcTemplate, transactionManager, objectMapper, wal, 100);
+        // Spilled during an outage: replayed first on the next flush.
+        ScanJournalEntry spilled = new ScanJournalEntry("spilled-1", 30L, "agent@jo2024.fr", tooLong,
+                GateEvent.Type.VALIDATED, null, OffsetDateTime.now());
+        Files.writeString(wal, objectMapper.writeValueAsString(spilled) + System.lineSeparator());
+
+        journal.record(GateEvent.Type.VALIDATED, 31L, "agent@jo2024.fr", "porte-D", null);
+        journal.record(GateEvent.Type.VALIDATED, 32L, "agent@jo2024.fr", tooLong, null);
+        journal.record(GateEvent.Type.VALIDATED, 33L, "agent@jo2024.fr", "porte-D", null);
+        journal.flush();
+
+        assertFalse(Files.exists(wal));
+        assertEquals(2, ticketScanEventRepository.count());
+        assertEquals(2, Files.readAllLines(rejected).size());
+
+        journal.record(GateEvent.Type.VALIDATED, 34L, "agent@jo2024.fr", "porte-D", null);
+        journal.flush();
+
+        assertFalse(Files.exists(wal));
+        assertEquals(3, ticketScanEventRepository.count());
+    }
+}
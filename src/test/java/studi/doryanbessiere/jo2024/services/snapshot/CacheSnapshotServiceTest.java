@@ -0,0 +1,132 @@
+package studi.doryanbessiere.jo2024.services.snapshot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import studi.doryanbessiere.jo2024.services.offers.Offer;
+import studi.doryanbessiere.jo2024.services.offers.OfferCatalog;
+import studi.doryanbessiere.jo2024.services.offers.OfferCatalogSnapshot;
+import studi.doryanbessiere.jo2024.services.tickets.ActiveTicketIndex;
+import studi.doryanbessiere.jo2024.services.tickets.ActiveTicketRow;
+import studi.doryanbessiere.jo2024.services.tickets.Ticket;
+import studi.doryanbessiere.jo2024.services.tickets.TicketRepository;
+import studi.doryanbessiere.jo2024.services.tickets.TicketSecretAllocator;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CacheSnapshotServiceTest {
+
+    private static final Instant TAKEN_AT = Instant.parse("2024-08-01T08:00:00Z");
+
+    private final TicketSecretAllocator allocator =
+            new TicketSecretAllocator(1, "test-ticket-secret-hmac-key-0123456789");
+
+    @Mock
+    private TicketRepository previousDatabase;
+
+    @Mock
+    private TicketRepository database;
+
+    @Mock
+    private OfferCatalog offerCatalog;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void restartShouldRestoreTheSnapshotAndReplayOnlyNewerTickets() throws Exception {
+        Path file = directory.resolve("cache-snapshot.bin");
+        String active = allocator.next();
+        String used = allocator.next();
+        String issuedAfter = allocator.next();
+        OfferCatalogSnapshot catalog = OfferCatalogSnapshot.of(7L,
+                List.of(Offer.builder().id(1L).name("Pack Solo").build()), new ObjectMapper());
+        when(offerCatalog.current()).thenReturn(catalog);
+        writeSnapshot(file, List.of(new ActiveTicketRow(active, 1L, 1L, 2), new ActiveTicketRow(used, 2L, 1L, 0)));
+
+        OffsetDateTime since = OffsetDateTime.ofInstant(TAKEN_AT.minusSeconds(300), ZoneId.of("Europe/Paris"));
+        when(database.findIssuedSince(eq(since), eq(0L), any(Limit.class)))
+                .thenReturn(List.of(new ActiveTicketRow(issuedAfter, 3L, 1L, 1)));
+        when(offerCatalog.restore(7L, catalog.json())).thenReturn(true);
+        ActiveTicketIndex index = index(database);
+
+        service(index, file).warmUp();
+
+        assertTrue(index.isLoaded());
+        assertEquals(new ActiveTicketIndex.Hit(ActiveTicketIndex.State.ACTIVE, 1L, 1L), index.lookup(active));
+        assertEquals(ActiveTicketIndex.State.USED, index.lookup(used).state());
+        assertEquals(ActiveTicketIndex.State.ACTIVE, index.lookup(issuedAfter).state());
+        verify(offerCatalog).restore(7L, catalog.json());
+        verify(database, never()).countByStatus(any());
+        verify(database, never()).findActiveAfter(anyLong(), any());
+        assertTrue(Files.notExists(directory.resolve("cache-snapshot.bin.tmp")));
+    }
+
+    @Test
+    void corruptSnapshotShouldFallBackToTheFullLoad() throws Exception {
+        Path file = directory.resolve("cache-snapshot.bin");
+        when(offerCatalog.current()).thenReturn(OfferCatalogSnapshot.of(1L, List.of(), new ObjectMapper()));
+        writeSnapshot(file, List.of(new ActiveTicketRow(allocator.next(), 1L, 1L, 1)));
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(raf.length() - 20);
+            raf.write(raf.read() ^ 0xFF);
+        }
+        ActiveTicketIndex index = index(database);
+
+        service(index, file).warmUp();
+
+        assertTrue(index.isLoaded());
+        verify(database).countByStatus(Ticket.Status.ACTIVE);
+        verify(database, never()).findIssuedSince(any(), anyLong(), any());
+        verify(offerCatalog, never()).restore(anyLong(), any());
+    }
+
+    @Test
+    void missingSnapshotShouldFallBackToTheFullLoad() {
+        ActiveTicketIndex index = index(database);
+
+        service(index, directory.resolve("absent.bin")).warmUp();
+
+        assertTrue(index.isLoaded());
+        verify(database).countByStatus(Ticket.Status.ACTIVE);
+    }
+
+    private void writeSnapshot(Path file, List<ActiveTicketRow> rows) {
+        when(previousDatabase.findActiveAfter(eq(0L), any(Limit.class))).thenReturn(rows);
+        ActiveTicketIndex previous = index(previousDatabase);
+        previous.load();
+        service(previous, file).write();
+        assertTrue(Files.exists(file));
+    }
+
+    private ActiveTicketIndex index(TicketRepository ticketRepository) {
+        return new ActiveTicketIndex(ticketRepository, allocator, new SimpleMeterRegistry(), true, 100, true);
+    }
+
+    private CacheSnapshotService service(ActiveTicketIndex index, Path file) {
+        return new CacheSnapshotService(index, offerCatalog, true, file, 300, Clock.fixed(TAKEN_AT, ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,124 @@
+package studi.doryanbessiere.jo2024.services.tickets;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import studi.doryanbessiere.jo2024.services.payments.Transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ActiveTicketIndexTest {
+
+    private final TicketSecretAllocator allocator =
+            new TicketSecretAllocator(1, "test-ticket-secret-hmac-key-0123456789", System::currentTimeMillis);
+
+    @Mock
+    private TicketRepository ticketRepository;
+
+    @Test
+    void unknownSecretsShouldBeRejectedFromMemoryOnceLoaded() {
+        ActiveTicketIndex index = new ActiveTicketIndex(ticketRepository, allocator, true, 100, true);
+        String legacy = "TCK-2A7F84F3A5E14DB1";
+        String issued = allocator.next();
+        when(ticketRepository.countByStatus(Ticket.Status.ACTIVE)).thenReturn(2L);
+        when(ticketRepository.findActiveAfter(0L, Limit.of(100))).thenReturn(List.of(
+                new ActiveTicketRow(legacy, 3L, 1L, 1),
+                new ActiveTicketRow(issued, 8L, 2L, 4)));
+
+        assertEquals(ActiveTicketIndex.State.UNCERTAIN, index.lookup("TCK-GARBAGE").state(), "not loaded yet");
+        index.load();
+
+        assertEquals(new ActiveTicketIndex.Hit(ActiveTicketIndex.State.ACTIVE, 3L, 1L), index.lookup(legacy));
+        assertEquals(new ActiveTicketIndex.Hit(ActiveTicketIndex.State.ACTIVE, 8L, 2L), index.lookup(issued));
+        assertEquals(ActiveTicketIndex.State.UNKNOWN, index.lookup("TCK-GARBAGE").state());
+        assertEquals(ActiveTicketIndex.State.UNKNOWN, index.lookup("TCK-0001" + "0".repeat(28)).state(), "forged MAC");
+        // Genuine but issued elsewhere since startup: the database has the last word.
+        assertEquals(ActiveTicketIndex.State.UNCERTAIN, index.lookup(allocator.next()).state());
+        verify(ticketRepository).countByStatus(Ticket.Status.ACTIVE);
+        verify(ticketRepository).findActiveAfter(0L, Limit.of(100));
+        verifyNoMoreInteractions(ticketRepository);
+    }
+
+    @Test
+    void legacySecretsMissingFromTheIndexShouldReachTheDatabase() {
+        // A random secret issued before HMAC allocation, validated before startup, hence never loaded.
+        String legacyUsed = "TCK-2A7F84F3A5E14DB19C0D3E2F1A4B5C6D";
+        ActiveTicketIndex index = new ActiveTicketIndex(ticketRepository, allocator, true, 100, true);
+        index.load();
+        assertEquals(ActiveTicketIndex.State.UNCERTAIN, index.lookup(legacyUsed).state());
+
+        ActiveTicketIndex strict = new ActiveTicketIndex(ticketRepository, allocator, true, 100, false);
+        strict.load();
+        assertEquals(ActiveTicketIndex.State.UNKNOWN, strict.lookup(legacyUsed).state());
+    }
+
+    @Test
+    void issuedAndValidatedTicketsShouldUpdateTheIndex() {
+        ActiveTicketIndex index = new ActiveTicketIndex(ticketRepository, allocator, true, 100, true);
+        index.load();
+        String secret = allocator.next();
+
+        index.onTicketsIssued(new TicketsIssuedEvent(List.of(new ActiveTicketRow(secret, 12L, 5L, 2))));
+        assertEquals(ActiveTicketIndex.State.ACTIVE, index.lookup(secret).state());
+
+        index.observe(Ticket.builder()
+                .id(12L)
+                .secretKey(secret)
+                .status(Ticket.Status.USED)
+                .entriesAllowed(2)
+                .transaction(Transaction.builder().offerId(5L).build())
+                .build());
+        assertEquals(new ActiveTicketIndex.Hit(ActiveTicketIndex.State.USED, 12L, 5L), index.lookup(secret));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void loadShouldWalkEveryBatchAndGrowPastTheCountedSize() {
+        ActiveTicketIndex index = new ActiveTicketIndex(ticketRepository, allocator, true, 1_000, true);
+        TicketSecretAllocator.Block secrets = allocator.reserve(4_500);
+        List<ActiveTicketRow> rows = new ArrayList<>();
+        for (int i = 0; i < secrets.size(); i++) {
+            rows.add(new ActiveTicketRow(secrets.secret(i), i + 1L, 1L, 1));
+        }
+        // Tickets issued between the count and the walk: the table must still grow.
+        when(ticketRepository.countByStatus(Ticket.Status.ACTIVE)).thenReturn(10L);
+        when(ticketRepository.findActiveAfter(anyLong(), eq(Limit.of(1_000)))).thenAnswer(invocation -> {
+            int after = (int) (long) invocation.getArgument(0, Long.class);
+            return rows.subList(after, Math.min(after + 1_000, rows.size()));
+        });
+
+        index.load();
+
+        assertTrue(index.isLoaded());
+        assertEquals(4_500, index.size());
+        verify(ticketRepository, times(5)).findActiveAfter(anyLong(), eq(Limit.of(1_000)));
+        for (int i = 0; i < secrets.size(); i++) {
+            assertEquals(i + 1L, index.lookup(secrets.secret(i)).ticketId());
+        }
+    }
+
+    @Test
+    void disabledIndexShouldSendEveryLookupToTheDatabase() {
+        ActiveTicketIndex index = new ActiveTicketIndex(ticketRepository, allocator, false, 100, true);
+
+        index.load();
+
+        assertFalse(index.isLoaded());
+        assertEquals(ActiveTicketIndex.State.UNCERTAIN, index.lookup("TCK-GARBAGE").state());
+        verifyNoMoreInteractions(ticketRepository);
+    }
+}
@@ -0,0 +1,98 @@
+package studi.doryanbessiere.jo2024.services.tickets;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import studi.doryanbessiere.jo2024.notifications.EmailNotificationService;
+import studi.doryanbessiere.jo2024.services.customers.Customer;
+import studi.doryanbessiere.jo2024.services.customers.CustomerRepository;
+import studi.doryanbessiere.jo2024.services.offers.Offer;
+import studi.doryanbessiere.jo2024.services.offers.OfferRepository;
+import studi.doryanbessiere.jo2024.services.payments.Transaction;
+import studi.doryanbessiere.jo2024.services.payments.TransactionRepository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class BulkTicketIssuerTest {
+
+    @Autowired
+    private BulkTicketIssuer bulkTicketIssuer;
+
+    @Autowired
+    private TicketRepository ticketRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    private EmailNotificationService emailNotificationService;
+
+    private Long transactionId;
+
+    @BeforeEach
+    void setUp() {
+        ticketRepository.deleteAll();
+        transactionRepository.deleteAll();
+        customerRepository.deleteAll();
+        offerRepository.deleteAll();
+
+        Customer customer = customerRepository.save(Customer.builder()
+                .firstName("Entreprise")
+                .lastName("Partenaire")
+                .email("bulk@example.com")
+                .password("encoded")
+                .secretKey("CUS-BULK")
+                .build());
+        Offer offer = offerRepository.save(Offer.builder()
+                .name("Pack Entreprise")
+                .description("Billets pour comité d'entreprise")
+                .price(60.0)
+                .persons(1)
+                .quantity(1_000)
+                .active(true)
+                .build());
+        transactionId = transactionRepository.save(Transaction.builder()
+                .offerId(offer.getId())
+                .offerName(offer.getName())
+                .amount(offer.getPrice())
+                .customer(customer)
+                .status(Transaction.TransactionStatus.PAID)
+                .build()).getId();
+    }
+
+    @Test
+    void bulkIssuanceShouldInsertInJdbcBatches() {
+        Statistics statistics = statistics();
+        statistics.clear();
+
+        int issued = bulkTicketIssuer.issueTickets(transactionId, 500);
+
+        assertEquals(500, issued);
+        assertEquals(500, ticketRepository.count());
+        // 500 rows at batch_size 50: 10 insert batches + 10 sequence calls + 2 lookups, far from 500 round trips.
+        long statements = statistics.getPrepareStatementCount();
+        assertTrue(statements <= 25, "expected batched inserts, got " + statements + " statements");
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
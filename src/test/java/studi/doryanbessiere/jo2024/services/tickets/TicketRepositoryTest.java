@@ -0,0 +1,162 @@
+package studi.doryanbessiere.jo2024.services.tickets;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+import studi.doryanbessiere.jo2024.services.customers.Customer;
+import studi.doryanbessiere.jo2024.services.payments.Transaction;
+import studi.doryanbessiere.jo2024.services.tickets.dto.TicketResponse;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "studi.doryanbessiere.jo2024.services.tickets.TicketRepositoryTest$CapturingStatementInspector")
+@ActiveProfiles("test")
+class TicketRepositoryTest {
+
+    /**
+     * Records the SQL Hibernate sends, so the test can ask H2 for the plan of the exact statement.
+     */
+    public static class CapturingStatementInspector implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+
+    private static final OffsetDateTime BASE_TIME = OffsetDateTime.of(2024, 7, 26, 10, 0, 0, 0, ZoneOffset.UTC);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private TicketRepository ticketRepository;
+
+    private Customer customer;
+    private Transaction transaction;
+    private int nextLine;
+
+    @BeforeEach
+    void setUp() {
+        customer = entityManager.persist(Customer.builder()
+                .firstName("Jean")
+                .lastName("Dupont")
+                .email("jean.dupont@example.com")
+                .password("encoded")
+                .secretKey("CUS-SECRET")
+                .build());
+
+        transaction = entityManager.persist(Transaction.builder()
+                .offerId(1L)
+                .offerName("Pack Athlétisme")
+                .amount(150.0)
+                .customer(customer)
+                .status(Transaction.TransactionStatus.PAID)
+                .build());
+    }
+
+    @Test
+    void pagesShouldFollowCreatedAtThenIdKeysetWithoutGapsOrDuplicates() {
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            // Two tickets share each timestamp so the id tie-breaker is exercised.
+            expected.add(persistTicket("TCK-" + i, BASE_TIME.plusMinutes(i / 2)).getId());
+        }
+        persistTicket("TCK-OTHER", BASE_TIME, "CUS-OTHER");
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Long> seen = new ArrayList<>();
+        List<TicketResponse> page = ticketRepository.findPageByCustomerSecret(customer.getSecretKey(), Limit.of(3));
+        while (!page.isEmpty()) {
+            page.forEach(row -> seen.add(row.getTicketId()));
+            TicketResponse last = page.get(page.size() - 1);
+            page = ticketRepository.findPageByCustomerSecretAfter(
+                    customer.getSecretKey(), last.getCreatedAt(), last.getTicketId(), Limit.of(3));
+        }
+
+        List<Long> newestFirst = new ArrayList<>(expected);
+        newestFirst.sort((a, b) -> {
+            int byTime = Integer.compare(expected.indexOf(b) / 2, expected.indexOf(a) / 2);
+            return byTime != 0 ? byTime : Long.compare(b, a);
+        });
+        assertEquals(newestFirst, seen);
+    }
+
+    @Test
+    void projectionShouldCarryTransactionFields() {
+        persistTicket("TCK-PROJ", BASE_TIME);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<TicketResponse> page = ticketRepository.findPageByCustomerSecret(customer.getSecretKey(), Limit.of(10));
+
+        assertEquals(1, page.size());
+        TicketResponse row = page.get(0);
+        assertEquals("TCK-PROJ", row.getTicketSecret());
+        assertEquals(Ticket.Status.ACTIVE, row.getStatus());
+        assertEquals("Pack Athlétisme", row.getOfferName());
+        assertEquals(150.0, row.getAmount());
+        assertEquals("PAID", row.getTransactionStatus());
+        assertTrue(row.getCreatedAt().isEqual(BASE_TIME));
+    }
+
+    @Test
+    void secretLookupShouldSeekTheUniqueIndex() {
+        persistTicket("TCK-2A7F84F3A5E14DB1", BASE_TIME);
+        entityManager.flush();
+        entityManager.clear();
+        CapturingStatementInspector.STATEMENTS.clear();
+
+        assertTrue(ticketRepository.findBySecretKey("TCK-2A7F84F3A5E14DB1").isPresent());
+
+        String lookup = CapturingStatementInspector.STATEMENTS.stream()
+                .filter(sql -> sql.contains("secret_key=?"))
+                .findFirst()
+                .orElseThrow();
+        String plan = explain(lookup);
+        assertFalse(plan.contains("tableScan"), plan);
+        assertTrue(plan.toUpperCase().contains("SECRET_KEY = ?1"), plan);
+        // The former IgnoreCase lookup, for contrast: a function on the column rules the index out.
+        assertTrue(explain("select * from tickets where upper(secret_key) = upper(?)").contains("tableScan"));
+    }
+
+    private String explain(String sql) {
+        return (String) entityManager.getEntityManager()
+                .createNativeQuery("explain " + sql)
+                .setParameter(1, "TCK-2A7F84F3A5E14DB1")
+                .getSingleResult();
+    }
+
+    private Ticket persistTicket(String secret, OffsetDateTime createdAt) {
+        return persistTicket(secret, createdAt, customer.getSecretKey());
+    }
+
+    private Ticket persistTicket(String secret, OffsetDateTime createdAt, String customerSecret) {
+        return entityManager.persist(Ticket.builder()
+                .secretKey(secret)
+                .customerSecret(customerSecret)
+                .lineIndex(nextLine++)
+                .entriesAllowed(1)
+                .status(Ticket.Status.ACTIVE)
+                .transaction(transaction)
+                .createdAt(createdAt)
+                .build());
+    }
+}
@@ -0,0 +1,107 @@
+package studi.doryanbessiere.jo2024.services.tickets;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TicketSecretAllocatorTest {
+
+    private static final String KEY = "test-ticket-secret-hmac-key-0123456789";
+
+    private final AtomicLong clock = new AtomicLong(1_720_000_000_000L);
+
+    @Test
+    void secretsShouldBeCanonicalAndAuthentic() {
+        TicketSecretAllocator allocator = new TicketSecretAllocator(3, KEY, clock::get);
+
+        String secret = allocator.next();
+
+        assertTrue(secret.matches("TCK-[0-9A-F]{32}"), secret);
+        assertEquals(secret, TicketSecrets.canonicalize(secret));
+        assertTrue(allocator.isAuthentic(secret));
+        assertTrue(secret.startsWith("TCK-0003"), "node id leads the secret");
+    }
+
+    @Test
+    void tamperedOrForeignSecretsShouldNotBeAuthentic() {
+        TicketSecretAllocator allocator = new TicketSecretAllocator(3, KEY, clock::get);
+        String secret = allocator.next();
+        char last = secret.charAt(secret.length() - 1);
+        String tampered = secret.substring(0, secret.length() - 1) + (last == '0' ? '1' : '0');
+
+        assertFalse(allocator.isAuthentic(tampered));
+        assertFalse(allocator.isAuthentic("TCK-2A7F84F3A5E14DB1"));
+        assertFalse(allocator.isAuthentic(null));
+        assertFalse(new TicketSecretAllocator(3, KEY + "-other", clock::get).isAuthentic(secret));
+    }
+
+    @Test
+    void blocksAndSingleSecretsShouldNeverOverlapEvenWhenTheClockGoesBack() {
+        TicketSecretAllocator allocator = new TicketSecretAllocator(1, KEY, clock::get);
+        Set<String> seen = new HashSet<>();
+
+        TicketSecretAllocator.Block block = allocator.reserve(10_000);
+        for (int i = 0; i < block.size(); i++) {
+            assertTrue(seen.add(block.secret(i)));
+        }
+        clock.addAndGet(-60_000);
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(seen.add(allocator.next()));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> block.secret(block.size()));
+    }
+
+    @Test
+    void restartedNodeShouldResumeAboveItsPreviousCounter() {
+        String before = new TicketSecretAllocator(1, KEY, clock::get).reserve(50).secret(49);
+        clock.incrementAndGet();
+
+        String after = new TicketSecretAllocator(1, KEY, clock::get).next();
+
+        // Same node id, so the counter half orders the two secrets.
+        assertTrue(after.substring(0, 20).compareTo(before.substring(0, 20)) > 0);
+    }
+
+    @Test
+    void nodesShouldAllocateDisjointSecretsConcurrently() throws Exception {
+        List<TicketSecretAllocator> nodes = List.of(
+                new TicketSecretAllocator(1, KEY, clock::get),
+                new TicketSecretAllocator(2, KEY, clock::get));
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            List<Future<?>> futures = IntStream.range(0, 8)
+                    .<Future<?>>mapToObj(t -> executor.submit(() -> {
+                        TicketSecretAllocator node = nodes.get(t % 2);
+                        for (int i = 0; i < 5_000; i++) {
+                            seen.add(i % 10 == 0 ? node.reserve(5).secret(4) : node.next());
+                        }
+                    }))
+                    .toList();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        assertEquals(8 * 5_000, seen.size());
+    }
+
+    @Test
+    void invalidConfigurationShouldBeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new TicketSecretAllocator(70_000, KEY, clock::get));
+        assertThrows(IllegalArgumentException.class, () -> new TicketSecretAllocator(1, "short", clock::get));
+    }
+}
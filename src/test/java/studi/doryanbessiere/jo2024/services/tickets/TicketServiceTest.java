@@ -1,31 +1,48 @@
 package studi.doryanbessiere.jo2024.services.tickets;
 
 import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.env.Environment;
+import org.springframework.mail.MailSendException;
+import studi.doryanbessiere.jo2024.notifications.EmailNotificationService;
+import studi.doryanbessiere.jo2024.notifications.dto.EmailRequest;
 import studi.doryanbessiere.jo2024.services.customers.Customer;
 import studi.doryanbessiere.jo2024.services.offers.Offer;
 import studi.doryanbessiere.jo2024.services.offers.OfferRepository;
 import studi.doryanbessiere.jo2024.services.payments.Transaction;
+import studi.doryanbessiere.jo2024.services.payments.TransactionItem;
 import studi.doryanbessiere.jo2024.services.payments.TransactionRepository;
+import studi.doryanbessiere.jo2024.common.exceptions.BadRequestException;
+import studi.doryanbessiere.jo2024.services.tickets.dto.TicketPageResponse;
 import studi.doryanbessiere.jo2024.services.tickets.dto.TicketResponse;
+import studi.doryanbessiere.jo2024.shared.datasource.ReadYourWritesTracker;
+
+import org.springframework.data.domain.Limit;
 
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -38,10 +55,24 @@ class TicketServiceTest {
     private TransactionRepository transactionRepository;
     @Mock
     private OfferRepository offerRepository;
+    @Mock
+    private EmailNotificationService emailNotificationService;
+    @Mock
+    private Environment environment;
+    @Mock
+    private ReadYourWritesTracker readYourWritesTracker;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Spy
+    private TicketSecretAllocator ticketSecretAllocator =
+            new TicketSecretAllocator(1, "test-ticket-secret-hmac-key-0123456789", System::currentTimeMillis);
 
     @InjectMocks
     private TicketService ticketService;
 
+    @Captor
+    private ArgumentCaptor<List<Ticket>> saved;
+
     private Transaction transaction;
     private Customer customer;
 
@@ -66,7 +97,7 @@ class TicketServiceTest {
     }
 
     @Test
-    void generateTicketForTransactionShouldReturnExistingTicket() {
+    void generateTicketsForTransactionShouldReturnExistingTickets() {
         Ticket existingTicket = Ticket.builder()
                 .id(10L)
                 .secretKey("TCK-EXISTING")
@@ -78,17 +109,17 @@ class TicketServiceTest {
                 .build();
 
         when(transactionRepository.findById(transaction.getId())).thenReturn(Optional.of(transaction));
-        when(ticketRepository.findByTransactionId(transaction.getId())).thenReturn(Optional.of(existingTicket));
+        when(ticketRepository.findAllByTransactionIdOrderByLineIndex(transaction.getId())).thenReturn(List.of(existingTicket));
 
-        Ticket result = ticketService.generateTicketForTransaction(transaction.getId());
+        List<Ticket> result = ticketService.generateTicketsForTransaction(transaction.getId());
 
-        assertEquals(existingTicket, result);
-        verify(ticketRepository, never()).save(any());
+        assertEquals(List.of(existingTicket), result);
+        verify(ticketRepository, never()).saveAll(any());
+        verify(emailNotificationService, never()).sendNotification(any());
     }
 
     @Test
-    @Disabled
-    void generateTicketForTransactionShouldCreateTicketWhenMissing() {
+    void generateTicketsForTransactionShouldIssueMissingLinesInOneBatchAndSendOneEmail() {
         Offer offer = Offer.builder()
                 .id(transaction.getOfferId())
                 .name("Pack Athlétisme")
@@ -98,43 +129,82 @@ class TicketServiceTest {
                 .quantity(50)
                 .active(true)
                 .build();
+        transaction.setQuantity(3);
+        // Line 0 survived an earlier, interrupted delivery of the webhook.
+        Ticket lineZero = Ticket.builder().id(10L).secretKey("TCK-LINE0").lineIndex(0).transaction(transaction).build();
 
         when(transactionRepository.findById(transaction.getId())).thenReturn(Optional.of(transaction));
-        when(ticketRepository.findByTransactionId(transaction.getId())).thenReturn(Optional.empty());
+        when(ticketRepository.findAllByTransactionIdOrderByLineIndex(transaction.getId())).thenReturn(List.of(lineZero));
         when(offerRepository.findById(transaction.getOfferId())).thenReturn(Optional.of(offer));
-        when(ticketRepository.existsBySecretKey(anyString())).thenReturn(false);
-        when(ticketRepository.save(any(Ticket.class))).thenAnswer(invocation -> {
-            Ticket ticket = invocation.getArgument(0);
-            ticket.setId(55L);
-            ticket.setCreatedAt(OffsetDateTime.now());
-            return ticket;
-        });
-
-        Ticket created = ticketService.generateTicketForTransaction(transaction.getId());
-
-        assertEquals(55L, created.getId());
-        assertTrue(created.getSecretKey().startsWith("TCK-"));
-        assertNotEquals(customer.getSecretKey(), created.getSecretKey());
-        assertEquals(customer.getSecretKey(), created.getCustomerSecret());
-        assertEquals(offer.getPersons(), created.getEntriesAllowed());
-        assertEquals(Ticket.Status.ACTIVE, created.getStatus());
-        verify(ticketRepository).save(any(Ticket.class));
+        when(environment.getProperty(anyString(), anyString())).thenAnswer(invocation -> invocation.getArgument(1));
+        when(ticketRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<Ticket> tickets = ticketService.generateTicketsForTransaction(transaction.getId());
+
+        verify(ticketRepository).saveAll(saved.capture());
+        assertEquals(List.of(1, 2), saved.getValue().stream().map(Ticket::getLineIndex).toList());
+        assertEquals(List.of(0, 1, 2), tickets.stream().map(Ticket::getLineIndex).toList());
+        for (Ticket created : saved.getValue()) {
+            assertTrue(ticketSecretAllocator.isAuthentic(created.getSecretKey()));
+            assertEquals(customer.getSecretKey(), created.getCustomerSecret());
+            assertEquals(offer.getPersons(), created.getEntriesAllowed());
+            assertEquals(Ticket.Status.ACTIVE, created.getStatus());
+        }
+        // The e-mail leaves once the tickets have committed.
+        verify(emailNotificationService, never()).sendNotification(any());
+        ArgumentCaptor<PaymentConfirmationEvent> confirmation = ArgumentCaptor.forClass(PaymentConfirmationEvent.class);
+        verify(eventPublisher, times(1)).publishEvent(confirmation.capture());
+        assertEquals(3, confirmation.getValue().email().getVariables().get("ticketCount"));
+    }
+
+    @Test
+    void generateTicketsForTransactionShouldFanOutOverCartLines() {
+        transaction.setQuantity(3);
+        transaction.addItem(TransactionItem.builder().id(1L).offerId(12L).offerName("Pack Athlétisme")
+                .unitPrice(50.0).quantity(2).entriesAllowed(1).build());
+        transaction.addItem(TransactionItem.builder().id(2L).offerId(13L).offerName("Pack Natation")
+                .unitPrice(80.0).quantity(1).entriesAllowed(4).build());
+
+        when(transactionRepository.findById(transaction.getId())).thenReturn(Optional.of(transaction));
+        when(ticketRepository.findAllByTransactionIdOrderByLineIndex(transaction.getId())).thenReturn(List.of());
+        when(environment.getProperty(anyString(), anyString())).thenAnswer(invocation -> invocation.getArgument(1));
+        when(ticketRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<Ticket> tickets = ticketService.generateTicketsForTransaction(transaction.getId());
+
+        verify(ticketRepository, times(1)).saveAll(anyList());
+        verify(offerRepository, never()).findById(any());
+        assertEquals(List.of(0, 1, 2), tickets.stream().map(Ticket::getLineIndex).toList());
+        assertEquals(List.of(12L, 12L, 13L), tickets.stream().map(Ticket::offerId).toList());
+        assertEquals(List.of(1, 1, 4), tickets.stream().map(Ticket::getEntriesAllowed).toList());
+        assertEquals("Pack Natation", tickets.get(2).offerName());
+        verify(eventPublisher, times(1)).publishEvent(any(PaymentConfirmationEvent.class));
+    }
+
+    @Test
+    void paymentConfirmationShouldOnlyLogAMailFailure() {
+        EmailRequest email = EmailRequest.builder().to(customer.getEmail()).build();
+        doThrow(new MailSendException("SMTP injoignable")).when(emailNotificationService).sendNotification(email);
+
+        ticketService.onPaymentConfirmation(new PaymentConfirmationEvent(email));
+
+        verify(emailNotificationService, times(1)).sendNotification(email);
     }
 
     @Test
-    void generateTicketForTransactionShouldFailWhenTransactionMissing() {
+    void generateTicketsForTransactionShouldFailWhenTransactionMissing() {
         when(transactionRepository.findById(anyLong())).thenReturn(Optional.empty());
 
-        assertThrows(IllegalArgumentException.class, () -> ticketService.generateTicketForTransaction(1L));
+        assertThrows(IllegalArgumentException.class, () -> ticketService.generateTicketsForTransaction(1L));
     }
 
     @Test
-    void generateTicketForTransactionShouldFailWhenOfferMissing() {
+    void generateTicketsForTransactionShouldFailWhenOfferMissing() {
         when(transactionRepository.findById(transaction.getId())).thenReturn(Optional.of(transaction));
-        when(ticketRepository.findByTransactionId(transaction.getId())).thenReturn(Optional.empty());
+        when(ticketRepository.findAllByTransactionIdOrderByLineIndex(transaction.getId())).thenReturn(List.of());
         when(offerRepository.findById(transaction.getOfferId())).thenReturn(Optional.empty());
 
-        assertThrows(IllegalStateException.class, () -> ticketService.generateTicketForTransaction(transaction.getId()));
+        assertThrows(IllegalStateException.class, () -> ticketService.generateTicketsForTransaction(transaction.getId()));
     }
 
     @Test
@@ -173,4 +243,52 @@ class TicketServiceTest {
         assertEquals(ticket.getTransaction().getStatus().name(), response.getTransactionStatus());
         assertEquals(ticket.getCreatedAt(), response.getCreatedAt());
     }
+
+    @Test
+    void getTicketPageForCustomerShouldReturnCursorWhenMoreRowsExist() {
+        OffsetDateTime createdAt = OffsetDateTime.of(2024, 7, 26, 10, 0, 0, 0, java.time.ZoneOffset.UTC);
+        List<TicketResponse> rows = List.of(row(3L, createdAt), row(2L, createdAt), row(1L, createdAt.minusDays(1)));
+        when(ticketRepository.findPageByCustomerSecret(customer.getSecretKey(), Limit.of(3))).thenReturn(rows);
+
+        TicketPageResponse page = ticketService.getTicketPageForCustomer(customer, null, 2);
+
+        assertEquals(2, page.getItems().size());
+        assertEquals(2L, page.getItems().get(1).getTicketId());
+
+        TicketCursor cursor = TicketCursor.decode(page.getNextCursor());
+        assertEquals(2L, cursor.id());
+        assertTrue(cursor.createdAt().isEqual(createdAt));
+    }
+
+    @Test
+    void getTicketPageForCustomerShouldResumeAfterCursorAndStopOnLastPage() {
+        OffsetDateTime createdAt = OffsetDateTime.of(2024, 7, 26, 10, 0, 0, 0, java.time.ZoneOffset.UTC);
+        String cursor = new TicketCursor(createdAt, 2L).encode();
+        when(ticketRepository.findPageByCustomerSecretAfter(eq(customer.getSecretKey()), any(), eq(2L), eq(Limit.of(3))))
+                .thenReturn(List.of(row(1L, createdAt.minusDays(1))));
+
+        TicketPageResponse page = ticketService.getTicketPageForCustomer(customer, cursor, 2);
+
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void getTicketPageForCustomerShouldRejectMalformedCursor() {
+        assertThrows(BadRequestException.class,
+                () -> ticketService.getTicketPageForCustomer(customer, "not-a-cursor", 10));
+    }
+
+    private TicketResponse row(Long id, OffsetDateTime createdAt) {
+        return TicketResponse.builder()
+                .ticketId(id)
+                .ticketSecret("TCK-" + id)
+                .status(Ticket.Status.ACTIVE)
+                .entriesAllowed(1)
+                .offerName(transaction.getOfferName())
+                .amount(transaction.getAmount())
+                .transactionStatus("PAID")
+                .createdAt(createdAt)
+                .build();
+    }
 }
@@ -0,0 +1,157 @@
+package studi.doryanbessiere.jo2024.shared.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import studi.doryanbessiere.jo2024.notifications.EmailNotificationService;
+import studi.doryanbessiere.jo2024.services.offers.Offer;
+import studi.doryanbessiere.jo2024.services.offers.OfferRepository;
+import studi.doryanbessiere.jo2024.services.offers.OfferService;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two independent H2 databases stand in for the primary and the replica; each holds a differently named offer so
+ * the test can tell which one served a read.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:rw-primary;DB_CLOSE_DELAY=-1",
+        "app.datasource.replica.url=jdbc:h2:mem:rw-replica;DB_CLOSE_DELAY=-1",
+        "app.datasource.replica.username=sa",
+        "app.datasource.replica.password=",
+        "app.datasource.replica.max-lag-ms=5000",
+        "app.datasource.replica.lag-check-interval-ms=3600000"
+})
+@ActiveProfiles("test")
+class ReadWriteRoutingDataSourceTest {
+
+    @Autowired
+    private OfferService offerService;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private ReplicaLagMonitor lagMonitor;
+
+    @Autowired
+    private ReadYourWritesTracker readYourWritesTracker;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @MockBean
+    private EmailNotificationService emailNotificationService;
+
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void setUp() {
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+
+        // Hibernate only builds the schema on the primary; mirror the tables the test needs on the replica.
+        replica.execute("create table if not exists offers (id bigint generated by default as identity, "
+                + "active boolean default true not null, persons integer not null, price float(53) not null, "
+                + "quantity integer not null, description text not null, name varchar(255) not null, "
+                + "version bigint default 0 not null, primary key (id))");
+        for (JdbcTemplate db : List.of(primary, replica)) {
+            db.execute("create table if not exists replica_heartbeat (id bigint not null, beat_at_ms bigint not null, primary key (id))");
+            db.update("delete from replica_heartbeat");
+            db.update("delete from offers");
+        }
+
+        offerRepository.save(offer("Offre primaire"));
+        replica.update("insert into offers (active, persons, price, quantity, description, name) "
+                + "values (true, 1, 10, 5, 'replica', 'Offre réplique')");
+    }
+
+    @AfterEach
+    void clearRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void readOnlyTransactionsShouldUseReplicaWhenItIsFresh() {
+        replicaHeartbeatAgeMillis(0);
+        lagMonitor.checkLag();
+
+        assertTrue(lagMonitor.isReplicaUsable());
+        assertEquals(List.of("Offre réplique"), offerNames());
+    }
+
+    @Test
+    void lagGuardShouldFallBackToPrimary() {
+        replicaHeartbeatAgeMillis(60_000);
+        lagMonitor.checkLag();
+
+        assertFalse(lagMonitor.isReplicaUsable());
+        assertEquals(List.of("Offre primaire"), offerNames());
+    }
+
+    @Test
+    void writesShouldAlwaysGoToPrimary() {
+        replicaHeartbeatAgeMillis(0);
+        lagMonitor.checkLag();
+
+        offerService.createOffer(offer("Nouvelle offre"));
+
+        assertEquals(2, primary.queryForObject("select count(*) from offers", Integer.class));
+        assertEquals(1, replica.queryForObject("select count(*) from offers", Integer.class));
+    }
+
+    @Test
+    void customerWhoJustWroteShouldReadFromPrimary() {
+        replicaHeartbeatAgeMillis(0);
+        lagMonitor.checkLag();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+
+        readYourWritesTracker.pinIfRecent("someone.else@example.com");
+        assertEquals(List.of("Offre réplique"), offerNames());
+
+        readYourWritesTracker.recordWrite("buyer@example.com");
+        readYourWritesTracker.pinIfRecent("buyer@example.com");
+        assertEquals(List.of("Offre primaire"), offerNames());
+    }
+
+    private List<String> offerNames() {
+        return offerService.getAllOffers().stream().map(Offer::getName).toList();
+    }
+
+    private void replicaHeartbeatAgeMillis(long ageMillis) {
+        // Simulates what replication would have copied: the primary stamps "now", the replica lags behind.
+        replica.update("delete from replica_heartbeat");
+        replica.update("insert into replica_heartbeat (id, beat_at_ms) values (1, ?)", System.currentTimeMillis() - ageMillis);
+    }
+
+    private Offer offer(String name) {
+        return Offer.builder()
+                .name(name)
+                .description("Offre de test")
+                .price(10.0)
+                .persons(1)
+                .quantity(5)
+                .active(true)
+                .build();
+    }
+}
@@ -0,0 +1,103 @@
+package studi.doryanbessiere.jo2024.shared.idempotency;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryIdempotencyStoreTest {
+
+    private static final long LOCK = 60_000;
+    private static final long TTL = 3_600_000;
+
+    private MutableClock clock;
+    private InMemoryIdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(1_720_000_000_000L);
+        store = new InMemoryIdempotencyStore(clock);
+    }
+
+    @Test
+    void secondClaimShouldSeeTheFirstInFlightThenItsResponse() {
+        assertTrue(store.claim("checkout:a:k1", "f1", LOCK).isEmpty());
+
+        Optional<IdempotencyStore.Entry> inFlight = store.claim("checkout:a:k1", "f1", LOCK);
+        assertTrue(inFlight.orElseThrow().inFlight());
+
+        store.complete("checkout:a:k1", Map.of("session_id", "cs_1"), TTL);
+        IdempotencyStore.Entry done = store.claim("checkout:a:k1", "f1", LOCK).orElseThrow();
+        assertEquals("f1", done.fingerprint());
+        assertEquals("cs_1", done.response().get("session_id"));
+    }
+
+    @Test
+    void releasedClaimShouldBeClaimableAgainButCompletedOneShouldNot() {
+        store.claim("k1", "f1", LOCK);
+        store.release("k1");
+        assertTrue(store.claim("k1", "f1", LOCK).isEmpty());
+
+        store.complete("k1", Map.of("session_id", "cs_1"), TTL);
+        store.release("k1");
+        assertTrue(store.claim("k1", "f1", LOCK).isPresent());
+    }
+
+    @Test
+    void expiredEntriesShouldFreeTheirKey() {
+        store.claim("stuck", "f1", LOCK);
+        store.claim("done", "f1", LOCK);
+        store.complete("done", Map.of("session_id", "cs_1"), TTL);
+
+        clock.advance(LOCK + 1);
+        assertTrue(store.claim("stuck", "f2", LOCK).isEmpty(), "an abandoned claim expires after the lock");
+        assertTrue(store.claim("done", "f1", LOCK).isPresent(), "a response lives for its TTL");
+
+        clock.advance(TTL);
+        assertTrue(store.claim("done", "f1", LOCK).isEmpty());
+        for (int i = 0; i < 1_024; i++) {
+            store.claim("sweep", "f", LOCK);
+        }
+        assertEquals(2, store.size(), "the stuck claim was swept");
+    }
+
+    private static final class MutableClock extends Clock {
+        private long millis;
+
+        private MutableClock(long millis) {
+            this.millis = millis;
+        }
+
+        void advance(long delta) {
+            millis += delta;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}
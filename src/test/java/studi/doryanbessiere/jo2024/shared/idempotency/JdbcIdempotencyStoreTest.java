@@ -0,0 +1,120 @@
+package studi.doryanbessiere.jo2024.shared.idempotency;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs against the real {@code idempotency_keys} migration on H2 in MySQL compatibility mode; two stores on the same
+ * database stand for two nodes.
+ */
+class JdbcIdempotencyStoreTest {
+
+    private static final long LOCK = 60_000;
+    private static final long TTL = 3_600_000;
+
+    private MutableClock clock;
+    private JdbcTemplate jdbcTemplate;
+    private JdbcIdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:idempotency-" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V12__idempotency_keys.sql")).execute(dataSource);
+        clock = new MutableClock(1_720_000_000_000L);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        store = new JdbcIdempotencyStore(jdbcTemplate, clock);
+    }
+
+    @Test
+    void secondClaimShouldSeeTheFirstInFlightThenItsResponseFromAnotherNode() {
+        JdbcIdempotencyStore otherNode = new JdbcIdempotencyStore(jdbcTemplate, clock);
+        assertTrue(store.claim("checkout:a:k1", "f1", LOCK).isEmpty());
+
+        Optional<IdempotencyStore.Entry> inFlight = otherNode.claim("checkout:a:k1", "f1", LOCK);
+        assertTrue(inFlight.orElseThrow().inFlight());
+
+        store.complete("checkout:a:k1", Map.of("session_id", "cs_1", "checkout_url", "https://checkout.example/cs_1"), TTL);
+        IdempotencyStore.Entry done = otherNode.claim("checkout:a:k1", "f1", LOCK).orElseThrow();
+        assertEquals("f1", done.fingerprint());
+        assertEquals(Map.of("session_id", "cs_1", "checkout_url", "https://checkout.example/cs_1"), done.response());
+    }
+
+    @Test
+    void releasedClaimShouldBeClaimableAgainButCompletedOneShouldNot() {
+        store.claim("k1", "f1", LOCK);
+        store.release("k1");
+        assertTrue(store.claim("k1", "f1", LOCK).isEmpty());
+
+        store.complete("k1", Map.of("session_id", "cs_1"), TTL);
+        store.release("k1");
+        assertTrue(store.claim("k1", "f1", LOCK).isPresent());
+    }
+
+    @Test
+    void expiredEntriesShouldFreeTheirKey() {
+        store.claim("stuck", "f1", LOCK);
+        store.claim("done", "f1", LOCK);
+        store.complete("done", Map.of("session_id", "cs_1"), TTL);
+
+        clock.advance(LOCK + 1);
+        assertTrue(store.claim("stuck", "f2", LOCK).isEmpty(), "an abandoned claim expires after the lock");
+        assertTrue(store.claim("done", "f1", LOCK).isPresent(), "a response lives for its TTL");
+
+        clock.advance(TTL);
+        assertTrue(store.claim("done", "f1", LOCK).isEmpty());
+        for (int i = 0; i < 1_024; i++) {
+            store.claim("sweep", "f", LOCK);
+        }
+        assertEquals(2, store.size(), "the stuck claim was swept");
+    }
+
+    private static final class MutableClock extends Clock {
+        private long millis;
+
+        private MutableClock(long millis) {
+            this.millis = millis;
+        }
+
+        void advance(long delta) {
+            millis += delta;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}
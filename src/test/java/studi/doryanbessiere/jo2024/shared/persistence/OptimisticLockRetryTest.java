@@ -0,0 +1,192 @@
+package studi.doryanbessiere.jo2024.shared.persistence;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.EventListener;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import studi.doryanbessiere.jo2024.services.customers.Customer;
+import studi.doryanbessiere.jo2024.services.customers.CustomerRepository;
+import studi.doryanbessiere.jo2024.services.offers.Offer;
+import studi.doryanbessiere.jo2024.services.offers.OfferCatalogChangedEvent;
+import studi.doryanbessiere.jo2024.services.offers.OfferRepository;
+import studi.doryanbessiere.jo2024.services.offers.OfferService;
+import studi.doryanbessiere.jo2024.services.payments.Transaction;
+import studi.doryanbessiere.jo2024.services.payments.TransactionRepository;
+import studi.doryanbessiere.jo2024.services.tickets.Ticket;
+import studi.doryanbessiere.jo2024.services.tickets.TicketRepository;
+import studi.doryanbessiere.jo2024.services.tickets.TicketService;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class OptimisticLockRetryTest {
+
+    /**
+     * Plays a checkout reserving one unit of the edited offer while the admin's transaction is still open.
+     */
+    @TestConfiguration
+    static class ConcurrentSale {
+
+        static final AtomicInteger remaining = new AtomicInteger();
+
+        @Bean
+        Object concurrentSaleListener(OfferRepository offerRepository, PlatformTransactionManager transactionManager) {
+            TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+            requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            return new Object() {
+                @EventListener
+                void onCatalogChanged(OfferCatalogChangedEvent event) {
+                    if (remaining.getAndDecrement() > 0) {
+                        requiresNew.executeWithoutResult(status -> offerRepository.takeStock(event.offerId(), 1));
+                    }
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private OfferService offerService;
+
+    @Autowired
+    private TicketService ticketService;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TicketRepository ticketRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Long offerId;
+
+    @BeforeEach
+    void setUp() {
+        ConcurrentSale.remaining.set(0);
+        ticketRepository.deleteAll();
+        transactionRepository.deleteAll();
+        customerRepository.deleteAll();
+        offerRepository.deleteAll();
+        offerId = offerRepository.save(Offer.builder()
+                .name("Pack Finale")
+                .description("Offre de test")
+                .price(120.0)
+                .persons(1)
+                .quantity(10)
+                .active(true)
+                .build()).getId();
+    }
+
+    @Test
+    void adminEditDuringASaleShouldBeRetriedWithoutRestoringTheSoldStock() {
+        ConcurrentSale.remaining.set(1);
+        double retries = count(OptimisticLockRetryAspect.RETRY_COUNTER);
+
+        offerService.updateOffer(offerId, edit("Pack Finale 100 m"));
+
+        Offer offer = offerRepository.findById(offerId).orElseThrow();
+        assertEquals("Pack Finale 100 m", offer.getName());
+        assertEquals(9, offer.getQuantity());
+        assertEquals(retries + 1, count(OptimisticLockRetryAspect.RETRY_COUNTER));
+    }
+
+    @Test
+    void editLosingEveryRaceShouldFailAfterMaxAttempts() {
+        ConcurrentSale.remaining.set(Integer.MAX_VALUE);
+        double exhausted = count(OptimisticLockRetryAspect.EXHAUSTED_COUNTER);
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> offerService.updateOffer(offerId, edit("Pack Finale 100 m")));
+
+        Offer offer = offerRepository.findById(offerId).orElseThrow();
+        assertEquals("Pack Finale", offer.getName());
+        assertEquals(6, offer.getQuantity());
+        assertEquals(exhausted + 1, count(OptimisticLockRetryAspect.EXHAUSTED_COUNTER));
+    }
+
+    @Test
+    void twoGatesValidatingTheSameTicketShouldLetOnlyOneIn() throws Exception {
+        Customer customer = customerRepository.save(Customer.builder()
+                .firstName("Jean")
+                .lastName("Dupont")
+                .email("gates@example.com")
+                .password("encoded")
+                .secretKey("CUS-GATES")
+                .build());
+        Transaction transaction = transactionRepository.save(Transaction.builder()
+                .customer(customer)
+                .offerId(offerId)
+                .offerName("Pack Finale")
+                .amount(120.0)
+                .status(Transaction.TransactionStatus.PAID)
+                .build());
+        ticketRepository.save(Ticket.builder()
+                .secretKey("TCK-RACE")
+                .customerSecret(customer.getSecretKey())
+                .entriesAllowed(1)
+                .status(Ticket.Status.ACTIVE)
+                .transaction(transaction)
+                .createdAt(OffsetDateTime.now())
+                .build());
+
+        CyclicBarrier start = new CyclicBarrier(2);
+        List<String> rejections = new ArrayList<>();
+        try (ExecutorService gates = Executors.newFixedThreadPool(2)) {
+            List<Future<TicketService.GateValidation>> results = new ArrayList<>();
+            for (int gate = 0; gate < 2; gate++) {
+                results.add(gates.submit(() -> {
+                    start.await();
+                    return ticketService.validate("TCK-RACE");
+                }));
+            }
+            for (Future<TicketService.GateValidation> result : results) {
+                rejections.add(String.valueOf(result.get().rejection()));
+            }
+        }
+
+        assertEquals(List.of("null", "ticket_already_used"), rejections.stream().sorted().toList());
+        assertEquals(Ticket.Status.USED, ticketRepository.findBySecretKey("TCK-RACE").orElseThrow().getStatus());
+    }
+
+    private static Offer edit(String name) {
+        return Offer.builder()
+                .name(name)
+                .description("Offre modifiée")
+                .price(150.0)
+                .persons(1)
+                .build();
+    }
+
+    private double count(String counter) {
+        return meterRegistry.find(counter).tag("method", "OfferService.updateOffer").counters().stream()
+                .mapToDouble(c -> c.count())
+                .sum();
+    }
+}
@@ -0,0 +1,166 @@
+package studi.doryanbessiere.jo2024.shared.ratelimit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryRateLimitStoreTest {
+
+    private static final long WINDOW = 60_000;
+
+    private MutableClock clock;
+    private InMemoryRateLimitStore store;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(1_000 * WINDOW);
+        store = new InMemoryRateLimitStore(clock);
+    }
+
+    @Test
+    void shouldAllowAttemptsUpToTheLimit() {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, store.tryAcquire("ip:1", 5, WINDOW));
+        }
+
+        long retryAfter = store.tryAcquire("ip:1", 5, WINDOW);
+        assertTrue(retryAfter > 0 && retryAfter <= 2 * WINDOW, "retryAfter=" + retryAfter);
+    }
+
+    @Test
+    void shouldKeepCountersIndependentPerKey() {
+        for (int i = 0; i < 3; i++) {
+            store.tryAcquire("email:a", 3, WINDOW);
+        }
+
+        assertTrue(store.tryAcquire("email:a", 3, WINDOW) > 0);
+        assertEquals(0, store.tryAcquire("email:b", 3, WINDOW));
+    }
+
+    @Test
+    void shouldWeightPreviousWindowWhenSliding() {
+        for (int i = 0; i < 4; i++) {
+            store.tryAcquire("ip:2", 4, WINDOW);
+        }
+
+        // A quarter into the next window, the previous one still counts for 3 attempts.
+        clock.advance(WINDOW + WINDOW / 4);
+        assertEquals(0, store.tryAcquire("ip:2", 4, WINDOW));
+        assertTrue(store.tryAcquire("ip:2", 4, WINDOW) > 0);
+
+        // Once the previous window is fully behind us the budget is restored.
+        clock.advance(WINDOW);
+        assertEquals(0, store.tryAcquire("ip:2", 4, WINDOW));
+    }
+
+    @Test
+    void retryAfterShouldPointToWhenTheAttemptIsAllowedAgain() {
+        for (int i = 0; i < 2; i++) {
+            store.tryAcquire("ip:3", 2, WINDOW);
+        }
+
+        long retryAfter = store.tryAcquire("ip:3", 2, WINDOW);
+        clock.advance(retryAfter);
+
+        assertEquals(0, store.tryAcquire("ip:3", 2, WINDOW));
+    }
+
+    @Test
+    void retryAfterShouldAnswerWithoutRecordingAnAttempt() {
+        assertEquals(0, store.retryAfter("ip:4", 1, WINDOW));
+        assertEquals(0, store.size());
+
+        assertEquals(0, store.tryAcquire("ip:4", 1, WINDOW));
+        long retryAfter = store.retryAfter("ip:4", 1, WINDOW);
+        assertTrue(retryAfter > 0);
+        assertEquals(retryAfter, store.tryAcquire("ip:4", 1, WINDOW));
+    }
+
+    @Test
+    void releaseShouldGiveTheLastAttemptBackEvenAcrossAWindowBoundary() {
+        assertEquals(0, store.tryAcquire("ip:5", 1, WINDOW));
+        store.release("ip:5", WINDOW);
+        assertEquals(0, store.tryAcquire("ip:5", 1, WINDOW));
+
+        clock.advance(WINDOW);
+        store.release("ip:5", WINDOW);
+        assertEquals(0, store.retryAfter("ip:5", 1, WINDOW));
+
+        store.release("ip:unknown", WINDOW);
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void shouldNeverGrantMoreThanTheLimitUnderContention() throws InterruptedException {
+        AtomicInteger granted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1_000; i++) {
+            executor.submit(() -> {
+                if (store.tryAcquire("ip:contended", 50, WINDOW) == 0) {
+                    granted.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(50, granted.get());
+    }
+
+    @Test
+    void shouldEvictStaleCounters() {
+        for (int i = 0; i < 100; i++) {
+            store.tryAcquire("email:" + i, 5, WINDOW);
+        }
+
+        clock.advance(3 * WINDOW);
+        for (int i = 0; i < 1_024; i++) {
+            store.tryAcquire("ip:fresh", Integer.MAX_VALUE, WINDOW);
+        }
+
+        assertEquals(1, store.size());
+    }
+
+    private static final class MutableClock extends Clock {
+        private long millis;
+
+        private MutableClock(long millis) {
+            this.millis = millis;
+        }
+
+        void advance(long delta) {
+            millis += delta;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}